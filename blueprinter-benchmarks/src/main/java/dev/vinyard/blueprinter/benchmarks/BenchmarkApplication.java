@@ -0,0 +1,33 @@
+package dev.vinyard.blueprinter.benchmarks;
+
+import dev.vinyard.blueprinter.autoconfigure.EnvironmentProperties;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+
+/**
+ * Application context of the benchmarks.
+ * <p>The home directory is given on the command line, so the user properties of the machine running the benchmarks are never touched.</p>
+ */
+@SpringBootApplication
+@EnableConfigurationProperties(EnvironmentProperties.class)
+public class BenchmarkApplication {
+
+    /**
+     * Start the application context on the given home directory.
+     *
+     * @param homeDirectory The home directory, the workspace is created in it
+     * @return The started application context
+     */
+    public static ConfigurableApplicationContext start(Path homeDirectory) {
+        SpringApplication application = new SpringApplication(BenchmarkApplication.class);
+        application.setLogStartupInfo(false);
+        return application.run(
+                "--blueprinter.homeDirectory=" + homeDirectory.toAbsolutePath(),
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN");
+    }
+}
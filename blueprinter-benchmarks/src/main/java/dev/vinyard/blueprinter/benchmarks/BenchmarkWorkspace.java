@@ -0,0 +1,82 @@
+package dev.vinyard.blueprinter.benchmarks;
+
+import dev.vinyard.blueprinter.core.environment.EnvironmentManager;
+import dev.vinyard.blueprinter.core.model.ModelManager;
+import org.apache.commons.io.FileUtils;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Synthetic workspace the benchmarks run against.
+ * <p>The workspace is written by the {@link WorkspaceGenerator} in a temporary home directory, with an application context started on it.</p>
+ */
+public class BenchmarkWorkspace implements Closeable {
+
+    public static final String MODEL = WorkspaceGenerator.modelName(0);
+
+    private final Path homeDirectory;
+
+    private final ConfigurableApplicationContext context;
+
+    private final List<String> models;
+
+    private BenchmarkWorkspace(Path homeDirectory, ConfigurableApplicationContext context, List<String> models) {
+        this.homeDirectory = homeDirectory;
+        this.context = context;
+        this.models = models;
+    }
+
+    /**
+     * Create a new workspace with a single model, {@value WorkspaceGenerator#MODEL_PREFIX}0.
+     *
+     * @param directives The number of directives of the model
+     * @param selectValues The number of values of the select prompts of the model
+     * @return The workspace, with its started application context
+     * @throws IOException if the workspace cannot be written
+     */
+    public static BenchmarkWorkspace create(int directives, int selectValues) throws IOException {
+        return create(WorkspaceSpecification.of(directives).withPromptValues(selectValues));
+    }
+
+    /**
+     * Create a new workspace of the given specification.
+     *
+     * @param specification The shape of the workspace
+     * @return The workspace, with its started application context
+     * @throws IOException if the workspace cannot be written
+     */
+    public static BenchmarkWorkspace create(WorkspaceSpecification specification) throws IOException {
+        Path homeDirectory = Files.createTempDirectory("blueprinter-benchmark");
+        ConfigurableApplicationContext context = BenchmarkApplication.start(homeDirectory);
+
+        List<String> models = new WorkspaceGenerator(context.getBean(EnvironmentManager.class), context.getBean(ModelManager.class)).generate(specification);
+
+        return new BenchmarkWorkspace(homeDirectory, context, models);
+    }
+
+    public List<String> getModels() {
+        return models;
+    }
+
+    public Path getHomeDirectory() {
+        return homeDirectory;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Stop the application context and delete the workspace.
+     */
+    @Override
+    public void close() throws IOException {
+        context.close();
+        FileUtils.deleteDirectory(homeDirectory.toFile());
+    }
+}
@@ -0,0 +1,55 @@
+package dev.vinyard.blueprinter.benchmarks;
+
+import dev.vinyard.blueprinter.core.exception.BluePrinterException;
+import dev.vinyard.blueprinter.core.model.ModelManager;
+import dev.vinyard.blueprinter.core.model.ValidatedModel;
+import dev.vinyard.blueprinter.core.model.entities.Model;
+import dev.vinyard.blueprinter.core.utils.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading of a model configuration file, parsed and validated against its schema, or served by the model cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigurationLoadingBenchmark {
+
+    @Param({"10", "1000"})
+    private int directives;
+
+    private BenchmarkWorkspace workspace;
+
+    private ModelManager modelManager;
+
+    private File modelFile;
+
+    @Setup
+    public void setup() throws IOException {
+        workspace = BenchmarkWorkspace.create(directives, 10);
+        modelManager = workspace.getBean(ModelManager.class);
+        modelFile = modelManager.getConfigurationFile(BenchmarkWorkspace.MODEL);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        workspace.close();
+    }
+
+    @Benchmark
+    public Model loadConfigurationFile() throws BluePrinterException {
+        return FileUtils.loadConfigurationFile(modelFile, Model.class, ModelManager.FILE_LOCATION + ModelManager.SCHEMA_FILE);
+    }
+
+    @Benchmark
+    public ValidatedModel loadValidatedModel() throws BluePrinterException {
+        return modelManager.loadValidatedModel(BenchmarkWorkspace.MODEL);
+    }
+}
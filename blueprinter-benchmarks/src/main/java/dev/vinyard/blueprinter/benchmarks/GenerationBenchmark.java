@@ -0,0 +1,62 @@
+package dev.vinyard.blueprinter.benchmarks;
+
+import dev.vinyard.blueprinter.core.exception.BluePrinterException;
+import dev.vinyard.blueprinter.core.generation.GenerationManager;
+import dev.vinyard.blueprinter.core.generation.GenerationReport;
+import dev.vinyard.blueprinter.core.generation.InMemoryGenerationSink;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end generation of the synthetic model : model and environment loading, prompts, and rendering of all the directives.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GenerationBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int directives;
+
+    @Param({"" + WorkspaceSpecification.DEFAULT_SEED})
+    private long seed;
+
+    private BenchmarkWorkspace workspace;
+
+    private GenerationManager generationManager;
+
+    @Setup
+    public void setup() throws IOException, BluePrinterException {
+        workspace = BenchmarkWorkspace.create(WorkspaceSpecification.of(directives).withSeed(seed).withPromptValues(20));
+        generationManager = workspace.getBean(GenerationManager.class);
+        generationManager.generate(BenchmarkWorkspace.MODEL);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        workspace.close();
+    }
+
+    /**
+     * Render all the directives in memory, the file system is not involved.
+     */
+    @Benchmark
+    public GenerationReport generateInMemory() throws BluePrinterException, IOException {
+        try (InMemoryGenerationSink sink = new InMemoryGenerationSink()) {
+            return generationManager.generate(BenchmarkWorkspace.MODEL, sink);
+        }
+    }
+
+    /**
+     * Generate in the home directory, all the directives are up to date since the setup, so they are all skipped.
+     */
+    @Benchmark
+    public GenerationReport generateIncremental() throws BluePrinterException, IOException {
+        return generationManager.generate(BenchmarkWorkspace.MODEL);
+    }
+}
@@ -0,0 +1,56 @@
+package dev.vinyard.blueprinter.benchmarks;
+
+import dev.vinyard.blueprinter.core.exception.BluePrinterException;
+import dev.vinyard.blueprinter.core.model.ModelManager;
+import dev.vinyard.blueprinter.core.model.entities.MultiSelect;
+import dev.vinyard.blueprinter.core.prompt.DefaultPromptProvider;
+import dev.vinyard.blueprinter.core.template.ExpressionEvaluator;
+import org.apache.velocity.VelocityContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolution of a multi select prompt with many values, answered with its default values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int selectValues;
+
+    private BenchmarkWorkspace workspace;
+
+    private DefaultPromptProvider promptProvider;
+
+    private MultiSelect multiSelect;
+
+    private VelocityContext velocityContext;
+
+    @Setup
+    public void setup() throws IOException, BluePrinterException {
+        workspace = BenchmarkWorkspace.create(1, selectValues);
+        promptProvider = new DefaultPromptProvider(List.of(), workspace.getBean(ExpressionEvaluator.class));
+        multiSelect = workspace.getBean(ModelManager.class).loadValidatedModel(BenchmarkWorkspace.MODEL).model().getPrompts().getMultiSelectList().getFirst();
+
+        velocityContext = new VelocityContext();
+        velocityContext.put("NAME", "Bench");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        workspace.close();
+    }
+
+    @Benchmark
+    public Object promptMultiSelect() {
+        return promptProvider.prompt(multiSelect, velocityContext);
+    }
+}
@@ -0,0 +1,78 @@
+package dev.vinyard.blueprinter.benchmarks;
+
+import dev.vinyard.blueprinter.core.environment.EnvironmentManager;
+import dev.vinyard.blueprinter.core.template.ExpressionEvaluator;
+import dev.vinyard.blueprinter.core.template.TemplateCache;
+import dev.vinyard.blueprinter.core.utils.VelocityUtils;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.app.VelocityEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Rendering of string templates, like the property values, and of file templates, like the templates of the directives.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateRenderingBenchmark {
+
+    @Param({"literal value", "${SRC}/${PACKAGE}/core", "#if($PACKAGE)${PACKAGE.replace('/', '.')}#end"})
+    private String expression;
+
+    private BenchmarkWorkspace workspace;
+
+    private VelocityEngine velocityEngine;
+
+    private ExpressionEvaluator expressionEvaluator;
+
+    private TemplateCache templateCache;
+
+    private File template;
+
+    private VelocityContext velocityContext;
+
+    @Setup
+    public void setup() throws IOException {
+        workspace = BenchmarkWorkspace.create(1, 10);
+        velocityEngine = workspace.getBean(VelocityEngine.class);
+        expressionEvaluator = workspace.getBean(ExpressionEvaluator.class);
+        templateCache = workspace.getBean(TemplateCache.class);
+        template = new File(workspace.getBean(EnvironmentManager.class).getTemplateDirectory(), WorkspaceGenerator.templateName(0));
+
+        velocityContext = new VelocityContext();
+        velocityContext.put("SRC", "src/main/java");
+        velocityContext.put("PACKAGE", "dev/vinyard/bench");
+        velocityContext.put("ROOT", "src/main/java/dev/vinyard/bench");
+        velocityContext.put("PATH", "src/main/java/dev/vinyard/bench/level1");
+        velocityContext.put("NAME", "Bench");
+        velocityContext.put("FIELDS", IntStream.range(0, 50).mapToObj(i -> "field" + i).toList());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        workspace.close();
+    }
+
+    @Benchmark
+    public String processStringTemplate() {
+        return VelocityUtils.processTemplate(velocityEngine, new VelocityContext(velocityContext), expression);
+    }
+
+    @Benchmark
+    public String evaluateExpression() {
+        return expressionEvaluator.evaluate(new VelocityContext(velocityContext), expression);
+    }
+
+    @Benchmark
+    public String processFileTemplate() throws IOException {
+        return VelocityUtils.processTemplate(new VelocityContext(velocityContext), templateCache.getTemplate(template));
+    }
+}
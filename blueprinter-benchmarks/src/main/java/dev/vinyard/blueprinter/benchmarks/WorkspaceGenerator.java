@@ -0,0 +1,245 @@
+package dev.vinyard.blueprinter.benchmarks;
+
+import dev.vinyard.blueprinter.benchmarks.WorkspaceSpecification.Construct;
+import dev.vinyard.blueprinter.core.environment.EnvironmentManager;
+import dev.vinyard.blueprinter.core.model.ModelManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Generator of synthetic workspaces, to measure how BluePrinter scales with the size of the models and templates.
+ * <p>The workspace is written with the layout of the {@link EnvironmentManager}, its shape is given by a {@link WorkspaceSpecification} :</p>
+ * <ul>
+ *     <li>the templates are shared by the models, each one is made of blocks using the enabled velocity constructs,</li>
+ *     <li>each model has a literal property, chains of properties referencing each other, a string input, a multi select iterated by the templates and mono selects,</li>
+ *     <li>each directive of a model writes its own file, with one of the templates.</li>
+ * </ul>
+ * <p>All the random choices are drawn from the seed of the specification, in a fixed order, so a workspace can be generated again identically.</p>
+ *
+ * <p>It can also be run on its own to write a workspace in a given home directory :</p>
+ * <pre>
+ * mvn -Pbenchmarks -pl blueprinter-benchmarks exec:java -Dexec.mainClass=dev.vinyard.blueprinter.benchmarks.WorkspaceGenerator \
+ *     -Dexec.args="/tmp/workspace --models=10 --directives=1000 --seed=7"
+ * </pre>
+ */
+@Slf4j
+public class WorkspaceGenerator {
+
+    public static final String MODEL_PREFIX = "synthetic";
+
+    public static final String TEMPLATE_PREFIX = "synthetic";
+
+    private final EnvironmentManager environmentManager;
+
+    private final ModelManager modelManager;
+
+    public WorkspaceGenerator(EnvironmentManager environmentManager, ModelManager modelManager) {
+        this.environmentManager = environmentManager;
+        this.modelManager = modelManager;
+    }
+
+    public static String modelName(int index) {
+        return MODEL_PREFIX + index;
+    }
+
+    public static String templateName(int index) {
+        return TEMPLATE_PREFIX + index + ".vm";
+    }
+
+    /**
+     * Write the workspace of the given specification, the existing synthetic models and templates are overwritten.
+     *
+     * @param specification The shape of the workspace
+     * @return The names of the generated models
+     * @throws IOException if the workspace cannot be written
+     */
+    public List<String> generate(WorkspaceSpecification specification) throws IOException {
+        Random random = new Random(specification.seed());
+
+        environmentManager.initialize();
+
+        for (int i = 0; i < specification.templates(); i++) {
+            Path templateFile = new File(environmentManager.getTemplateDirectory(), templateName(i)).toPath();
+            Files.writeString(templateFile, template(i, specification, random), StandardCharsets.UTF_8);
+        }
+
+        List<String> models = new ArrayList<>();
+        for (int i = 0; i < specification.models(); i++) {
+            String name = modelName(i);
+            modelManager.createModel(name);
+            Files.writeString(modelManager.getConfigurationFile(name).toPath(), model(name, specification, random), StandardCharsets.UTF_8);
+            models.add(name);
+        }
+
+        log.info("Synthetic workspace generated in {} : {} models of {} directives, {} templates.", environmentManager.getWorkspaceDirectory(),
+                specification.models(), specification.directives(), specification.templates());
+
+        return models;
+    }
+
+    private static String template(int index, WorkspaceSpecification specification, Random random) {
+        Set<Construct> constructs = specification.constructs();
+        List<Construct> blocks = new ArrayList<>(constructs);
+
+        StringBuilder vm = new StringBuilder();
+        vm.append("## Synthetic template ").append(index).append('\n');
+
+        if (constructs.contains(Construct.MACRO)) {
+            vm.append("#macro(getter $name)\n");
+            vm.append("    public String get${name}() {\n");
+            vm.append("        return \"${name}\";\n");
+            vm.append("    }\n");
+            vm.append("#end\n");
+        }
+
+        vm.append("package ${PACKAGE};\n\n");
+        vm.append("public class ${NAME}").append(index).append(" {\n\n");
+
+        for (int b = 0; b < specification.templateBlocks(); b++) {
+            // one chance out of (constructs + 1) for a plain text block
+            int choice = random.nextInt(blocks.size() + 1);
+
+            if (choice == blocks.size()) {
+                vm.append("    // Block ").append(b).append(", plain text.\n\n");
+                continue;
+            }
+
+            switch (blocks.get(choice)) {
+                case FOREACH -> {
+                    vm.append("#foreach($field in $FIELDS)\n");
+                    vm.append("    private String ${field}").append(b).append(";\n");
+                    vm.append("#end\n\n");
+                }
+                case MACRO -> {
+                    vm.append("#foreach($field in $FIELDS)\n");
+                    vm.append("#getter(\"${field}").append(b).append("\")\n");
+                    vm.append("#end\n\n");
+                }
+                case CONDITION -> {
+                    int threshold = random.nextInt(specification.promptValues() + 1);
+                    vm.append("#if($FIELDS.size() > ").append(threshold).append(")\n");
+                    vm.append("    // More than ").append(threshold).append(" fields.\n");
+                    vm.append("#else\n");
+                    vm.append("    // At most ").append(threshold).append(" fields.\n");
+                    vm.append("#end\n\n");
+                }
+                case NESTED_REFERENCES -> vm.append("    // ${NAME} in ${PATH}, from ${ROOT}, option $!{OPTION1}.\n\n");
+            }
+        }
+
+        vm.append("}\n");
+        return vm.toString();
+    }
+
+    private static String model(String name, WorkspaceSpecification specification, Random random) {
+        boolean nested = specification.constructs().contains(Construct.NESTED_REFERENCES);
+
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
+        xml.append("<model xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" name=\"").append(name).append("\" xsi:noNamespaceSchemaLocation=\"model.xsd\">\n");
+
+        xml.append("    <properties>\n");
+        xml.append("        <property key=\"PACKAGE\">dev/vinyard/").append(name).append("</property>\n");
+        xml.append("        <property key=\"ROOT\">${SRC}/${PACKAGE}</property>\n");
+
+        String path = "${ROOT}";
+        if (nested && specification.propertyDepth() > 0) {
+            int depth = 1 + random.nextInt(specification.propertyDepth());
+            for (int level = 1; level <= depth; level++) {
+                xml.append("        <property key=\"LEVEL").append(level).append("\">").append(path).append("/level").append(level).append("</property>\n");
+                path = "${LEVEL" + level + "}";
+            }
+        }
+        xml.append("        <property key=\"PATH\">").append(path).append("</property>\n");
+
+        xml.append("        <property key=\"NAME\"/>\n");
+        xml.append("        <property key=\"FIELDS\"/>\n");
+        for (int j = 1; j < specification.prompts(); j++)
+            xml.append("        <property key=\"OPTION").append(j).append("\"/>\n");
+        xml.append("    </properties>\n");
+
+        xml.append("    <directives>\n");
+        for (int i = 0; i < specification.directives(); i++)
+            xml.append("        <directive name=\"directive").append(i).append("\" template=\"").append(templateName(random.nextInt(specification.templates())))
+                    .append("\" override=\"true\">${PATH}/Type").append(i).append(".java</directive>\n");
+        xml.append("    </directives>\n");
+
+        xml.append("    <prompts>\n");
+        xml.append("        <stringInput value=\"NAME\" order=\"1\"><defaultValue>Synthetic</defaultValue></stringInput>\n");
+
+        xml.append("        <multiSelect value=\"FIELDS\" order=\"2\">\n");
+        for (int k = 0; k < specification.promptValues(); k++)
+            xml.append("            <value key=\"field").append(k).append("\" selected=\"").append(random.nextBoolean()).append("\">")
+                    .append(value("field", k, nested, random)).append("</value>\n");
+        xml.append("        </multiSelect>\n");
+
+        for (int j = 1; j < specification.prompts(); j++) {
+            int selected = random.nextInt(specification.promptValues());
+            xml.append("        <monoSelect value=\"OPTION").append(j).append("\" order=\"").append(j + 2).append("\">\n");
+            for (int k = 0; k < specification.promptValues(); k++)
+                xml.append("            <value key=\"option").append(k).append("\" selected=\"").append(k == selected).append("\">")
+                        .append(value("option", k, nested, random)).append("</value>\n");
+            xml.append("        </monoSelect>\n");
+        }
+
+        xml.append("    </prompts>\n");
+        xml.append("</model>\n");
+        return xml.toString();
+    }
+
+    /**
+     * Get the content of a select value, a quarter of them reference the string input when nested references are enabled.
+     */
+    private static String value(String prefix, int index, boolean nested, Random random) {
+        boolean referencing = random.nextInt(4) == 0;
+        return nested && referencing ? "${NAME}" + prefix + index : prefix + index;
+    }
+
+    /**
+     * Write a synthetic workspace in the home directory given as first argument.
+     * <p>The home directory is created if it does not exist. The other arguments override the default specification, see {@link WorkspaceSpecification#of(int)} :
+     * {@code --seed}, {@code --models}, {@code --templates}, {@code --directives}, {@code --prompts}, {@code --promptValues},
+     * {@code --templateBlocks}, {@code --propertyDepth} and {@code --constructs}, a comma separated list of {@link Construct}.</p>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0)
+            throw new IllegalArgumentException("Usage : WorkspaceGenerator <homeDirectory> [--option=value ...]");
+
+        WorkspaceSpecification specification = WorkspaceSpecification.of(100);
+
+        for (String arg : Arrays.copyOfRange(args, 1, args.length)) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (option.length != 2)
+                throw new IllegalArgumentException("Invalid option : " + arg);
+
+            String value = option[1];
+            specification = switch (option[0]) {
+                case "seed" -> specification.withSeed(Long.parseLong(value));
+                case "models" -> specification.withModels(Integer.parseInt(value));
+                case "templates" -> specification.withTemplates(Integer.parseInt(value));
+                case "directives" -> specification.withDirectives(Integer.parseInt(value));
+                case "prompts" -> specification.withPrompts(Integer.parseInt(value));
+                case "promptValues" -> specification.withPromptValues(Integer.parseInt(value));
+                case "templateBlocks" -> specification.withTemplateBlocks(Integer.parseInt(value));
+                case "propertyDepth" -> specification.withPropertyDepth(Integer.parseInt(value));
+                case "constructs" -> specification.withConstructs(value.isBlank() ? Set.of() : new HashSet<>(Arrays.stream(value.split(","))
+                        .map(String::trim).map(String::toUpperCase).map(Construct::valueOf).toList()));
+                default -> throw new IllegalArgumentException("Unknown option : " + option[0]);
+            };
+        }
+
+        Path homeDirectory = Files.createDirectories(Path.of(args[0]));
+
+        try (ConfigurableApplicationContext context = BenchmarkApplication.start(homeDirectory)) {
+            List<String> models = new WorkspaceGenerator(context.getBean(EnvironmentManager.class), context.getBean(ModelManager.class)).generate(specification);
+            System.out.printf("%d models written in %s : %s%n", models.size(), context.getBean(EnvironmentManager.class).getWorkspaceDirectory(), specification);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package dev.vinyard.blueprinter.benchmarks;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Shape of a synthetic workspace, see {@link WorkspaceGenerator}.
+ * <p>Two workspaces generated from the same specification are identical, file by file.</p>
+ *
+ * @param seed The seed of the random choices : templates of the directives, blocks of the templates, values of the prompts
+ * @param models The number of models
+ * @param templates The number of templates, shared by all the models
+ * @param directives The number of directives of each model
+ * @param prompts The number of select prompts of each model, the first one is the multi select iterated by the templates
+ * @param promptValues The number of values of each select prompt
+ * @param templateBlocks The number of blocks of each template, a block being a few lines using one of the constructs
+ * @param propertyDepth The maximum length of the chains of properties referencing each other
+ * @param constructs The velocity constructs used by the templates
+ */
+public record WorkspaceSpecification(long seed, int models, int templates, int directives, int prompts, int promptValues, int templateBlocks, int propertyDepth, Set<Construct> constructs) {
+
+    public static final long DEFAULT_SEED = 42;
+
+    public enum Construct {
+        /** {@code #foreach} over the values of the multi select prompt */
+        FOREACH,
+        /** {@code #macro} definitions and calls */
+        MACRO,
+        /** {@code #if} on the selected values */
+        CONDITION,
+        /** references to properties referencing other properties, and to the prompts values */
+        NESTED_REFERENCES
+    }
+
+    public WorkspaceSpecification {
+        if (models <= 0 || templates <= 0 || directives <= 0 || prompts <= 0 || promptValues <= 0)
+            throw new IllegalArgumentException("Models, templates, directives, prompts and prompt values must be positive");
+        if (templateBlocks < 0 || propertyDepth < 0)
+            throw new IllegalArgumentException("Template blocks and property depth cannot be negative");
+
+        EnumSet<Construct> copy = EnumSet.noneOf(Construct.class);
+        copy.addAll(constructs);
+        constructs = Collections.unmodifiableSet(copy);
+    }
+
+    /**
+     * Get the specification of a workspace with one model of the given number of directives, using all the constructs.
+     *
+     * @param directives The number of directives of the model
+     * @return The specification
+     */
+    public static WorkspaceSpecification of(int directives) {
+        return new WorkspaceSpecification(DEFAULT_SEED, 1, 4, directives, 2, 10, 8, 3, EnumSet.allOf(Construct.class));
+    }
+
+    public WorkspaceSpecification withSeed(long seed) {
+        return new WorkspaceSpecification(seed, models, templates, directives, prompts, promptValues, templateBlocks, propertyDepth, constructs);
+    }
+
+    public WorkspaceSpecification withModels(int models) {
+        return new WorkspaceSpecification(seed, models, templates, directives, prompts, promptValues, templateBlocks, propertyDepth, constructs);
+    }
+
+    public WorkspaceSpecification withTemplates(int templates) {
+        return new WorkspaceSpecification(seed, models, templates, directives, prompts, promptValues, templateBlocks, propertyDepth, constructs);
+    }
+
+    public WorkspaceSpecification withDirectives(int directives) {
+        return new WorkspaceSpecification(seed, models, templates, directives, prompts, promptValues, templateBlocks, propertyDepth, constructs);
+    }
+
+    public WorkspaceSpecification withPrompts(int prompts) {
+        return new WorkspaceSpecification(seed, models, templates, directives, prompts, promptValues, templateBlocks, propertyDepth, constructs);
+    }
+
+    public WorkspaceSpecification withPromptValues(int promptValues) {
+        return new WorkspaceSpecification(seed, models, templates, directives, prompts, promptValues, templateBlocks, propertyDepth, constructs);
+    }
+
+    public WorkspaceSpecification withTemplateBlocks(int templateBlocks) {
+        return new WorkspaceSpecification(seed, models, templates, directives, prompts, promptValues, templateBlocks, propertyDepth, constructs);
+    }
+
+    public WorkspaceSpecification withPropertyDepth(int propertyDepth) {
+        return new WorkspaceSpecification(seed, models, templates, directives, prompts, promptValues, templateBlocks, propertyDepth, constructs);
+    }
+
+    public WorkspaceSpecification withConstructs(Set<Construct> constructs) {
+        return new WorkspaceSpecification(seed, models, templates, directives, prompts, promptValues, templateBlocks, propertyDepth, constructs);
+    }
+}
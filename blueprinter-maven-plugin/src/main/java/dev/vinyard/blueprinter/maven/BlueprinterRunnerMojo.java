@@ -17,9 +17,16 @@ package dev.vinyard.blueprinter.maven;
  */
 
 import dev.vinyard.blueprinter.autoconfigure.EnvironmentProperties;
+import dev.vinyard.blueprinter.core.daemon.DaemonClient;
+import dev.vinyard.blueprinter.core.daemon.DaemonConfiguration;
+import dev.vinyard.blueprinter.core.daemon.DaemonRequest;
+import dev.vinyard.blueprinter.core.daemon.DaemonResponse;
 import dev.vinyard.blueprinter.core.exception.BluePrinterException;
 import dev.vinyard.blueprinter.core.generation.GenerationManager;
+import dev.vinyard.blueprinter.core.model.ModelManager;
+import dev.vinyard.blueprinter.core.model.WorkspaceValidationReport;
 import dev.vinyard.blueprinter.core.prompt.Prompt;
+import dev.vinyard.blueprinter.core.prompt.PromptRecordReader;
 import dev.vinyard.blueprinter.core.prompt.PromptRepository;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -29,21 +36,40 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.DefaultApplicationArguments;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @SpringBootApplication
 @EnableConfigurationProperties({EnvironmentProperties.class})
 @Mojo( name = "blueprint", defaultPhase = LifecyclePhase.PACKAGE )
 public class BlueprinterRunnerMojo extends AbstractMojo {
 
+    private static final String RECORDS_PROPERTY = "blueprinter.records";
+
+    private static final String HOME_DIRECTORY_PROPERTY = "blueprinter.homeDirectory";
+
+    private static final String VALIDATION_REPORT_PROPERTY = "blueprinter.validationReport";
+
+    private static final String VALIDATION_REPORT_FILE = "blueprinter-validation.json";
+
     /**
      * Location of the file.
      */
@@ -54,31 +80,173 @@ public class BlueprinterRunnerMojo extends AbstractMojo {
     MavenProject project;
 
     /**
-     * Arguments that should be passed to the application.
+     * Arguments that should be passed to the application : the models to generate, and the prompt answers as options.
+     * Several models are generated together, see {@link GenerationManager#generate(java.util.Collection)}.
      */
     @Parameter
     private String[] arguments;
 
+    /**
+     * CSV or JSON lines file holding one set of prompt answers per record.
+     * When set, the model is generated once for each record.
+     */
+    @Parameter(property = "records")
+    private File records;
+
+    /**
+     * Send the generation to the generation daemon when one is running, instead of starting the engine in the maven process.
+     * The daemon generates with its own configuration, only the home directory and the prompt answers of the arguments are sent.
+     * The daemon is only used when the home directory is set, by the arguments or by the blueprinter.homeDirectory property, and is the home directory of the daemon.
+     */
+    @Parameter(property = "blueprinter.daemon", defaultValue = "true")
+    private boolean daemon;
+
+    /**
+     * Unix domain socket of the generation daemon, defaults to daemon.sock in a directory of the current user only, see {@link DaemonConfiguration#defaultSocketFile()}.
+     */
+    @Parameter(property = "blueprinter.daemonSocket")
+    private File daemonSocket;
+
+    /**
+     * Validate the models instead of generating them, the models of the arguments or all the models of the workspace.
+     * The JSON report is written in blueprinter-validation.json in the output directory, and the build fails if a model is not valid.
+     */
+    @Parameter(property = "blueprinter.validate", defaultValue = "false")
+    private boolean validate;
+
     public void execute() throws MojoExecutionException {
-        SpringApplication.run(BlueprinterRunnerMojo.class, Optional.ofNullable(arguments).orElseGet(() -> new String[0]));
+        if (!validate && daemon && this.executeOnDaemon())
+            return;
+
+        SpringApplication application = new SpringApplication(BlueprinterRunnerMojo.class);
+        if (validate)
+            application.setDefaultProperties(Map.of(VALIDATION_REPORT_PROPERTY, new File(outputDirectory, VALIDATION_REPORT_FILE).getAbsolutePath()));
+        else
+            Optional.ofNullable(records).map(File::getAbsolutePath).ifPresent(r -> application.setDefaultProperties(Map.of(RECORDS_PROPERTY, r)));
+        application.run(Optional.ofNullable(arguments).orElseGet(() -> new String[0]));
+    }
+
+    /**
+     * Send the generation to the generation daemon.
+     *
+     * @return {@code true} if the daemon executed the generation, {@code false} if no daemon is running, if the home directory is not set or if the daemon does not serve it
+     * @throws MojoExecutionException if the daemon failed to generate
+     */
+    private boolean executeOnDaemon() throws MojoExecutionException {
+        String[] applicationArguments = Optional.ofNullable(arguments).orElseGet(() -> new String[0]);
+        ApplicationArguments args = new DefaultApplicationArguments(applicationArguments);
+
+        List<String> models = args.getNonOptionArgs();
+        if (models.isEmpty())
+            return false;
+
+        Optional<String> home = this.resolveHomeDirectory(applicationArguments);
+        if (home.isEmpty()) {
+            getLog().debug("No home directory set, generating in process.");
+            return false;
+        }
+
+        String homeDirectory = home.get();
+
+        DaemonRequest request = Optional.ofNullable(records)
+                .map(r -> DaemonRequest.bulk(homeDirectory, models.getFirst(), r.getAbsolutePath()))
+                .orElseGet(() -> DaemonRequest.generate(homeDirectory, models, args.getOptionNames().stream().collect(Collectors.toMap(Function.identity(), args::getOptionValues))));
+
+        Path socketFile = Optional.ofNullable(daemonSocket).map(File::toPath).orElseGet(DaemonConfiguration::defaultSocketFile);
+
+        try {
+            Optional<DaemonResponse> response = DaemonClient.send(socketFile, request);
+
+            if (response.isEmpty()) {
+                getLog().debug("No generation daemon on %s, generating in process.".formatted(socketFile));
+                return false;
+            }
+
+            return switch (response.get().status()) {
+                case OK -> {
+                    getLog().info("Generated by the daemon on %s : %s".formatted(socketFile, response.get().message()));
+                    yield true;
+                }
+                case REJECTED -> {
+                    getLog().info("%s, generating in process.".formatted(response.get().message()));
+                    yield false;
+                }
+                case FAILED -> throw new MojoExecutionException(response.get().message());
+            };
+        } catch (IOException e) {
+            getLog().warn("Generation daemon on %s does not answer, generating in process : %s".formatted(socketFile, e.getMessage()));
+            return false;
+        }
+    }
+
+    /**
+     * Resolve the home directory the application would generate in, from the arguments, then from the system properties and the environment variables.
+     *
+     * @param applicationArguments The arguments of the application
+     * @return The absolute home directory, empty if it is not set, the application then uses the home directory of the user properties
+     */
+    private Optional<String> resolveHomeDirectory(String[] applicationArguments) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(applicationArguments));
+
+        return Stream.of(HOME_DIRECTORY_PROPERTY, "blueprinter.home-directory")
+                .map(environment::getProperty)
+                .filter(Objects::nonNull)
+                .filter(h -> !h.isBlank())
+                .findFirst()
+                .map(h -> new File(h).getAbsolutePath());
     }
 
     @Bean
-    public ApplicationRunner bluePrinterApplicationRunner(GenerationManager generationManager, PromptRepository promptRepository) {
+    public ApplicationRunner bluePrinterApplicationRunner(GenerationManager generationManager, ModelManager modelManager, PromptRepository promptRepository, Environment environment) {
         return args -> {
+            Optional<File> reportFile = Optional.ofNullable(environment.getProperty(VALIDATION_REPORT_PROPERTY)).map(File::new);
+
+            if (reportFile.isPresent()) {
+                List<String> models = args.getNonOptionArgs();
+                WorkspaceValidationReport report = models.isEmpty() ? modelManager.validateAll() : modelManager.validate(models);
+
+                Files.createDirectories(reportFile.get().getAbsoluteFile().getParentFile().toPath());
+                Files.writeString(reportFile.get().toPath(), report.toJson());
+
+                report.models().stream().filter(m -> !m.isValid()).forEach(m -> getLog().error(m.toString()));
+                getLog().info("%d models validated, %d problems, report written in %s".formatted(report.models().size(), report.getProblemCount(), reportFile.get()));
+
+                if (!report.isValid())
+                    throw new IllegalStateException("%d problems found in the models, see %s".formatted(report.getProblemCount(), reportFile.get()));
+                return;
+            }
+
+            Optional<File> recordsFile = Optional.ofNullable(environment.getProperty(RECORDS_PROPERTY)).map(File::new);
+
+            if (recordsFile.isPresent()) {
+                Optional.of(args).map(ApplicationArguments::getNonOptionArgs).filter(l -> !l.isEmpty()).map(List::getFirst).ifPresent(model -> {
+                    try (Stream<List<Prompt>> stream = PromptRecordReader.read(recordsFile.get())) {
+                        long count = generationManager.generate(model, stream);
+                        getLog().info("%d records generated.".formatted(count));
+                    } catch (BluePrinterException | IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                return;
+            }
+
             args.getOptionNames().stream()
                     .map(key -> new Prompt(key, args.getOptionValues(key)))
                     .forEach(promptRepository::save);
 
             promptRepository.findAll().forEach(prompt -> getLog().info("Prompt: %s".formatted(prompt)));
 
-            Optional.of(args).map(ApplicationArguments::getNonOptionArgs).filter(l -> !l.isEmpty()).map(List::getFirst).ifPresent(model -> {
-                try {
-                    generationManager.generate(model);
-                } catch (BluePrinterException | IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
+            List<String> models = args.getNonOptionArgs();
+
+            try {
+                if (models.size() == 1)
+                    getLog().info(generationManager.generate(models.getFirst()).toString());
+                else if (models.size() > 1)
+                    getLog().info(generationManager.generate(models).toString());
+            } catch (BluePrinterException | IOException e) {
+                throw new RuntimeException(e);
+            }
 
             promptRepository.deleteAll();
         };
@@ -0,0 +1,102 @@
+package dev.vinyard.blueprinter.shell.core.daemon;
+
+import dev.vinyard.blueprinter.core.daemon.DaemonClient;
+import dev.vinyard.blueprinter.core.daemon.DaemonRequest;
+import dev.vinyard.blueprinter.core.daemon.DaemonResponse;
+import dev.vinyard.blueprinter.core.daemon.GenerationDaemon;
+import dev.vinyard.blueprinter.core.prompt.PromptProvider;
+import dev.vinyard.blueprinter.core.prompt.PromptSelectorItem;
+import org.springframework.shell.standard.AbstractShellComponent;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * <p>Shell component for the generation daemon.</p>
+ * <p>It allows to start the daemon in the shell, and to query or stop a daemon running in another process.</p>
+ */
+@ShellComponent
+public class DaemonShellComponent extends AbstractShellComponent {
+
+    private final GenerationDaemon generationDaemon;
+
+    private final PromptProvider promptProvider;
+
+    public DaemonShellComponent(GenerationDaemon generationDaemon, PromptProvider promptProvider) {
+        this.generationDaemon = generationDaemon;
+        this.promptProvider = promptProvider;
+    }
+
+    /**
+     * <p>Action sur le daemon de génération.</p>
+     *
+     * <ul>
+     *     <li>Démarrer le daemon : le shell écoute sur la socket du daemon et exécute les générations envoyées par le plugin maven, tant qu'il est ouvert.</li>
+     *     <li>Arrêter le daemon : le daemon du shell, ou à défaut celui qui écoute sur la socket, est arrêté.</li>
+     *     <li>Statut du daemon : le répertoire servi par le daemon qui écoute sur la socket est affiché.</li>
+     * </ul>
+     */
+    @ShellMethod(key = "daemon", value = "Action on generation daemon", group = "Daemon")
+    public void daemon() {
+        List<PromptSelectorItem<Runnable>> items = List.of(
+                PromptSelectorItem.of("Start daemon", this::startDaemon),
+                PromptSelectorItem.of("Stop daemon", this::stopDaemon),
+                PromptSelectorItem.of("Daemon status", this::daemonStatus)
+        );
+
+        this.promptProvider.singleSelect(items, "Select action").run();
+    }
+
+    /**
+     * <p>Démarre le daemon de génération dans le shell.</p>
+     *
+     * @throws UncheckedIOException si un daemon écoute déjà sur la socket, ou si la socket ne peut pas être ouverte.
+     */
+    public void startDaemon() {
+        try {
+            generationDaemon.start();
+            println(String.format("Daemon listening on %s", generationDaemon.getSocketFile()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * <p>Arrête le daemon du shell, ou à défaut le daemon qui écoute sur la socket.</p>
+     */
+    public void stopDaemon() {
+        if (generationDaemon.isRunning()) {
+            generationDaemon.close();
+            println("Daemon stopped");
+            return;
+        }
+
+        println(send(DaemonRequest.stop()));
+    }
+
+    /**
+     * <p>Affiche le statut du daemon qui écoute sur la socket.</p>
+     */
+    public void daemonStatus() {
+        println(send(DaemonRequest.ping()));
+    }
+
+    private String send(DaemonRequest request) {
+        try {
+            return DaemonClient.send(generationDaemon.getSocketFile(), request).map(DaemonResponse::message)
+                    .orElseGet(() -> String.format("No daemon listening on %s", generationDaemon.getSocketFile()));
+        } catch (IOException e) {
+            return String.format("Daemon on %s does not answer : %s", generationDaemon.getSocketFile(), e.getMessage());
+        }
+    }
+
+    private void println(String message) {
+        PrintWriter writer = getTerminal().writer();
+        writer.println(message);
+        writer.flush();
+    }
+}
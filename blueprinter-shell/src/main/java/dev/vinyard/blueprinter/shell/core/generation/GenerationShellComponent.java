@@ -1,16 +1,32 @@
 package dev.vinyard.blueprinter.shell.core.generation;
 
 import dev.vinyard.blueprinter.core.exception.BluePrinterException;
+import dev.vinyard.blueprinter.core.generation.GenerationListener;
 import dev.vinyard.blueprinter.core.generation.GenerationManager;
+import dev.vinyard.blueprinter.core.generation.GenerationReport;
+import dev.vinyard.blueprinter.core.metrics.GenerationMetrics;
 import dev.vinyard.blueprinter.core.model.ModelManager;
+import dev.vinyard.blueprinter.core.prompt.Prompt;
 import dev.vinyard.blueprinter.core.prompt.PromptProvider;
+import dev.vinyard.blueprinter.core.prompt.PromptRecordReader;
 import dev.vinyard.blueprinter.core.prompt.PromptSelectorItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.shell.standard.AbstractShellComponent;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * <p>Shell component for generation commands.</p>
@@ -25,10 +41,13 @@ public class GenerationShellComponent extends AbstractShellComponent {
 
     private final PromptProvider promptProvider;
 
-    public GenerationShellComponent(ModelManager modelManager, GenerationManager generationManager, PromptProvider promptProvider) {
+    private final GenerationMetrics generationMetrics;
+
+    public GenerationShellComponent(ModelManager modelManager, GenerationManager generationManager, PromptProvider promptProvider, GenerationMetrics generationMetrics) {
         this.modelManager = modelManager;
         this.generationManager = generationManager;
         this.promptProvider = promptProvider;
+        this.generationMetrics = generationMetrics;
     }
 
     /**
@@ -40,7 +59,9 @@ public class GenerationShellComponent extends AbstractShellComponent {
      *     <li>Les prompts du modèle sont affichés à l'utilisateur.</li>
      *     <li>Les valeurs des prompts sont récupérées en fonction du type de prompt et ajoutées au context Velocity.</li>
      *     <li>Chaque directive du model est exécutée et génère un fichier à partir du template en fonction du context Velocity.</li>
-     *     <li>Les fichiers générés sont enregistrés dans le fichier de sortie de la directive.</li>
+     *     <li>Les fichiers générés sont enregistrés dans le fichier de sortie de la directive, un fichier dont le contenu ne change pas n'est pas réécrit.</li>
+     *     <li>La progression est affichée après chaque directive, la génération est annulée si la commande est interrompue.</li>
+     *     <li>Le nombre de fichiers écrits, inchangés et ignorés est affiché.</li>
      * </ul>
      *
      * @throws BluePrinterException si une erreur survient lors de la génération.
@@ -51,6 +72,122 @@ public class GenerationShellComponent extends AbstractShellComponent {
         List<PromptSelectorItem<String>> selectorItemList = this.modelManager.findAllModels().stream().map(m -> PromptSelectorItem.of(m, m)).toList();
         String modelName = this.promptProvider.singleSelect(selectorItemList, "Select models to generate from");
 
-        generationManager.generate(modelName);
+        PrintWriter writer = getTerminal().writer();
+
+        GenerationListener listener = new GenerationListener() {
+            @Override
+            public void directiveProcessed(String model, String directive, Outcome outcome, int processed, int directives) {
+                synchronized (writer) {
+                    writer.println(String.format("[%d/%d] %s : %s", processed, directives, directive, outcome.name().toLowerCase()));
+                    writer.flush();
+                }
+            }
+        };
+
+        CompletableFuture<GenerationReport> future = generationManager.generateAsync(modelName, listener, command -> Thread.ofVirtual().name("blueprinter-generation").start(command));
+
+        try {
+            writer.println(future.get());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            writer.println("Generation cancelled.");
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case BluePrinterException cause -> throw cause;
+                case IOException cause -> throw cause;
+                case RuntimeException cause -> throw cause;
+                default -> throw new BluePrinterException(e.getCause().getMessage(), e.getCause());
+            }
+        } finally {
+            writer.flush();
+        }
+    }
+
+    /**
+     * <p>Génère plusieurs modèles ensemble.</p>
+     *
+     * <ul>
+     *     <li>L'utilisateur est invité à sélectionner les models parmi la liste de tous les models disponibles.</li>
+     *     <li>Les plugins et l'environnement sont chargés une seule fois pour tous les modèles.</li>
+     *     <li>Les modèles indépendants sont générés en parallèle, un modèle est généré après les modèles dont il dépend (attribut {@code dependsOn}).</li>
+     *     <li>Les prompts sont affichés un modèle après l'autre.</li>
+     *     <li>Les fichiers de tous les modèles sont enregistrés ensemble, un rapport unique est affiché.</li>
+     * </ul>
+     *
+     * @throws BluePrinterException si une erreur survient lors de la génération.
+     * @throws IOException si une erreur survient lors de la lecture ou de l'écriture d'un fichier.
+     */
+    @ShellMethod(key = "generate-models", value = "Generate from several models", group = "Generation")
+    public void generateModels() throws BluePrinterException, IOException {
+        List<PromptSelectorItem<String>> selectorItemList = this.modelManager.findAllModels().stream().map(m -> PromptSelectorItem.of(m, m)).toList();
+        List<String> modelNames = this.promptProvider.multiSelector(selectorItemList, "Select models to generate from");
+
+        GenerationReport report = generationManager.generate(modelNames);
+
+        PrintWriter writer = getTerminal().writer();
+        writer.println(report);
+        writer.flush();
+    }
+
+    /**
+     * <p>Génère une instance d'un modèle pour chaque enregistrement d'un fichier CSV ou JSON lines.</p>
+     *
+     * <ul>
+     *     <li>L'utilisateur est invité à sélectionner un model parmi la liste de tous les models disponibles.</li>
+     *     <li>L'utilisateur est invité à saisir le chemin du fichier d'enregistrements.</li>
+     *     <li>Le modèle, l'environnement et les plugins sont chargés une seule fois.</li>
+     *     <li>Chaque enregistrement fournit les réponses aux prompts d'une instance du modèle.</li>
+     * </ul>
+     *
+     * @throws BluePrinterException si une erreur survient lors de la génération.
+     * @throws IOException si une erreur survient lors de la lecture ou de l'écriture d'un fichier.
+     */
+    @ShellMethod(key = "bulk", value = "Generate a model for each record of a CSV or JSON lines file", group = "Generation")
+    public void bulk() throws BluePrinterException, IOException {
+        List<PromptSelectorItem<String>> selectorItemList = this.modelManager.findAllModels().stream().map(m -> PromptSelectorItem.of(m, m)).toList();
+        String modelName = this.promptProvider.singleSelect(selectorItemList, "Select models to generate from");
+
+        String recordsFile = this.promptProvider.stringInput("Enter records file", null, false);
+
+        if (recordsFile == null) {
+            throw new IllegalArgumentException("Records file cannot be null");
+        }
+
+        try (Stream<List<Prompt>> records = PromptRecordReader.read(new File(recordsFile))) {
+            long count = generationManager.generate(modelName, records);
+
+            PrintWriter writer = getTerminal().writer();
+            writer.println(String.format("%d records generated.", count));
+            writer.flush();
+        }
+    }
+
+    /**
+     * <p>Affiche les métriques des générations depuis le démarrage du shell.</p>
+     *
+     * <ul>
+     *     <li>Pour chaque timer, le nombre de mesures, la durée totale, moyenne et maximale, en millisecondes.</li>
+     *     <li>Pour chaque compteur, le nombre de directives traitées par résultat.</li>
+     *     <li>Les phases sont le chargement du modèle, des plugins et de l'environnement, le setup, les propriétés, les prompts, les directives et la publication des fichiers.</li>
+     * </ul>
+     */
+    @ShellMethod(key = "metrics", value = "Show the metrics of the generations", group = "Generation")
+    public void metrics() {
+        PrintWriter writer = getTerminal().writer();
+
+        generationMetrics.getMeters().stream()
+                .sorted(Comparator.comparing((Meter m) -> m.getId().getName()).thenComparing(m -> m.getId().getTags().toString()))
+                .forEach(meter -> {
+                    String tags = meter.getId().getTags().stream().map(t -> t.getKey() + "=" + t.getValue()).collect(Collectors.joining(", "));
+                    switch (meter) {
+                        case Timer timer -> writer.println(String.format("%s [%s] count=%d total=%.3fms mean=%.3fms max=%.3fms", meter.getId().getName(), tags,
+                                timer.count(), timer.totalTime(TimeUnit.MILLISECONDS), timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS)));
+                        case Counter counter -> writer.println(String.format("%s [%s] count=%.0f", meter.getId().getName(), tags, counter.count()));
+                        default -> { }
+                    }
+                });
+
+        writer.flush();
     }
 }
@@ -3,6 +3,7 @@ package dev.vinyard.blueprinter.shell.core.model;
 import dev.vinyard.blueprinter.core.environment.EnvironmentManager;
 import dev.vinyard.blueprinter.core.exception.BluePrinterException;
 import dev.vinyard.blueprinter.core.model.ModelManager;
+import dev.vinyard.blueprinter.core.model.WorkspaceValidationReport;
 import dev.vinyard.blueprinter.core.prompt.PromptProvider;
 import dev.vinyard.blueprinter.core.prompt.PromptSelectorItem;
 import lombok.extern.slf4j.Slf4j;
@@ -83,15 +84,21 @@ public class ModelShellComponent extends AbstractShellComponent {
     /**
      * Check models
      * <p>Ask the user to select models to check and check them.</p>
-     * <p>Models are checked by :</p>
+     * <p>Models are checked in parallel by :</p>
      * <ul>
      *     <li>Checking if the model directory exist.</li>
      *     <li>Checking if the model configuration file {@code model.xml} exist.</li>
      *     <li>Checking if the model schema file {@code model.xsd} exist.</li>
+     *     <li>Checking if the model configuration file is valid.</li>
      *     <li>Checking if all templates in the model configuration file exists.</li>
+     *     <li>Checking if all prompts are declared in the properties.</li>
+     *     <li>Checking if no output path is written by several directives, as the paths are written in the model : the paths are not evaluated,
+     *     so two different expressions writing the same file are not reported.</li>
      * </ul>
+     * <p>All the problems of all the models are printed.</p>
      *
      * @throws IllegalArgumentException if no model is selected
+     * @throws RuntimeException if a model is invalid, once all the problems are printed
      */
     public void checkModels() {
         List<PromptSelectorItem<String>> items = this.modelManager.findAllModels().stream().map(m -> PromptSelectorItem.of(m, m)).collect(Collectors.toList());
@@ -102,13 +109,27 @@ public class ModelShellComponent extends AbstractShellComponent {
             throw new IllegalArgumentException("No model selected.");
         }
 
-        for (String model : models) {
-            try {
-                this.modelManager.checkModel(model);
-            } catch (BluePrinterException e) {
-                log.error("Model {} is invalid : {}", model, e.getMessage());
-                throw new RuntimeException(e);
-            }
+        this.printReport(this.modelManager.validate(models));
+    }
+
+    /**
+     * Check all models
+     * <p>Check all the models of the workspace in parallel, like {@link #checkModels()} does, and print all their problems.</p>
+     *
+     * @throws RuntimeException if a model is invalid, once all the problems are printed
+     */
+    public void checkAllModels() {
+        this.printReport(this.modelManager.validateAll());
+    }
+
+    private void printReport(WorkspaceValidationReport report) {
+        PrintWriter printWriter = this.getTerminal().writer();
+        printWriter.println(report);
+        printWriter.flush();
+
+        if (!report.isValid()) {
+            log.error("{} problems found in the models.", report.getProblemCount());
+            throw new RuntimeException(new BluePrinterException(String.format("%d problems found in the models.", report.getProblemCount())));
         }
     }
 
@@ -135,6 +156,7 @@ public class ModelShellComponent extends AbstractShellComponent {
      *     <li>Delete model</li>
      *     <li>List models</li>
      *     <li>Check models</li>
+     *     <li>Check all models</li>
      * </ul>
      */
     @ShellMethod(key = "model", value = "Action on model", group = "Model")
@@ -144,7 +166,8 @@ public class ModelShellComponent extends AbstractShellComponent {
                 PromptSelectorItem.of("Create model", this::createModel),
                 PromptSelectorItem.of("Delete model", this::deleteModels),
                 PromptSelectorItem.of("List models", this::listModels),
-                PromptSelectorItem.of("Check models", this::checkModels)
+                PromptSelectorItem.of("Check models", this::checkModels),
+                PromptSelectorItem.of("Check all models", this::checkAllModels)
         );
 
         promptProvider.singleSelect(items, "Select action").run();
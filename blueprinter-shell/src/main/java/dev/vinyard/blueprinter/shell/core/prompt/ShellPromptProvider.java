@@ -3,7 +3,7 @@ package dev.vinyard.blueprinter.shell.core.prompt;
 import dev.vinyard.blueprinter.core.model.entities.*;
 import dev.vinyard.blueprinter.core.prompt.PromptProvider;
 import dev.vinyard.blueprinter.core.prompt.PromptSelectorItem;
-import dev.vinyard.blueprinter.core.utils.VelocityUtils;
+import dev.vinyard.blueprinter.core.template.ExpressionEvaluator;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.velocity.VelocityContext;
 import org.springframework.shell.component.MultiItemSelector;
@@ -22,6 +22,12 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ShellPromptProvider extends AbstractShellComponent implements PromptProvider {
 
+    private final ExpressionEvaluator expressionEvaluator;
+
+    public ShellPromptProvider(ExpressionEvaluator expressionEvaluator) {
+        this.expressionEvaluator = expressionEvaluator;
+    }
+
     private static <T> SelectorItem<T> toSelectorItem(PromptSelectorItem<T> promptSelectorItem) {
         return SelectorItem.of(promptSelectorItem.name(), promptSelectorItem.item(), promptSelectorItem.enabled(), promptSelectorItem.selected());
     }
@@ -32,7 +38,7 @@ public class ShellPromptProvider extends AbstractShellComponent implements Promp
 
     @Override
     public Object prompt(PromptType promptType, VelocityContext velocityContext) {
-        Function<String, String> templated = s -> VelocityUtils.processTemplate(velocityContext, s);
+        Function<String, String> templated = expressionEvaluator.evaluator(velocityContext);
         return switch (promptType) {
             case MultiSelect e ->
                     this.multiSelector(e.getValueList().stream().map(v -> PromptSelectorItem.of(templated.apply(v.getKey()), templated.apply(v.getContent()), v.isEnabled(), v.isSelected())).toList(), e.getValue());
@@ -1,8 +1,12 @@
 package dev.vinyard.blueprinter.autoconfigure;
 
+import dev.vinyard.blueprinter.core.daemon.DaemonConfiguration;
+import dev.vinyard.blueprinter.core.daemon.GenerationDaemon;
 import dev.vinyard.blueprinter.core.environment.EnvironmentConfiguration;
 import dev.vinyard.blueprinter.core.environment.EnvironmentManager;
+import dev.vinyard.blueprinter.core.generation.GenerationConfiguration;
 import dev.vinyard.blueprinter.core.generation.GenerationManager;
+import dev.vinyard.blueprinter.core.metrics.GenerationMetrics;
 import dev.vinyard.blueprinter.core.model.ModelManager;
 import dev.vinyard.blueprinter.core.pluginManager.BpPluginManager;
 import dev.vinyard.blueprinter.core.prompt.DefaultPromptProvider;
@@ -10,17 +14,29 @@ import dev.vinyard.blueprinter.core.prompt.PromptProvider;
 import dev.vinyard.blueprinter.core.prompt.PromptRepository;
 import dev.vinyard.blueprinter.core.support.DefaultUserProperties;
 import dev.vinyard.blueprinter.core.support.UserProperties;
+import dev.vinyard.blueprinter.core.template.ExpressionEvaluator;
+import dev.vinyard.blueprinter.core.template.TemplateCache;
 import dev.vinyard.blueprinter.core.template.TemplateManager;
+import dev.vinyard.blueprinter.core.workspace.WorkspaceIndex;
+import dev.vinyard.blueprinter.core.template.TemplateResourceLoader;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.data.map.repository.config.EnableMapRepositories;
 
+import java.nio.file.Path;
+import java.util.Optional;
+
 /**
  * Auto configuration for BluePrinter.
  */
-@AutoConfiguration
+@AutoConfiguration(afterName = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 @EnableMapRepositories(basePackageClasses = PromptRepository.class)
 public class BluePrinterAutoConfiguration {
 
@@ -28,12 +44,13 @@ public class BluePrinterAutoConfiguration {
      * Create a new prompt provider with the prompt repository if no other prompt provider is defined.
      * You can use the prompt repository to save and retrieve prompts.
      * @param promptRepository The prompt repository
+     * @param expressionEvaluator expression evaluator used to evaluate the labels and default values of the prompts
      * @return Prompt provider
      */
     @Bean
     @ConditionalOnMissingBean(PromptProvider.class)
-    public PromptProvider promptProvider(PromptRepository promptRepository) {
-        return new DefaultPromptProvider(promptRepository);
+    public PromptProvider promptProvider(PromptRepository promptRepository, ExpressionEvaluator expressionEvaluator) {
+        return new DefaultPromptProvider(promptRepository, expressionEvaluator);
     }
 
     /**
@@ -86,42 +103,166 @@ public class BluePrinterAutoConfiguration {
      * @param bpPluginManager plugin manager used to initialize the plugins for the velocity context
      * @param environmentManager environment manager used to find the home directory
      * @param promptProvider prompt provider used to get the prompts for the model
+     * @param expressionEvaluator expression evaluator used to evaluate the properties and the directives paths
+     * @param templateCache template cache used to get the compiled templates of the directives
+     * @param generationConfiguration generation configuration used to render the directives
+     * @param generationMetrics metrics used to time the phases of the generations and the directives
      * @return Generation manager
      * @see GenerationManager#generate(String)
      */
     @Bean
-    public GenerationManager generationManager(ModelManager modelManager, BpPluginManager bpPluginManager, EnvironmentManager environmentManager, PromptProvider promptProvider) {
-        return new GenerationManager(modelManager, bpPluginManager, environmentManager, promptProvider);
+    public GenerationManager generationManager(ModelManager modelManager, BpPluginManager bpPluginManager, EnvironmentManager environmentManager, PromptProvider promptProvider, ExpressionEvaluator expressionEvaluator, TemplateCache templateCache, GenerationConfiguration generationConfiguration, GenerationMetrics generationMetrics) {
+        return new GenerationManager(modelManager, bpPluginManager, environmentManager, promptProvider, expressionEvaluator, templateCache, generationConfiguration, generationMetrics);
+    }
+
+    /**
+     * Create a new daemon configuration for the generationDaemon. The configuration is initialized with the daemon mode and socket from the environment properties.
+     * @param environmentProperties The environment properties
+     * @return Daemon configuration initialized from the environment properties
+     */
+    @Bean
+    public DaemonConfiguration daemonConfiguration(EnvironmentProperties environmentProperties) {
+        Path socketFile = Optional.ofNullable(environmentProperties.getDaemonSocket()).map(Path::of).orElseGet(DaemonConfiguration::defaultSocketFile);
+        return new DaemonConfiguration(environmentProperties.isDaemonEnabled(), socketFile);
+    }
+
+    /**
+     * Create a new generation daemon, started with the application if the daemon mode is enabled.
+     * @param generationManager generation manager used to execute the generation requests
+     * @param environmentManager environment manager used to check the home directory of the requests
+     * @param daemonConfiguration daemon configuration holding the socket of the daemon
+     * @return Generation daemon
+     * @see dev.vinyard.blueprinter.core.daemon.DaemonClient
+     */
+    @Bean
+    public GenerationDaemon generationDaemon(GenerationManager generationManager, EnvironmentManager environmentManager, DaemonConfiguration daemonConfiguration) {
+        return new GenerationDaemon(generationManager, environmentManager, daemonConfiguration);
+    }
+
+    /**
+     * Create a new generation configuration for the generationManager. The configuration is initialized with the generation, bulk generation and model generation parallelism, the write modes and the template analysis from the environment properties.
+     * @param environmentProperties The environment properties
+     * @return Generation configuration initialized from the environment properties
+     */
+    @Bean
+    public GenerationConfiguration generationConfiguration(EnvironmentProperties environmentProperties) {
+        return new GenerationConfiguration(environmentProperties.getGenerationParallelism(), environmentProperties.getBulkGenerationParallelism(), environmentProperties.getModelGenerationParallelism(), environmentProperties.isIncrementalGeneration(), environmentProperties.isWriteOnlyIfChanged(), environmentProperties.isTransactionalGeneration(), environmentProperties.isTemplateAnalysis());
     }
 
     /**
      * Create a new model manager with the environment manager and template manager.
      * @param environmentManager environment manager used to find the model directory
      * @param templateManager template manager used to find the templates linked to the model
+     * @param expressionEvaluator expression evaluator used to evaluate the environment properties
+     * @param generationMetrics metrics used to time the loading of the models
+     * @param workspaceIndex workspace index used to list the models
+     * @param environmentProperties environment properties holding the size above which the model configuration files are streamed
      * @return Model manager
      */
     @Bean
-    public ModelManager modelManager(EnvironmentManager environmentManager, TemplateManager templateManager) {
-        return new ModelManager(environmentManager, templateManager);
+    public ModelManager modelManager(EnvironmentManager environmentManager, TemplateManager templateManager, ExpressionEvaluator expressionEvaluator, GenerationMetrics generationMetrics, WorkspaceIndex workspaceIndex, EnvironmentProperties environmentProperties) {
+        return new ModelManager(environmentManager, templateManager, expressionEvaluator, generationMetrics, workspaceIndex, environmentProperties.getStreamingModelThreshold());
+    }
+
+    /**
+     * Create the metrics of the generations, registered in the meter registry of the application if there is one, like the one of Spring Boot actuator.
+     * Otherwise, the metrics are kept in a private in memory registry.
+     * @param meterRegistry meter registry of the application
+     * @return Generation metrics
+     */
+    @Bean
+    @ConditionalOnMissingBean(GenerationMetrics.class)
+    public GenerationMetrics generationMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return Optional.ofNullable(meterRegistry.getIfAvailable()).map(GenerationMetrics::new).orElseGet(GenerationMetrics::new);
+    }
+
+    /**
+     * Create a new resource loader resolving the velocity resources in the template directory of the workspace.
+     * @param environmentManager environment manager used to find the template directory
+     * @return Template resource loader
+     */
+    @Bean
+    public TemplateResourceLoader templateResourceLoader(EnvironmentManager environmentManager) {
+        return new TemplateResourceLoader(environmentManager);
+    }
+
+    /**
+     * Create the velocity engine shared by all the generations.
+     * <p>The engine loads its resources from the template directory and keeps them in its resource cache.</p>
+     * <p>The engine is initialized once, so its parser pool and introspection cache stay warm for the whole process.</p>
+     * <p>The engine is not replaceable : the template cache and the expression evaluator use the runtime it registers the template resource loader in.</p>
+     * @param templateResourceLoader resource loader used to find the templates
+     * @param environmentProperties The environment properties
+     * @return Velocity engine
+     */
+    @Bean
+    public VelocityEngine velocityEngine(TemplateResourceLoader templateResourceLoader, EnvironmentProperties environmentProperties) {
+        VelocityEngine velocityEngine = new VelocityEngine();
+        velocityEngine.setProperty(RuntimeConstants.RESOURCE_LOADERS, "template");
+        velocityEngine.setProperty("resource.loader.template." + RuntimeConstants.RESOURCE_LOADER_INSTANCE, templateResourceLoader);
+        velocityEngine.setProperty("resource.loader.template." + RuntimeConstants.RESOURCE_LOADER_CACHE, true);
+        velocityEngine.setProperty("resource.loader.template." + RuntimeConstants.RESOURCE_LOADER_CHECK_INTERVAL, environmentProperties.getTemplateModificationCheckInterval());
+        velocityEngine.setProperty(RuntimeConstants.RESOURCE_MANAGER_DEFAULTCACHE_SIZE, environmentProperties.getTemplateCacheSize());
+        velocityEngine.setProperty(RuntimeConstants.PARSER_POOL_SIZE, Math.max(RuntimeConstants.NUMBER_OF_PARSERS, 2 * Runtime.getRuntime().availableProcessors()));
+        velocityEngine.init();
+        return velocityEngine;
+    }
+
+    /**
+     * Create a new cache of the compiled templates, sharing the runtime and the resource loader of the velocity engine.
+     * <p>The cache depends on the velocity engine, which must be initialized, and the resource loader registered in its runtime, before the cache is created.</p>
+     * @param templateResourceLoader resource loader registered in the velocity engine
+     * @param environmentProperties The environment properties
+     * @return Template cache
+     */
+    @Bean
+    @DependsOn("velocityEngine")
+    public TemplateCache templateCache(TemplateResourceLoader templateResourceLoader, EnvironmentProperties environmentProperties) {
+        return new TemplateCache(templateResourceLoader, environmentProperties.getTemplateCacheSize());
+    }
+
+    /**
+     * Create a new evaluator of the templated strings of the models, sharing the runtime of the velocity engine.
+     * <p>The evaluator depends on the velocity engine, which must be initialized, and the resource loader registered in its runtime, before the evaluator is created.</p>
+     * @param templateResourceLoader resource loader registered in the velocity engine
+     * @param environmentProperties The environment properties
+     * @return Expression evaluator
+     */
+    @Bean
+    @DependsOn("velocityEngine")
+    public ExpressionEvaluator expressionEvaluator(TemplateResourceLoader templateResourceLoader, EnvironmentProperties environmentProperties) {
+        return new ExpressionEvaluator(templateResourceLoader, environmentProperties.getExpressionCacheSize());
+    }
+
+    /**
+     * Create a new workspace index with the environment manager.
+     * @param environmentManager environment manager used to find the workspace of the home directory
+     * @return Workspace index
+     */
+    @Bean
+    public WorkspaceIndex workspaceIndex(EnvironmentManager environmentManager) {
+        return new WorkspaceIndex(environmentManager);
     }
 
     /**
-     * Create a new template manager with the environment manager.
+     * Create a new template manager with the environment manager and the workspace index.
      * @param environmentManager environment manager used to find the template directory
+     * @param workspaceIndex workspace index used to list the templates
      * @return Template manager
      */
     @Bean
-    public TemplateManager templateManager(EnvironmentManager environmentManager) {
-        return new TemplateManager(environmentManager);
+    public TemplateManager templateManager(EnvironmentManager environmentManager, WorkspaceIndex workspaceIndex) {
+        return new TemplateManager(environmentManager, workspaceIndex);
     }
 
     /**
      * Create a new blueprinter plugin manager for the velocity context.
      * @param environmentManager environment manager used to find the plugin directory
+     * @param generationMetrics metrics used to time the loading of the plugins
      * @return Blueprinter plugin manager
      */
     @Bean
-    public BpPluginManager bpPluginManager(EnvironmentManager environmentManager) {
-        return new BpPluginManager(environmentManager);
+    public BpPluginManager bpPluginManager(EnvironmentManager environmentManager, GenerationMetrics generationMetrics) {
+        return new BpPluginManager(environmentManager, generationMetrics);
     }
 }
@@ -25,6 +25,72 @@ public class EnvironmentProperties {
      */
     private String templateDirectory = "templates";
 
+    /**
+     * Maximum number of compiled templates kept in memory
+     */
+    private int templateCacheSize = 256;
+
+    /**
+     * Maximum number of compiled expressions, like the property values and prompt labels of the models, kept in memory
+     */
+    private int expressionCacheSize = 4096;
+
+    /**
+     * Interval in seconds between two modification checks of a template loaded by the velocity engine
+     */
+    private long templateModificationCheckInterval = 2;
+
+    /**
+     * Number of directives rendered at the same time, 1 renders the directives one after another
+     */
+    private int generationParallelism = 1;
+
+    /**
+     * Number of records generated at the same time by a bulk generation, the directives of each record are then rendered one after another when it is greater than 1
+     */
+    private int bulkGenerationParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of models generated at the same time when several models are generated together, models depending on each other are generated one after another
+     */
+    private int modelGenerationParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Skip the directives whose template and inputs did not change since their file was generated
+     */
+    private boolean incrementalGeneration = true;
+
+    /**
+     * Only write the generated files whose content changes, unchanged files keep their modification time
+     */
+    private boolean writeOnlyIfChanged = true;
+
+    /**
+     * Publish the generated files only once all the directives succeeded, the files are left untouched if a directive fails
+     */
+    private boolean transactionalGeneration = false;
+
+    /**
+     * Only evaluate the model properties and resolve the prompts read by the templates and the output paths of the directives, found by static analysis of the templates.
+     * Only enable it when no tool of the context reads the variables by their name, the analysis cannot see these reads
+     */
+    private boolean templateAnalysis = false;
+
+    /**
+     * Start the generation daemon with the application, to serve the generations of the maven plugin and of the other shells
+     */
+    private boolean daemonEnabled = false;
+
+    /**
+     * Unix domain socket of the generation daemon, defaults to daemon.sock in a directory of the current user only, in $XDG_RUNTIME_DIR or in the temporary directory
+     */
+    private String daemonSocket;
+
+    /**
+     * Size in bytes above which a model configuration file is streamed, its directives and prompt values are read from the file when they are used instead of being kept in memory
+     */
+    private long streamingModelThreshold = 8 * 1024 * 1024;
+
     public String getWorkspaceDirectory() {
         return workspaceDirectory;
     }
@@ -56,4 +122,108 @@ public class EnvironmentProperties {
     public void setTemplateDirectory(String templateDirectory) {
         this.templateDirectory = templateDirectory;
     }
+
+    public int getTemplateCacheSize() {
+        return templateCacheSize;
+    }
+
+    public void setTemplateCacheSize(int templateCacheSize) {
+        this.templateCacheSize = templateCacheSize;
+    }
+
+    public int getExpressionCacheSize() {
+        return expressionCacheSize;
+    }
+
+    public void setExpressionCacheSize(int expressionCacheSize) {
+        this.expressionCacheSize = expressionCacheSize;
+    }
+
+    public long getTemplateModificationCheckInterval() {
+        return templateModificationCheckInterval;
+    }
+
+    public void setTemplateModificationCheckInterval(long templateModificationCheckInterval) {
+        this.templateModificationCheckInterval = templateModificationCheckInterval;
+    }
+
+    public int getGenerationParallelism() {
+        return generationParallelism;
+    }
+
+    public void setGenerationParallelism(int generationParallelism) {
+        this.generationParallelism = generationParallelism;
+    }
+
+    public int getBulkGenerationParallelism() {
+        return bulkGenerationParallelism;
+    }
+
+    public void setBulkGenerationParallelism(int bulkGenerationParallelism) {
+        this.bulkGenerationParallelism = bulkGenerationParallelism;
+    }
+
+    public int getModelGenerationParallelism() {
+        return modelGenerationParallelism;
+    }
+
+    public void setModelGenerationParallelism(int modelGenerationParallelism) {
+        this.modelGenerationParallelism = modelGenerationParallelism;
+    }
+
+    public boolean isIncrementalGeneration() {
+        return incrementalGeneration;
+    }
+
+    public void setIncrementalGeneration(boolean incrementalGeneration) {
+        this.incrementalGeneration = incrementalGeneration;
+    }
+
+    public boolean isWriteOnlyIfChanged() {
+        return writeOnlyIfChanged;
+    }
+
+    public void setWriteOnlyIfChanged(boolean writeOnlyIfChanged) {
+        this.writeOnlyIfChanged = writeOnlyIfChanged;
+    }
+
+    public boolean isTransactionalGeneration() {
+        return transactionalGeneration;
+    }
+
+    public void setTransactionalGeneration(boolean transactionalGeneration) {
+        this.transactionalGeneration = transactionalGeneration;
+    }
+
+    public boolean isTemplateAnalysis() {
+        return templateAnalysis;
+    }
+
+    public void setTemplateAnalysis(boolean templateAnalysis) {
+        this.templateAnalysis = templateAnalysis;
+    }
+
+    public boolean isDaemonEnabled() {
+        return daemonEnabled;
+    }
+
+    public void setDaemonEnabled(boolean daemonEnabled) {
+        this.daemonEnabled = daemonEnabled;
+    }
+
+    public String getDaemonSocket() {
+        return daemonSocket;
+    }
+
+    public void setDaemonSocket(String daemonSocket) {
+        this.daemonSocket = daemonSocket;
+    }
+
+    public long getStreamingModelThreshold() {
+        return streamingModelThreshold;
+    }
+
+    public void setStreamingModelThreshold(long streamingModelThreshold) {
+        this.streamingModelThreshold = streamingModelThreshold;
+    }
 }
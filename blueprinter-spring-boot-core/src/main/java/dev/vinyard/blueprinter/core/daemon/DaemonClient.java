@@ -0,0 +1,82 @@
+package dev.vinyard.blueprinter.core.daemon;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Client of the {@link GenerationDaemon}.
+ * <p>It does not need an application context, so a caller can try the daemon before paying for the startup of its own context.</p>
+ * <p>The protocol is one JSON line per request and one JSON line per response, a connection carries a single request.</p>
+ */
+public class DaemonClient {
+
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Send a request to the daemon listening on the given socket.
+     *
+     * @param socketFile The socket of the daemon
+     * @param request The request to send
+     * @return The response of the daemon, empty if no daemon is listening on the socket
+     * @throws IOException if the daemon does not answer, or if the socket is owned by another user
+     */
+    public static Optional<DaemonResponse> send(Path socketFile, DaemonRequest request) throws IOException {
+        if (socketFile == null || !Files.exists(socketFile))
+            return Optional.empty();
+
+        // the request carries the prompt answers, it is only sent to a daemon of the current user
+        if (!DaemonConfiguration.isOwnedByCurrentUser(socketFile))
+            throw new IOException(String.format("Socket %s is owned by another user", socketFile));
+
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            try {
+                channel.connect(UnixDomainSocketAddress.of(socketFile));
+            } catch (ConnectException e) {
+                // stale socket file, left by a daemon that did not stop properly
+                return Optional.empty();
+            }
+
+            write(channel, request);
+
+            return Optional.ofNullable(read(channel, DaemonResponse.class));
+        }
+    }
+
+    /**
+     * Check that a daemon is listening on the given socket.
+     *
+     * @param socketFile The socket of the daemon
+     * @return {@code true} if a daemon answered
+     */
+    public static boolean isRunning(Path socketFile) {
+        try {
+            return send(socketFile, DaemonRequest.ping()).map(DaemonResponse::status).filter(DaemonResponse.Status.OK::equals).isPresent();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static void write(SocketChannel channel, Object message) throws IOException {
+        // the channel is closed by the caller, not by the writer
+        Writer writer = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+        writer.write(OBJECT_MAPPER.writeValueAsString(message));
+        writer.write('\n');
+        writer.flush();
+    }
+
+    static <T> T read(SocketChannel channel, Class<T> type) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        return line == null ? null : OBJECT_MAPPER.readValue(line, type);
+    }
+}
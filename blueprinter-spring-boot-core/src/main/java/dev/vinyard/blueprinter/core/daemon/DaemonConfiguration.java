@@ -0,0 +1,81 @@
+package dev.vinyard.blueprinter.core.daemon;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * @param enabled Start the daemon with the application.
+ * @param socketFile Unix domain socket the daemon listens on, and the clients connect to.
+ */
+public record DaemonConfiguration(boolean enabled, Path socketFile) {
+
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    /**
+     * Get the socket of the daemon of the current user, in a directory of the current user only.
+     * <p>The directory is the runtime directory of the user when the platform defines one, {@code $XDG_RUNTIME_DIR/blueprinter},
+     * otherwise {@code blueprinter-{user}} in the temporary directory.</p>
+     *
+     * @return The default socket file
+     */
+    public static Path defaultSocketFile() {
+        String user = Optional.ofNullable(System.getProperty("user.name")).map(u -> u.replaceAll("[^a-zA-Z0-9._-]", "_")).orElse("default");
+
+        Path directory = Optional.ofNullable(System.getenv("XDG_RUNTIME_DIR")).filter(d -> !d.isBlank())
+                .map(d -> Path.of(d, "blueprinter"))
+                .orElseGet(() -> Path.of(System.getProperty("java.io.tmpdir"), "blueprinter-" + user));
+
+        return directory.resolve("daemon.sock");
+    }
+
+    /**
+     * Create the given directory, accessible by the current user only.
+     * <p>An existing directory must be owned by the current user, its permissions are then restricted to its owner.
+     * The permissions are only checked on the platforms with POSIX permissions.</p>
+     *
+     * @param directory The directory
+     * @throws IOException if the directory cannot be created, or if it is owned by another user
+     */
+    static void createPrivateDirectory(Path directory) throws IOException {
+        if (!isPosix(directory)) {
+            Files.createDirectories(directory);
+            return;
+        }
+
+        if (!Files.isDirectory(directory)) {
+            Optional.ofNullable(directory.getParent()).ifPresent(parent -> parent.toFile().mkdirs());
+            Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        }
+
+        if (!isOwnedByCurrentUser(directory))
+            throw new IOException(String.format("Directory %s is owned by another user", directory));
+
+        if (!Files.getPosixFilePermissions(directory).equals(OWNER_ONLY))
+            Files.setPosixFilePermissions(directory, OWNER_ONLY);
+    }
+
+    /**
+     * Check that the given file is owned by the current user.
+     *
+     * @param file The file
+     * @return {@code true} if the current user owns the file, or if the platform does not have POSIX permissions
+     * @throws IOException if the owner of the file cannot be read
+     */
+    static boolean isOwnedByCurrentUser(Path file) throws IOException {
+        if (!isPosix(file))
+            return true;
+
+        return Objects.equals(Files.getOwner(file), FileSystems.getDefault().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name")));
+    }
+
+    private static boolean isPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+}
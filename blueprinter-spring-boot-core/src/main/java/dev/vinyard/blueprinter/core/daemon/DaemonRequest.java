@@ -0,0 +1,61 @@
+package dev.vinyard.blueprinter.core.daemon;
+
+import dev.vinyard.blueprinter.core.prompt.Prompt;
+
+import java.util.*;
+
+/**
+ * Request sent to the {@link GenerationDaemon}.
+ *
+ * @param command The command to execute
+ * @param homeDirectory The absolute home directory the client generates in, a generation is rejected when it is not the home directory of the daemon
+ * @param models The names of the models to generate from, generated together when there are several of them
+ * @param prompts The prompt answers, by prompt key
+ * @param records The absolute path of the records file of a bulk generation, see {@link dev.vinyard.blueprinter.core.prompt.PromptRecordReader}
+ */
+public record DaemonRequest(Command command, String homeDirectory, List<String> models, Map<String, List<String>> prompts, String records) {
+
+    public enum Command {
+        /** Check that the daemon is running */
+        PING,
+        /** Generate one instance of one or several models */
+        GENERATE,
+        /** Generate one instance of a model for each record of a file */
+        BULK,
+        /** Stop the daemon */
+        STOP
+    }
+
+    public DaemonRequest {
+        Objects.requireNonNull(command, "Command cannot be null");
+        models = Optional.ofNullable(models).map(List::copyOf).orElseGet(List::of);
+        prompts = Optional.ofNullable(prompts).map(Map::copyOf).orElseGet(Map::of);
+    }
+
+    public static DaemonRequest ping() {
+        return new DaemonRequest(Command.PING, null, null, null, null);
+    }
+
+    public static DaemonRequest stop() {
+        return new DaemonRequest(Command.STOP, null, null, null, null);
+    }
+
+    public static DaemonRequest generate(String homeDirectory, List<String> models, Map<String, List<String>> prompts) {
+        return new DaemonRequest(Command.GENERATE, homeDirectory, models, prompts, null);
+    }
+
+    public static DaemonRequest bulk(String homeDirectory, String model, String records) {
+        return new DaemonRequest(Command.BULK, homeDirectory, List.of(model), null, records);
+    }
+
+    /**
+     * Get the prompt answers of the request.
+     *
+     * @return The prompt answers
+     */
+    public List<Prompt> answers() {
+        List<Prompt> answers = new ArrayList<>();
+        prompts.forEach((key, values) -> answers.add(new Prompt(key, values)));
+        return answers;
+    }
+}
@@ -0,0 +1,37 @@
+package dev.vinyard.blueprinter.core.daemon;
+
+import dev.vinyard.blueprinter.core.generation.GenerationReport;
+
+/**
+ * Response of the {@link GenerationDaemon} to a {@link DaemonRequest}.
+ *
+ * @param status The status of the request
+ * @param message The report of the generation, or the reason of the failure
+ */
+public record DaemonResponse(Status status, String message) {
+
+    public enum Status {
+        /** The request has been executed */
+        OK,
+        /** The request has been executed and failed */
+        FAILED,
+        /** The request has not been executed, the daemon does not serve the home directory of the client, the client must generate on its own */
+        REJECTED
+    }
+
+    public static DaemonResponse ok(String message) {
+        return new DaemonResponse(Status.OK, message);
+    }
+
+    public static DaemonResponse ok(GenerationReport report) {
+        return ok(report.toString());
+    }
+
+    public static DaemonResponse failed(String message) {
+        return new DaemonResponse(Status.FAILED, message);
+    }
+
+    public static DaemonResponse rejected(String message) {
+        return new DaemonResponse(Status.REJECTED, message);
+    }
+}
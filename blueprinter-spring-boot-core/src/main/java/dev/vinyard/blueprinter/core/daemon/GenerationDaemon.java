@@ -0,0 +1,232 @@
+package dev.vinyard.blueprinter.core.daemon;
+
+import dev.vinyard.blueprinter.core.environment.EnvironmentManager;
+import dev.vinyard.blueprinter.core.exception.BluePrinterException;
+import dev.vinyard.blueprinter.core.generation.GenerationManager;
+import dev.vinyard.blueprinter.core.prompt.Prompt;
+import dev.vinyard.blueprinter.core.prompt.PromptRecordReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Generation daemon, keeping a warm engine for the clients that would otherwise start their own application context, like the maven plugin.
+ * <p>The daemon listens on a Unix domain socket, see {@link DaemonConfiguration#socketFile()}, and executes the {@link DaemonRequest} of the {@link DaemonClient}.</p>
+ * <ul>
+ *     <li>The models, the environment, the plugins and the templates stay cached between the requests.</li>
+ *     <li>A request without home directory, or for another home directory than the one of the daemon, is rejected, the client generates on its own.</li>
+ *     <li>The socket is only accessible by the user running the daemon, the default socket is in a directory of this user only, see {@link DaemonConfiguration#defaultSocketFile()}.</li>
+ *     <li>The generations are executed one after another, as they share the generation manifest of the home directory.</li>
+ * </ul>
+ * <p>The daemon keeps the process alive until it is stopped, by {@link #close()} or by a {@link DaemonRequest.Command#STOP} request.</p>
+ */
+@Slf4j
+public class GenerationDaemon implements Closeable {
+
+    private final GenerationManager generationManager;
+
+    private final EnvironmentManager environmentManager;
+
+    private final DaemonConfiguration daemonConfiguration;
+
+    private final ReentrantLock generationLock = new ReentrantLock();
+
+    private ServerSocketChannel server;
+
+    public GenerationDaemon(GenerationManager generationManager, EnvironmentManager environmentManager, DaemonConfiguration daemonConfiguration) {
+        this.generationManager = generationManager;
+        this.environmentManager = environmentManager;
+        this.daemonConfiguration = daemonConfiguration;
+    }
+
+    /**
+     * Start the daemon with the application if it is enabled, see {@link DaemonConfiguration#enabled()}.
+     *
+     * @throws IOException if the socket cannot be bound
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        if (daemonConfiguration.enabled())
+            this.start();
+    }
+
+    /**
+     * Start listening on the socket of the daemon.
+     * <p>A socket file left by a daemon that did not stop properly is replaced.</p>
+     *
+     * @throws IOException if another daemon already listens on the socket, if the directory of the default socket is owned by another user, or if the socket cannot be bound
+     */
+    public synchronized void start() throws IOException {
+        if (this.isRunning())
+            return;
+
+        Path socketFile = getSocketFile();
+
+        if (DaemonClient.isRunning(socketFile))
+            throw new IOException(String.format("A daemon is already listening on %s", socketFile));
+
+        if (socketFile.equals(DaemonConfiguration.defaultSocketFile()))
+            DaemonConfiguration.createPrivateDirectory(socketFile.getParent());
+        else
+            Optional.ofNullable(socketFile.getParent()).ifPresent(parent -> parent.toFile().mkdirs());
+
+        Files.deleteIfExists(socketFile);
+
+        ServerSocketChannel serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            serverChannel.bind(UnixDomainSocketAddress.of(socketFile));
+            if (socketFile.getFileSystem().supportedFileAttributeViews().contains("posix"))
+                Files.setPosixFilePermissions(socketFile, PosixFilePermissions.fromString("rw-------"));
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+
+        this.server = serverChannel;
+
+        Thread.ofPlatform().name("blueprinter-daemon").start(() -> this.accept(serverChannel));
+
+        log.info("Generation daemon listening on {}", socketFile);
+    }
+
+    public synchronized boolean isRunning() {
+        return server != null && server.isOpen();
+    }
+
+    public Path getSocketFile() {
+        return daemonConfiguration.socketFile();
+    }
+
+    private void accept(ServerSocketChannel serverChannel) {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                Thread.ofVirtual().name("blueprinter-daemon-request").start(() -> this.handle(channel));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.error("Generation daemon cannot accept connections : {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        DaemonRequest request = null;
+
+        try (channel) {
+            request = DaemonClient.read(channel, DaemonRequest.class);
+
+            if (request == null)
+                return;
+
+            DaemonClient.write(channel, this.execute(request));
+        } catch (IOException e) {
+            log.warn("Generation daemon cannot answer the request : {}", e.getMessage());
+        }
+
+        if (request != null && request.command() == DaemonRequest.Command.STOP)
+            this.close();
+    }
+
+    /**
+     * Execute the given request.
+     *
+     * @param request The request
+     * @return The response to send to the client
+     */
+    DaemonResponse execute(DaemonRequest request) {
+        log.info("Generation daemon request : {} {}", request.command(), String.join(" ", request.models()));
+
+        return switch (request.command()) {
+            case PING -> DaemonResponse.ok(String.format("Daemon running in %s", environmentManager.getHomeDirectory()));
+            case STOP -> DaemonResponse.ok("Daemon stopped");
+            case GENERATE, BULK -> {
+                if (request.homeDirectory() == null)
+                    yield DaemonResponse.rejected("Home directory of the request is missing");
+
+                if (!this.servesHomeDirectory(request.homeDirectory()))
+                    yield DaemonResponse.rejected(String.format("Daemon serves %s, not %s", environmentManager.getHomeDirectory(), request.homeDirectory()));
+
+                if (request.models().isEmpty())
+                    yield DaemonResponse.failed("Model cannot be null");
+
+                generationLock.lock();
+                try {
+                    yield request.command() == DaemonRequest.Command.GENERATE ? this.generate(request) : this.bulk(request);
+                } catch (BluePrinterException | IOException | RuntimeException e) {
+                    log.error("Generation daemon request failed : {}", e.getMessage());
+                    yield DaemonResponse.failed(e.getMessage());
+                } finally {
+                    generationLock.unlock();
+                }
+            }
+        };
+    }
+
+    private DaemonResponse generate(DaemonRequest request) throws BluePrinterException, IOException {
+        if (request.models().size() == 1)
+            return DaemonResponse.ok(generationManager.generate(request.models().getFirst(), request.answers()));
+
+        return DaemonResponse.ok(generationManager.generate(request.models(), request.answers()));
+    }
+
+    private DaemonResponse bulk(DaemonRequest request) throws BluePrinterException, IOException {
+        if (request.records() == null)
+            return DaemonResponse.failed("Records file cannot be null");
+
+        try (Stream<List<Prompt>> records = PromptRecordReader.read(new File(request.records()))) {
+            return DaemonResponse.ok(String.format("%d records generated.", generationManager.generate(request.models().getFirst(), records)));
+        }
+    }
+
+    private boolean servesHomeDirectory(String homeDirectory) {
+        File home = environmentManager.getHomeDirectory();
+
+        if (home == null || homeDirectory == null)
+            return false;
+
+        try {
+            return Objects.equals(new File(homeDirectory).getCanonicalFile(), home.getCanonicalFile());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stop listening and delete the socket file.
+     */
+    @Override
+    @PreDestroy
+    public synchronized void close() {
+        if (server == null)
+            return;
+
+        try {
+            server.close();
+            Files.deleteIfExists(getSocketFile());
+            log.info("Generation daemon stopped.");
+        } catch (IOException e) {
+            log.warn("Generation daemon cannot be stopped properly : {}", e.getMessage());
+        } finally {
+            server = null;
+        }
+    }
+}
@@ -2,21 +2,28 @@ package dev.vinyard.blueprinter.core.environment;
 
 import dev.vinyard.blueprinter.core.environment.entities.Environment;
 import dev.vinyard.blueprinter.core.exception.BluePrinterException;
+import dev.vinyard.blueprinter.core.generation.GenerationManifest;
 import dev.vinyard.blueprinter.core.support.UserProperties;
+import dev.vinyard.blueprinter.core.support.WatchedFileCache;
+import dev.vinyard.blueprinter.core.utils.CacheStatistics;
 import dev.vinyard.blueprinter.core.utils.DirectoryUtils;
 import dev.vinyard.blueprinter.core.utils.FileUtils;
+import dev.vinyard.blueprinter.core.workspace.WorkspaceIndex;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.system.ApplicationHome;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Optional;
 
 /**
  * Manager for the environment.
  * <p>Handle the initialization of the environment, the loading of the configuration file and the management of the home directory.</p>
+ * <p>The parsed configuration file and its resolved properties are cached until the file changes, see {@link WatchedFileCache} and {@link ResolvedEnvironment}.</p>
  */
 @Slf4j
 public class EnvironmentManager {
@@ -33,6 +40,10 @@ public class EnvironmentManager {
 
     private final UserProperties userProperties;
 
+    private final WatchedFileCache<Environment> environmentCache;
+
+    private volatile ResolvedEnvironment resolvedEnvironment;
+
     @Getter
     private File homeDirectory;
 
@@ -40,6 +51,21 @@ public class EnvironmentManager {
         this.environmentConfiguration = environmentConfiguration;
         this.userProperties = userProperties;
         this.home = new ApplicationHome(EnvironmentManager.class);
+        this.environmentCache = new WatchedFileCache<>("environment", xmlFile -> FileUtils.loadConfigurationFile(xmlFile, Environment.class, FILE_LOCATION + SCHEMA_FILE));
+    }
+
+    /**
+     * Stop watching the environment configuration file.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        this.environmentCache.close();
+    }
+
+    public CacheStatistics getEnvironmentCacheStatistics() {
+        return this.environmentCache.getStatistics();
     }
 
     /**
@@ -131,6 +157,14 @@ public class EnvironmentManager {
         return Optional.ofNullable(this.getWorkspaceDirectory()).filter(File::exists).filter(File::isDirectory).isPresent();
     }
 
+    public File getGenerationManifestFile() {
+        return new File(getWorkspaceDirectory(), GenerationManifest.MANIFEST_FILE);
+    }
+
+    public File getWorkspaceIndexFile() {
+        return new File(getWorkspaceDirectory(), WorkspaceIndex.INDEX_FILE);
+    }
+
     public File getModelDirectory() {
         return new File(getWorkspaceDirectory(), environmentConfiguration.modelDirectory());
     }
@@ -209,7 +243,26 @@ public class EnvironmentManager {
     }
 
     public Environment loadConfigurationFile() throws BluePrinterException {
-        return FileUtils.loadConfigurationFile(this.getConfigurationFile(), Environment.class, FILE_LOCATION + SCHEMA_FILE);
+        return this.environmentCache.get(this.getConfigurationFile());
+    }
+
+    /**
+     * Get the properties of the environment, resolved once for all the generations.
+     * <p>The properties are resolved again only when the configuration file changes.</p>
+     *
+     * @return The resolved environment
+     * @throws BluePrinterException if the configuration file cannot be loaded, or if its properties reference each other in a cycle
+     */
+    public ResolvedEnvironment getResolvedEnvironment() throws BluePrinterException {
+        Environment environment = loadConfigurationFile();
+
+        ResolvedEnvironment resolved = this.resolvedEnvironment;
+        if (resolved == null || resolved.getEnvironment() != environment) {
+            resolved = ResolvedEnvironment.resolve(environment);
+            this.resolvedEnvironment = resolved;
+        }
+
+        return resolved;
     }
 
     public String getJarDirectoryLocation() {
@@ -0,0 +1,161 @@
+package dev.vinyard.blueprinter.core.environment;
+
+import dev.vinyard.blueprinter.core.environment.entities.Environment;
+import dev.vinyard.blueprinter.core.environment.entities.Properties;
+import dev.vinyard.blueprinter.core.environment.entities.Property;
+import dev.vinyard.blueprinter.core.exception.BluePrinterException;
+import dev.vinyard.blueprinter.core.template.ExpressionEvaluator;
+import dev.vinyard.blueprinter.core.template.TemplateExpression;
+import dev.vinyard.blueprinter.core.utils.VelocityUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.context.Context;
+
+import java.util.*;
+
+/**
+ * Environment properties resolved once for all the generations.
+ * <p>The properties are split in two groups :</p>
+ * <ul>
+ *     <li>Static properties : literal values, and values only referencing other static properties. They are resolved once, when the environment is loaded.
+ *     References between properties are memoized and do not depend on the declaration order, properties referencing each other in a cycle are rejected.</li>
+ *     <li>Dynamic properties : values using velocity directives, tools or plugins. They are rendered on each generation, in declaration order.</li>
+ * </ul>
+ * <p>Static properties are held by a read only layer of velocity context, built once and shared by the generations instead of copying the properties in each of them.</p>
+ */
+@Slf4j
+public class ResolvedEnvironment {
+
+    @Getter
+    private final Environment environment;
+
+    private final Map<String, String> staticProperties;
+
+    private final List<Property> dynamicProperties;
+
+    private volatile Layer layer;
+
+    private ResolvedEnvironment(Environment environment, Map<String, String> staticProperties, List<Property> dynamicProperties) {
+        this.environment = environment;
+        this.staticProperties = Collections.unmodifiableMap(staticProperties);
+        this.dynamicProperties = List.copyOf(dynamicProperties);
+    }
+
+    /**
+     * Resolve the static properties of the given environment.
+     *
+     * @param environment The environment to resolve
+     * @return The resolved environment
+     * @throws BluePrinterException if properties reference each other in a cycle
+     */
+    public static ResolvedEnvironment resolve(Environment environment) throws BluePrinterException {
+        Map<String, Property> properties = new LinkedHashMap<>();
+        Optional.ofNullable(environment).map(Environment::getProperties).map(Properties::getPropertyList).orElseGet(Collections::emptyList)
+                .forEach(p -> properties.put(p.getKey(), p));
+
+        Map<String, TemplateExpression> expressions = new HashMap<>();
+        properties.forEach((key, property) -> expressions.put(key, TemplateExpression.of(property.getValue())));
+
+        Map<String, Optional<String>> resolved = new HashMap<>();
+        for (String key : properties.keySet())
+            resolve(key, expressions, resolved, new LinkedHashSet<>());
+
+        Map<String, String> staticProperties = new LinkedHashMap<>();
+        List<Property> dynamicProperties = new ArrayList<>();
+        properties.forEach((key, property) -> resolved.get(key).ifPresentOrElse(v -> staticProperties.put(key, v), () -> dynamicProperties.add(property)));
+
+        log.debug("Environment resolved : {} static properties, {} dynamic properties.", staticProperties.size(), dynamicProperties.size());
+
+        return new ResolvedEnvironment(environment, staticProperties, dynamicProperties);
+    }
+
+    /**
+     * Resolve the static value of a property, memoized in the resolved map.
+     *
+     * @return The static value, empty if the property is dynamic
+     */
+    private static Optional<String> resolve(String key, Map<String, TemplateExpression> expressions, Map<String, Optional<String>> resolved, LinkedHashSet<String> resolving) throws BluePrinterException {
+        Optional<String> value = resolved.get(key);
+        if (value != null)
+            return value;
+
+        if (!resolving.add(key))
+            throw new BluePrinterException(String.format("Environment properties reference each other : %s -> %s", String.join(" -> ", resolving), key));
+
+        TemplateExpression expression = expressions.get(key);
+        value = switch (expression.kind()) {
+            case LITERAL -> Optional.ofNullable(expression.source());
+            case VELOCITY -> Optional.empty();
+            case REFERENCES -> {
+                Map<String, String> values = new HashMap<>();
+                boolean isStatic = true;
+                for (String reference : expression.references()) {
+                    Optional<String> referenced = expressions.containsKey(reference) ? resolve(reference, expressions, resolved, resolving) : Optional.empty();
+                    if (referenced.isEmpty()) {
+                        isStatic = false;
+                        break;
+                    }
+                    values.put(reference, referenced.get());
+                }
+                yield isStatic ? Optional.of(expression.substitute(values::get)) : Optional.empty();
+            }
+        };
+
+        resolving.remove(key);
+        resolved.put(key, value);
+        return value;
+    }
+
+    /**
+     * Get the read only layer of the static properties, chained to the given inner context.
+     * <p>The layer is built once, and again only when the inner context changes.</p>
+     *
+     * @param innerContext The context the layer is chained to, like the layer of the plugins
+     * @return The read only layer of the static properties
+     * @see VelocityUtils#freeze(Map, Context)
+     */
+    public VelocityContext getContext(Context innerContext) {
+        Layer current = this.layer;
+        if (current == null || current.innerContext() != innerContext) {
+            current = new Layer(innerContext, VelocityUtils.freeze(new HashMap<>(staticProperties), innerContext));
+            this.layer = current;
+        }
+        return current.context();
+    }
+
+    /**
+     * Render the dynamic properties with velocity and put them on the given context.
+     *
+     * @param expressionEvaluator The evaluator used to render the properties
+     * @param velocityContext The context of the generation, chained to the layer of the static properties, see {@link #getContext(Context)}
+     */
+    public void putDynamicProperties(ExpressionEvaluator expressionEvaluator, VelocityContext velocityContext) {
+        dynamicProperties.forEach(property -> {
+            String value = expressionEvaluator.evaluate(velocityContext, property.getValue());
+            log.debug("Put environment property on velocity context {} : {}", property.getKey(), value);
+            velocityContext.put(property.getKey(), value);
+        });
+    }
+
+    /**
+     * Put all the environment properties on the given context.
+     *
+     * @param expressionEvaluator The evaluator used to render the dynamic properties
+     * @param velocityContext The context to fill
+     */
+    public void putProperties(ExpressionEvaluator expressionEvaluator, VelocityContext velocityContext) {
+        staticProperties.forEach(velocityContext::put);
+        putDynamicProperties(expressionEvaluator, velocityContext);
+    }
+
+    public Map<String, String> getStaticProperties() {
+        return staticProperties;
+    }
+
+    public List<Property> getDynamicProperties() {
+        return dynamicProperties;
+    }
+
+    private record Layer(Context innerContext, VelocityContext context) { }
+}
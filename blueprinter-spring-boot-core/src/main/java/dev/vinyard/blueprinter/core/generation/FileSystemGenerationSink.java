@@ -0,0 +1,54 @@
+package dev.vinyard.blueprinter.core.generation;
+
+import dev.vinyard.blueprinter.core.utils.FileUtils;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Sink writing the generated files in a directory.
+ * <p>Parent directories are created if needed.</p>
+ */
+public class FileSystemGenerationSink implements GenerationSink {
+
+    @Getter
+    private final File directory;
+
+    private final boolean writeOnlyIfChanged;
+
+    /**
+     * @param directory The directory the paths are relative to
+     * @param writeOnlyIfChanged {@code true} to leave untouched the files that already have the generated content
+     */
+    public FileSystemGenerationSink(File directory, boolean writeOnlyIfChanged) {
+        this.directory = directory;
+        this.writeOnlyIfChanged = writeOnlyIfChanged;
+    }
+
+    public boolean isWriteOnlyIfChanged() {
+        return writeOnlyIfChanged;
+    }
+
+    public File getFile(String path) {
+        return new File(directory, path);
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return getFile(path).exists();
+    }
+
+    @Override
+    public boolean write(String path, byte[] content) throws IOException {
+        File file = getFile(path);
+
+        if (writeOnlyIfChanged)
+            return FileUtils.writeIfChanged(file, content);
+
+        org.apache.commons.io.FileUtils.forceMkdirParent(file);
+        Files.write(file.toPath(), content);
+        return true;
+    }
+}
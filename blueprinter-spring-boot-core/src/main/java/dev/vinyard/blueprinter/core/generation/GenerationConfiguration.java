@@ -0,0 +1,26 @@
+package dev.vinyard.blueprinter.core.generation;
+
+/**
+ * @param parallelism Number of directives rendered at the same time. {@code 1} renders the directives one after another.
+ * @param bulkParallelism Number of records generated at the same time by a bulk generation. When it is greater than {@code 1}, the directives of each record are rendered one after another.
+ * @param modelParallelism Number of models generated at the same time when several models are generated together.
+ * @param incremental {@code true} to skip the directives whose template and inputs did not change since their file was generated, see {@link GenerationManifest}.
+ * @param writeOnlyIfChanged {@code true} to only write the files of the home directory whose content changes, so unchanged files keep their modification time.
+ * @param transactional {@code true} to publish the files of the home directory only once all the directives succeeded, see {@link TransactionalGenerationSink}.
+ * @param templateAnalysis {@code true} to only evaluate the properties and resolve the prompts read by the templates of the directives, see {@link ModelDependencies}.
+ */
+public record GenerationConfiguration(int parallelism, int bulkParallelism, int modelParallelism, boolean incremental, boolean writeOnlyIfChanged, boolean transactional, boolean templateAnalysis) {
+
+    public GenerationConfiguration {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Generation parallelism must be at least 1");
+        if (bulkParallelism < 1)
+            throw new IllegalArgumentException("Bulk generation parallelism must be at least 1");
+        if (modelParallelism < 1)
+            throw new IllegalArgumentException("Model generation parallelism must be at least 1");
+    }
+
+    public boolean isParallel() {
+        return parallelism > 1;
+    }
+}
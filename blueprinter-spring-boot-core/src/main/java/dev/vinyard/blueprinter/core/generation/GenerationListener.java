@@ -0,0 +1,46 @@
+package dev.vinyard.blueprinter.core.generation;
+
+/**
+ * Listener of the progress of a generation, see {@link GenerationManager#generateAsync(String, GenerationListener, java.util.concurrent.Executor)}.
+ * <p>The directives may be processed in parallel, so the methods may be called from several threads at the same time.</p>
+ */
+public interface GenerationListener {
+
+    /**
+     * Listener ignoring the progress.
+     */
+    GenerationListener NONE = new GenerationListener() { };
+
+    /**
+     * Outcome of a processed directive.
+     */
+    enum Outcome {
+        /** The file has been created or its content has changed */
+        WRITTEN,
+        /** The file has been rendered with the content it already had */
+        UNCHANGED,
+        /** The directive has not been rendered, its file already exists and must not be overridden, or it is up to date */
+        SKIPPED,
+        /** The directive cannot be processed */
+        FAILED
+    }
+
+    /**
+     * Called once the prompts are resolved, before the first directive is processed.
+     *
+     * @param model The name of the model
+     * @param directives The number of directives to process
+     */
+    default void started(String model, int directives) { }
+
+    /**
+     * Called each time a directive has been processed.
+     *
+     * @param model The name of the model
+     * @param directive The name of the directive
+     * @param outcome The outcome of the directive
+     * @param processed The number of directives processed so far, this one included
+     * @param directives The number of directives to process
+     */
+    default void directiveProcessed(String model, String directive, Outcome outcome, int processed, int directives) { }
+}
@@ -1,21 +1,36 @@
 package dev.vinyard.blueprinter.core.generation;
 
 import dev.vinyard.blueprinter.core.environment.EnvironmentManager;
+import dev.vinyard.blueprinter.core.environment.ResolvedEnvironment;
 import dev.vinyard.blueprinter.core.exception.BluePrinterException;
+import dev.vinyard.blueprinter.core.metrics.GenerationMetrics;
+import dev.vinyard.blueprinter.core.metrics.GenerationMetrics.Phase;
+import dev.vinyard.blueprinter.core.metrics.GenerationMetrics.Step;
+import dev.vinyard.blueprinter.core.metrics.GenerationMetrics.Timing;
 import dev.vinyard.blueprinter.core.model.ModelManager;
+import dev.vinyard.blueprinter.core.model.ValidatedModel;
+import dev.vinyard.blueprinter.core.model.ValidatedModel.ResolvedDirective;
 import dev.vinyard.blueprinter.core.model.entities.*;
 import dev.vinyard.blueprinter.core.pluginManager.BpPluginManager;
+import dev.vinyard.blueprinter.core.prompt.DefaultPromptProvider;
+import dev.vinyard.blueprinter.core.prompt.Prompt;
 import dev.vinyard.blueprinter.core.prompt.PromptProvider;
+import dev.vinyard.blueprinter.core.template.ExpressionEvaluator;
+import dev.vinyard.blueprinter.core.template.TemplateCache;
+import dev.vinyard.blueprinter.core.utils.HashUtils;
 import dev.vinyard.blueprinter.core.utils.VelocityUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.velocity.VelocityContext;
-import org.pf4j.PluginManager;
+import org.apache.velocity.exception.VelocityException;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -34,11 +49,29 @@ public class GenerationManager {
 
     private final PromptProvider promptProvider;
 
-    public GenerationManager(ModelManager modelManager, BpPluginManager bpPluginManager, EnvironmentManager environmentManager, PromptProvider promptProvider) {
+    private final ExpressionEvaluator expressionEvaluator;
+
+    private final TemplateCache templateCache;
+
+    private final GenerationConfiguration generationConfiguration;
+
+    private final GenerationMetrics metrics;
+
+    private final Map<String, ModelLayer> modelLayers = new ConcurrentHashMap<>();
+
+    private final Map<String, ModelDependencies> modelDependencies = new ConcurrentHashMap<>();
+
+    private final Map<File, GenerationManifest> manifests = new ConcurrentHashMap<>();
+
+    public GenerationManager(ModelManager modelManager, BpPluginManager bpPluginManager, EnvironmentManager environmentManager, PromptProvider promptProvider, ExpressionEvaluator expressionEvaluator, TemplateCache templateCache, GenerationConfiguration generationConfiguration, GenerationMetrics metrics) {
         this.modelManager = modelManager;
         this.bpPluginManager = bpPluginManager;
         this.environmentManager = environmentManager;
         this.promptProvider = promptProvider;
+        this.expressionEvaluator = expressionEvaluator;
+        this.templateCache = templateCache;
+        this.generationConfiguration = generationConfiguration;
+        this.metrics = metrics;
     }
 
     /**
@@ -46,66 +79,775 @@ public class GenerationManager {
      * <p>Create a new velocity context and put the model properties and prompts on it.</p>
      * <p>Add date and math tools to the context.</p>
      * <p>Initialize the plugins. Plugins are other costum tools for velocity that can be used in the templates.</p>
-     * <p>Then, process the directives of the model.</p>
+     * <p>Then, process the directives of the model, the files are written in the home directory.</p>
+     * <p>In incremental mode, the directives whose template and inputs did not change since the last generation are skipped, see {@link GenerationManifest}.</p>
+     * <p>In transactional mode, the files are only published once all the directives succeeded, see {@link TransactionalGenerationSink}.</p>
+     *
+     * @param modelName The name of the model to generate from
+     * @return The report of the generated files
+     * @throws BluePrinterException if an error occurs during generation, or if some directives cannot be processed
+     * @throws IOException if an error occurs during file reading or writing
+     */
+    public GenerationReport generate(String modelName) throws BluePrinterException, IOException {
+        return this.generate(modelName, this.promptProvider, this.homeSink(), this.loadManifest(), GenerationListener.NONE, new AtomicBoolean());
+    }
+
+    /**
+     * Generate the model with the given name, answering its prompts with the given answers.
+     * <p>Same as {@link #generate(String)}, except that the prompts are answered by the given answers instead of the prompt provider,
+     * a prompt without answer takes its default value. The generations of several callers do not share their answers.</p>
+     *
+     * @param modelName The name of the model to generate from
+     * @param answers The prompt answers
+     * @return The report of the generated files
+     * @throws BluePrinterException if an error occurs during generation, or if some directives cannot be processed
+     * @throws IOException if an error occurs during file reading or writing
+     */
+    public GenerationReport generate(String modelName, List<Prompt> answers) throws BluePrinterException, IOException {
+        return this.generate(modelName, new DefaultPromptProvider(answers, expressionEvaluator), this.homeSink(), this.loadManifest(), GenerationListener.NONE, new AtomicBoolean());
+    }
+
+    /**
+     * Generate the model with the given name on the given executor.
+     * <p>Same as {@link #generate(String)}, except that the generation runs on the given executor and reports its progress to the given listener.</p>
+     * <p>Cancelling the returned future stops the generation cooperatively : the directives not yet processed are not processed,
+     * and the templates being rendered stop at their next output. The generation is then rolled back like a failed one.</p>
+     *
+     * @param modelName The name of the model to generate from
+     * @param listener The listener of the progress of the generation
+     * @param executor The executor running the generation
+     * @return The future report of the generated files, completed exceptionally with a {@link BluePrinterException} if the generation fails
+     */
+    public CompletableFuture<GenerationReport> generateAsync(String modelName, GenerationListener listener, Executor executor) {
+        return this.generateAsync(modelName, this.promptProvider, listener, executor);
+    }
+
+    /**
+     * Generate the model with the given name on the given executor, answering its prompts with the given answers.
+     * <p>Same as {@link #generateAsync(String, GenerationListener, Executor)}, the prompts are answered like {@link #generate(String, List)} does.</p>
+     *
+     * @param modelName The name of the model to generate from
+     * @param answers The prompt answers
+     * @param listener The listener of the progress of the generation
+     * @param executor The executor running the generation
+     * @return The future report of the generated files
+     */
+    public CompletableFuture<GenerationReport> generateAsync(String modelName, List<Prompt> answers, GenerationListener listener, Executor executor) {
+        return this.generateAsync(modelName, new DefaultPromptProvider(answers, expressionEvaluator), listener, executor);
+    }
+
+    private CompletableFuture<GenerationReport> generateAsync(String modelName, PromptProvider promptProvider, GenerationListener listener, Executor executor) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        CompletableFuture<GenerationReport> future = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                cancelled.set(true);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+
+        try {
+            executor.execute(() -> {
+                if (cancelled.get())
+                    return;
+                try {
+                    future.complete(this.generate(modelName, promptProvider, this.homeSink(), this.loadManifest(), listener, cancelled));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Generate the model with the given name in the given sink.
+     * <p>Same as {@link #generate(String)}, except that the files are written in the given sink and the generation is never incremental.</p>
+     * <p>The sink is committed once all the directives succeeded, or rolled back if one of them failed.
+     * It is not closed, it is up to the caller to close it once the generation is done.</p>
+     *
+     * @param modelName The name of the model to generate from
+     * @param sink The sink the files are written in
+     * @return The report of the generated files
+     * @throws BluePrinterException if an error occurs during generation, or if some directives cannot be processed
+     * @throws IOException if an error occurs during file reading
+     */
+    public GenerationReport generate(String modelName, GenerationSink sink) throws BluePrinterException, IOException {
+        return this.generate(modelName, this.promptProvider, sink, null, GenerationListener.NONE, new AtomicBoolean());
+    }
+
+    private GenerationReport generate(String modelName, PromptProvider promptProvider, GenerationSink sink, GenerationManifest manifest, GenerationListener listener, AtomicBoolean cancelled) throws BluePrinterException, IOException {
+        try (Timing timing = metrics.generation(modelName)) {
+            ValidatedModel model = this.modelManager.loadValidatedModel(modelName);
+
+            ModelLayer modelLayer = this.getModelLayer(model);
+
+            Generation generation = new Generation(modelName, sink, manifest, listener, cancelled);
+
+            try {
+                VelocityContext velocityContext = this.newRunContext(modelName, modelLayer);
+
+                this.generate(model, modelLayer, velocityContext, promptProvider, generation, generationConfiguration.isParallel());
+                this.commit(generation);
+
+                log.info("Model {} generated in {} ms : {}", modelName, timing.elapsed().toMillis(), generation.report());
+                return generation.report();
+            } catch (Exception e) {
+                this.rollback(generation);
+                throw e;
+            } finally {
+                this.saveManifest(manifest);
+            }
+        }
+    }
+
+    /**
+     * Generate one instance of the model with the given name for each record.
+     * <p>The model, the environment and the plugins are loaded once, then each record is rendered in its own child velocity context.</p>
+     * <p>Each record is one set of prompt answers, a prompt without answer in the record takes its default value.</p>
+     * <p>Records are consumed lazily by a bounded pool of {@link GenerationConfiguration#bulkParallelism()} workers.
+     * When several records are generated at the same time, the directives of each record are rendered one after another by its worker.</p>
+     * <p>A failing record does not stop the others, all the failures are reported together once every record has been processed.</p>
+     *
+     * @param modelName The name of the model to generate from
+     * @param records The prompt answers of each instance to generate, see {@link dev.vinyard.blueprinter.core.prompt.PromptRecordReader}
+     * @return The number of records generated
+     * @throws BluePrinterException if the model cannot be loaded, or if some records cannot be generated
+     * @throws IOException if an error occurs during file reading
+     */
+    public long generate(String modelName, Stream<List<Prompt>> records) throws BluePrinterException, IOException {
+        return this.generate(modelName, records, this.homeSink(), this.loadManifest());
+    }
+
+    /**
+     * Generate one instance of the model with the given name for each record, in the given sink.
+     * <p>Same as {@link #generate(String, Stream)}, except that the files are written in the given sink and the generation is never incremental.</p>
+     * <p>The sink is committed once all the directives succeeded, or rolled back if one of them failed.
+     * It is not closed, it is up to the caller to close it once the generation is done.</p>
      *
      * @param modelName The name of the model to generate from
-     * @throws BluePrinterException if an error occurs during generation
+     * @param records The prompt answers of each instance to generate
+     * @param sink The sink the files are written in
+     * @return The number of records generated
+     * @throws BluePrinterException if the model cannot be loaded, or if some records cannot be generated
+     * @throws IOException if an error occurs during file reading
+     */
+    public long generate(String modelName, Stream<List<Prompt>> records, GenerationSink sink) throws BluePrinterException, IOException {
+        return this.generate(modelName, records, sink, null);
+    }
+
+    private long generate(String modelName, Stream<List<Prompt>> records, GenerationSink sink, GenerationManifest manifest) throws BluePrinterException, IOException {
+        try (Timing timing = metrics.generation(modelName)) {
+            ValidatedModel model = this.modelManager.loadValidatedModel(modelName);
+
+            ModelLayer modelLayer = this.getModelLayer(model);
+
+            Generation generation = new Generation(modelName, sink, manifest);
+
+            try {
+                VelocityContext velocityContext = this.newRunContext(modelName, modelLayer);
+
+                Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+                AtomicLong count = new AtomicLong();
+                int parallelism = generationConfiguration.bulkParallelism();
+                // the records already keep the workers busy, a directive pool per record would multiply the threads
+                boolean parallelDirectives = generationConfiguration.isParallel() && parallelism == 1;
+
+                try (ExecutorService executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(parallelism), new ThreadPoolExecutor.CallerRunsPolicy())) {
+                    records.forEach(record -> {
+                        long index = count.incrementAndGet();
+                        executor.execute(() -> {
+                            try {
+                                this.generate(model, modelLayer, new VelocityContext(velocityContext), new DefaultPromptProvider(record, expressionEvaluator), generation, parallelDirectives);
+                                log.info("Record {} generated.", index);
+                            } catch (Exception e) {
+                                log.error("Record {} cannot be generated : {}", index, e.getMessage());
+                                failures.add(new BluePrinterException(String.format("Cannot generate record %d.", index), e));
+                            }
+                        });
+                    });
+                }
+
+                if (!failures.isEmpty()) {
+                    BluePrinterException exception = new BluePrinterException(String.format("%d of %d records cannot be generated.", failures.size(), count.get()));
+                    failures.forEach(exception::addSuppressed);
+                    throw exception;
+                }
+
+                this.commit(generation);
+
+                log.info("{} records of model {} generated in {} ms : {}", count.get(), modelName, timing.elapsed().toMillis(), generation.report());
+                return count.get();
+            } catch (Exception e) {
+                this.rollback(generation);
+                throw e;
+            } finally {
+                this.saveManifest(manifest);
+            }
+        }
+    }
+
+    /**
+     * Generate the models with the given names together.
+     * <p>The plugins and the environment are loaded once for all the models, then the models are generated concurrently by a bounded pool of
+     * {@link GenerationConfiguration#modelParallelism()} workers. A model is only generated once the models it depends on, among the given ones, are generated,
+     * see {@link Model#getDependsOn()}.</p>
+     * <p>All the models write in the same sink and manifest, the files are committed once all the models are generated.
+     * A failing model does not stop the models that do not depend on it, all the failures are reported together once every model has been processed.</p>
+     *
+     * @param modelNames The names of the models to generate from
+     * @return The combined report of the generated files
+     * @throws BluePrinterException if a model cannot be loaded, if models depend on each other in a cycle, or if some models cannot be generated
+     * @throws IOException if an error occurs during file reading or writing
+     */
+    public GenerationReport generate(Collection<String> modelNames) throws BluePrinterException, IOException {
+        return this.generate(modelNames, this.promptProvider, this.homeSink(), this.loadManifest());
+    }
+
+    /**
+     * Generate the models with the given names together, answering their prompts with the given answers.
+     * <p>Same as {@link #generate(Collection)}, the prompts are answered like {@link #generate(String, List)} does.</p>
+     *
+     * @param modelNames The names of the models to generate from
+     * @param answers The prompt answers, shared by all the models
+     * @return The combined report of the generated files
+     * @throws BluePrinterException if a model cannot be loaded, if models depend on each other in a cycle, or if some models cannot be generated
      * @throws IOException if an error occurs during file reading or writing
      */
-    public void generate(String modelName) throws BluePrinterException, IOException {
-        this.modelManager.checkModel(modelName);
+    public GenerationReport generate(Collection<String> modelNames, List<Prompt> answers) throws BluePrinterException, IOException {
+        return this.generate(modelNames, new DefaultPromptProvider(answers, expressionEvaluator), this.homeSink(), this.loadManifest());
+    }
+
+    private GenerationReport generate(Collection<String> modelNames, PromptProvider promptProvider, GenerationSink sink, GenerationManifest manifest) throws BluePrinterException, IOException {
+        Map<String, ValidatedModel> models = new LinkedHashMap<>();
+        for (String modelName : new LinkedHashSet<>(modelNames))
+            models.put(modelName, this.modelManager.loadValidatedModel(modelName));
+
+        List<String> order = orderModels(models);
+
+        Generation generation = new Generation(String.join("+", order), sink, manifest);
+
+        try {
+            Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+            Set<String> failed = ConcurrentHashMap.newKeySet();
+            Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+            int parallelism = generationConfiguration.modelParallelism();
+
+            try (ExecutorService executor = Executors.newFixedThreadPool(parallelism, Thread.ofPlatform().name("blueprinter-model-", 0).factory())) {
+                for (String modelName : order) {
+                    CompletableFuture<?>[] dependencies = dependsOn(models.get(modelName)).stream().filter(futures::containsKey).map(futures::get).toArray(CompletableFuture[]::new);
+
+                    futures.put(modelName, CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+                        try {
+                            metrics.time(metrics.generation(modelName), () -> {
+                                ValidatedModel model = models.get(modelName);
+                                ModelLayer modelLayer = this.getModelLayer(model);
+                                VelocityContext velocityContext = this.newRunContext(modelName, modelLayer);
+
+                                this.generate(model, modelLayer, velocityContext, promptProvider, generation.of(modelName), generationConfiguration.isParallel());
+                            });
+                            log.info("Model {} generated.", modelName);
+                        } catch (Exception e) {
+                            log.error("Model {} cannot be generated : {}", modelName, e.getMessage());
+                            failed.add(modelName);
+                            failures.add(new BluePrinterException(String.format("Cannot generate model %s.", modelName), e));
+                            throw new CompletionException(e);
+                        }
+                    }, executor));
+                }
+
+                // dependent models are submitted as their dependencies complete, so the executor is only closed once every model is processed
+                CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).handle((result, e) -> null).join();
+            }
+
+            futures.forEach((modelName, future) -> {
+                if (future.isCompletedExceptionally() && !failed.contains(modelName))
+                    failures.add(new BluePrinterException(String.format("Model %s not generated, a model it depends on cannot be generated.", modelName)));
+            });
+
+            if (!failures.isEmpty()) {
+                BluePrinterException exception = new BluePrinterException(String.format("%d of %d models cannot be generated.", failures.size(), order.size()));
+                failures.forEach(exception::addSuppressed);
+                throw exception;
+            }
+
+            this.commit(generation);
+
+            log.info("Models {} generated : {}", order, generation.report());
+            return generation.report();
+        } catch (Exception e) {
+            this.rollback(generation);
+            throw e;
+        } finally {
+            this.saveManifest(manifest);
+        }
+    }
+
+    /**
+     * Order the given models so that each model comes after the models it depends on.
+     * <p>Dependencies on models that are not given are ignored, the given order is kept between independent models.</p>
+     *
+     * @param models The models, by name
+     * @return The names of the models, in generation order
+     * @throws BluePrinterException if models depend on each other in a cycle
+     */
+    private static List<String> orderModels(Map<String, ValidatedModel> models) throws BluePrinterException {
+        List<String> order = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+
+        for (String modelName : models.keySet())
+            orderModel(modelName, models, visited, new LinkedHashSet<>(), order);
+
+        return order;
+    }
+
+    private static void orderModel(String modelName, Map<String, ValidatedModel> models, Set<String> visited, LinkedHashSet<String> visiting, List<String> order) throws BluePrinterException {
+        if (visited.contains(modelName))
+            return;
 
-        VelocityContext velocityContext = new VelocityContext();
+        if (!visiting.add(modelName))
+            throw new BluePrinterException(String.format("Models depend on each other : %s -> %s", String.join(" -> ", visiting), modelName));
 
-        PluginManager pluginManager = bpPluginManager.initPlugins(velocityContext);
+        for (String dependency : dependsOn(models.get(modelName))) {
+            if (models.containsKey(dependency))
+                orderModel(dependency, models, visited, visiting, order);
+            else
+                log.debug("Model {} depends on model {}, which is not generated with it.", modelName, dependency);
+        }
 
-        Model model = this.modelManager.loadModel(velocityContext, modelName);
+        visiting.remove(modelName);
+        visited.add(modelName);
+        order.add(modelName);
+    }
 
-        Function<String, String> templated = s -> VelocityUtils.processTemplate(velocityContext, s);
+    private static List<String> dependsOn(ValidatedModel model) {
+        return Optional.of(model.model()).map(Model::getDependsOn).orElseGet(Collections::emptyList);
+    }
 
-        Optional.of(model).map(Model::getSetup).map(Setup::getContent).ifPresent(templated::apply);
+    /**
+     * Get the layer of the static properties of the given model.
+     * <p>The layer is chained to the layer of the static environment properties, itself chained to the layer of the plugins.
+     * Layers are built once and shared by the generations, they are built again only when the model, the environment or the plugins change.</p>
+     *
+     * @param validatedModel The validated model
+     * @return The layer of the model
+     * @throws BluePrinterException if the environment cannot be loaded
+     */
+    private ModelLayer getModelLayer(ValidatedModel validatedModel) throws BluePrinterException {
+        VelocityContext pluginContext = metrics.time(metrics.phase(validatedModel.name(), Phase.PLUGINS), bpPluginManager::getPluginContext);
+
+        return metrics.time(metrics.phase(validatedModel.name(), Phase.ENVIRONMENT), () -> {
+            ResolvedEnvironment environment = this.environmentManager.getResolvedEnvironment();
+            VelocityContext environmentContext = environment.getContext(pluginContext);
 
-        Optional.of(model).map(Model::getProperties).map(Properties::getPropertyList).orElseGet(Collections::emptyList).stream()
+            return modelLayers.compute(validatedModel.name(), (name, layer) -> layer != null && layer.model() == validatedModel.model() && layer.environment() == environment && layer.environmentContext() == environmentContext
+                    ? layer
+                    : ModelLayer.of(validatedModel.model(), environment, environmentContext));
+        });
+    }
+
+    /**
+     * Find the keys of the properties and the prompts used by a generation of the given model, see {@link ModelDependencies}.
+     * <p>The dependencies of a model are built once, they are built again only when the model changes.</p>
+     *
+     * @param validatedModel The validated model
+     * @return The used keys, or {@code null} if all the properties and prompts are used
+     */
+    private Set<String> getUsedKeys(ValidatedModel validatedModel) {
+        if (!generationConfiguration.templateAnalysis())
+            return null;
+
+        ModelDependencies dependencies = modelDependencies.get(validatedModel.name());
+
+        // concurrent generations may build the same dependencies twice, the map is not locked while they are built
+        if (dependencies == null || dependencies.model() != validatedModel.model()) {
+            dependencies = ModelDependencies.of(validatedModel, expressionEvaluator);
+            modelDependencies.put(validatedModel.name(), dependencies);
+        }
+
+        return dependencies.getUsedKeys(templateCache);
+    }
+
+    /**
+     * Create the context of a run, the only layer allocated on each generation.
+     * <p>The dynamic environment properties are evaluated against the environment layer, then put in the run context, chained to the layer of the model.</p>
+     *
+     * @param modelName The name of the model
+     * @param modelLayer The layer of the model
+     * @return The context of the run
+     */
+    private VelocityContext newRunContext(String modelName, ModelLayer modelLayer) {
+        return metrics.time(metrics.phase(modelName, Phase.CONTEXT), () -> {
+            VelocityContext environmentContext = new VelocityContext(modelLayer.environmentContext());
+
+            modelLayer.environment().putDynamicProperties(expressionEvaluator, environmentContext);
+
+            VelocityContext velocityContext = new VelocityContext(modelLayer.context());
+            for (String key : environmentContext.getKeys())
+                velocityContext.put(key, environmentContext.get(key));
+
+            return velocityContext;
+        });
+    }
+
+    /**
+     * Create the sink writing the files in the home directory.
+     *
+     * @return The sink of the home directory, transactional if {@link GenerationConfiguration#transactional()} is set
+     */
+    private FileSystemGenerationSink homeSink() {
+        if (generationConfiguration.transactional())
+            return new TransactionalGenerationSink(environmentManager.getHomeDirectory(), generationConfiguration.writeOnlyIfChanged());
+
+        return new FileSystemGenerationSink(environmentManager.getHomeDirectory(), generationConfiguration.writeOnlyIfChanged());
+    }
+
+    /**
+     * Commit the sink of the generation, then record the published files in the manifest.
+     *
+     * @param generation The generation to commit
+     * @throws IOException if the files cannot be published
+     */
+    private void commit(Generation generation) throws IOException {
+        metrics.time(metrics.phase(generation.model(), Phase.COMMIT), () -> {
+            generation.sink().commit();
+            this.recordGeneratedFiles(generation);
+        });
+    }
+
+    /**
+     * Roll back the sink of the generation.
+     * <p>The files already written by a sink that is not transactional are kept, so they are still recorded in the manifest.</p>
+     *
+     * @param generation The generation to roll back
+     */
+    private void rollback(Generation generation) {
+        generation.sink().rollback();
+
+        if (!generation.sink().isTransactional())
+            this.recordGeneratedFiles(generation);
+    }
+
+    private void recordGeneratedFiles(Generation generation) {
+        if (generation.manifest() == null)
+            return;
+
+        for (GeneratedFile generatedFile; (generatedFile = generation.generatedFiles().poll()) != null; ) {
+            try {
+                generation.manifest().record(generatedFile.path(), generatedFile.file(), generatedFile.templateHash(), generatedFile.inputsHash(), generatedFile.outputHash());
+            } catch (IOException e) {
+                log.warn("File {} cannot be recorded in the generation manifest : {}", generatedFile.path(), e.getMessage());
+                generation.manifest().forget(generatedFile.path());
+            }
+        }
+    }
+
+    /**
+     * Load the generation manifest of the workspace, in incremental mode.
+     * <p>The manifest describes the files of the home directory, so it is only used with the sink of the home directory.
+     * It is loaded once per manifest file and shared by all the generations, which record their files in the same manifest.</p>
+     *
+     * @return The generation manifest, or {@code null} if the generation is not incremental
+     */
+    private GenerationManifest loadManifest() {
+        if (!generationConfiguration.incremental())
+            return null;
+
+        return manifests.computeIfAbsent(environmentManager.getGenerationManifestFile().getAbsoluteFile(), GenerationManifest::load);
+    }
+
+    /**
+     * Save the generation manifest, a manifest that cannot be saved does not fail the generation.
+     *
+     * @param manifest The generation manifest, {@code null} if the generation is not incremental
+     */
+    private void saveManifest(GenerationManifest manifest) {
+        if (manifest == null)
+            return;
+
+        try {
+            manifest.save();
+        } catch (IOException e) {
+            log.warn("Generation manifest cannot be saved, the next generation will process all the directives : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Generate the given model in the given velocity context.
+     * <p>Run the setup, put the dynamic model properties and the prompts on the context, then process the directives of the model.</p>
+     *
+     * <p>The dynamic properties and the prompts which are not used by the templates and the output paths of the directives are neither evaluated nor resolved,
+     * see {@link GenerationConfiguration#templateAnalysis()}.</p>
+     *
+     * @param validatedModel The validated model to generate from
+     * @param modelLayer The layer of the static properties of the model, the given context is chained to
+     * @param velocityContext The velocity context of the run, holding the dynamic environment properties
+     * @param promptProvider The prompt provider used to resolve the prompts of the model
+     * @param generation The sink, manifest and report of the generation
+     * @param parallel {@code true} to render the directives in parallel, see {@link #processDirectives(VelocityContext, List, Generation, boolean)}
+     * @throws BluePrinterException if some directives cannot be processed
+     */
+    private void generate(ValidatedModel validatedModel, ModelLayer modelLayer, VelocityContext velocityContext, PromptProvider promptProvider, Generation generation, boolean parallel) throws BluePrinterException {
+        Function<String, String> templated = expressionEvaluator.evaluator(velocityContext);
+        Model model = validatedModel.model();
+        String modelName = validatedModel.name();
+        Set<String> usedKeys = this.getUsedKeys(validatedModel);
+
+        metrics.time(metrics.phase(modelName, Phase.SETUP), () -> Optional.of(model).map(Model::getSetup).map(Setup::getContent).ifPresent(templated::apply));
+
+        metrics.time(metrics.phase(modelName, Phase.PROPERTIES), () -> modelLayer.dynamicProperties().stream()
+                .filter(p -> usedKeys == null || usedKeys.contains(p.getKey()))
                 .peek(p -> log.debug("Put property on velocity context {} : {}", p.getKey(), p.getValue()))
-                .forEach(p -> velocityContext.put(p.getKey(), templated.apply(p.getValue())));
+                .forEach(p -> velocityContext.put(p.getKey(), templated.apply(p.getValue()))));
+
+        metrics.time(metrics.phase(modelName, Phase.PROMPTS), () -> this.prompt(model, usedKeys, velocityContext, promptProvider));
+
+        generation.checkCancelled();
 
+        metrics.time(metrics.phase(modelName, Phase.DIRECTIVES), () -> this.processDirectives(velocityContext, validatedModel.directives(), generation, parallel));
+    }
+
+    /**
+     * Resolve the prompts of the given model and put their values on the given velocity context, in the order of the prompts.
+     * <p>The prompts of concurrent generations using the prompt provider of the manager are not interleaved.</p>
+     *
+     * @param model The model
+     * @param usedKeys The keys of the prompts to resolve, {@code null} to resolve all of them
+     * @param velocityContext The velocity context of the run
+     * @param promptProvider The prompt provider used to resolve the prompts
+     */
+    private void prompt(Model model, Set<String> usedKeys, VelocityContext velocityContext, PromptProvider promptProvider) {
+        // the prompt provider of the manager may be interactive, its prompts are resolved one generation at a time
+        if (promptProvider == this.promptProvider) {
+            synchronized (this.promptProvider) {
+                this.doPrompt(model, usedKeys, velocityContext, promptProvider);
+            }
+        } else {
+            this.doPrompt(model, usedKeys, velocityContext, promptProvider);
+        }
+    }
+
+    private void doPrompt(Model model, Set<String> usedKeys, VelocityContext velocityContext, PromptProvider promptProvider) {
         Stream.of(
                 Optional.of(model).map(Model::getPrompts).map(Prompts::getMultiSelectList).orElseGet(Collections::emptyList),
                 Optional.of(model).map(Model::getPrompts).map(Prompts::getMonoSelectList).orElseGet(Collections::emptyList),
                 Optional.of(model).map(Model::getPrompts).map(Prompts::getStringInputList).orElseGet(Collections::emptyList),
                 Optional.of(model).map(Model::getPrompts).map(Prompts::getSetupInputList).orElseGet(Collections::emptyList)
-        ).flatMap(List::stream).map(PromptType.class::cast).sorted().forEach(s -> {
-            Object value = this.promptProvider.prompt(s, velocityContext);
+        ).flatMap(List::stream).map(PromptType.class::cast).filter(s -> {
+            if (usedKeys == null || usedKeys.contains(s.getValue()))
+                return true;
+
+            log.debug("Prompt {} not resolved because no template uses it.", s.getValue());
+            return false;
+        }).sorted().forEach(s -> {
+            Object value = promptProvider.prompt(s, velocityContext);
             log.info("Put prompt on velocity context {} : {}", s.getValue(), value);
             velocityContext.put(s.getValue(), value);
         });
+    }
 
-        model.getDirectives().getDirectiveList().forEach(d -> {
+    /**
+     * Process all the directives with the given velocity context.
+     * <p>Each directive is rendered with its own child context layered over the given one, so the given context is only read.</p>
+     * <p>The directives are rendered in parallel by {@link GenerationConfiguration#parallelism()} workers when parallel rendering is requested.
+     * The directives of a streamed model are read one at a time, only the ones being rendered are kept in memory.</p>
+     * <p>A failing directive does not stop the others, all the failures are reported together once every directive has been processed.</p>
+     * <p>The cancellation of the generation is checked before each directive, the remaining directives are then not processed.</p>
+     *
+     * @param velocityContext The velocity context shared by all the directives
+     * @param directives The directives to process, with their resolved template
+     * @param generation The sink, manifest and report of the generation
+     * @param parallel {@code true} to render the directives in parallel, {@code false} to render them one after another
+     * @throws BluePrinterException if at least one directive cannot be processed
+     * @throws CancellationException if the generation has been cancelled
+     */
+    private void processDirectives(VelocityContext velocityContext, List<ResolvedDirective> directives, Generation generation, boolean parallel) throws BluePrinterException {
+        Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+        AtomicInteger processed = new AtomicInteger();
+
+        generation.listener().started(generation.model(), directives.size());
+
+        Consumer<ResolvedDirective> process = d -> {
+            if (generation.cancelled().get())
+                return;
+
+            GenerationListener.Outcome outcome;
             try {
-                this.processDirective(velocityContext, d);
+                outcome = this.processDirective(new VelocityContext(velocityContext), d.directive(), d.template(), generation);
+            } catch (CancellationException e) {
+                return;
             } catch (Exception e) {
-                throw new RuntimeException("Cannot process template.", e);
+                log.error("Directive {} cannot be processed : {}", d.directive().getName(), e.getMessage());
+                failures.add(new BluePrinterException(String.format("Cannot process directive %s.", d.directive().getName()), e));
+                metrics.directiveProcessed(generation.model(), d.directive().getName(), "failed");
+                outcome = GenerationListener.Outcome.FAILED;
             }
-        });
 
-        bpPluginManager.unloadPlugins(pluginManager);
+            generation.listener().directiveProcessed(generation.model(), d.directive().getName(), outcome, processed.incrementAndGet(), directives.size());
+        };
+
+        if (parallel && directives instanceof RandomAccess) {
+            try (ForkJoinPool pool = new ForkJoinPool(generationConfiguration.parallelism())) {
+                pool.submit(() -> directives.parallelStream().forEach(process)).join();
+            }
+        } else if (parallel) {
+            // streamed directives are read one at a time and handed to a bounded queue, a parallel stream would buffer them in growing batches
+            int parallelism = generationConfiguration.parallelism();
+            try (ExecutorService executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(parallelism), new ThreadPoolExecutor.CallerRunsPolicy())) {
+                directives.forEach(d -> executor.execute(() -> process.accept(d)));
+            }
+        } else {
+            directives.forEach(process);
+        }
+
+        generation.checkCancelled();
+
+        if (!failures.isEmpty()) {
+            BluePrinterException exception = new BluePrinterException(String.format("%d of %d directives cannot be processed.", failures.size(), directives.size()));
+            failures.forEach(exception::addSuppressed);
+            throw exception;
+        }
     }
 
     /**
      * Process the directive with the given velocity context.
-     * <p>Process the template of the directive and write the result in the file of the directive.</p>
+     * <p>Process the template of the directive and write the result in the file of the directive, in the home directory.
+     * The template is resolved as the templates of the directives of a model, see {@link ModelManager#resolveDirective(Directive)}.</p>
      *
      * @param velocityContext The velocity context to use. The context is a map of key value pairs that can be used in the templates.
      * @param directive The directive to process
+     * @throws IOException if the template of the directive cannot be read
      */
-    public void processDirective(VelocityContext velocityContext, Directive directive) {
-        Function<String, String> templated = s -> VelocityUtils.processTemplate(velocityContext, s);
-        File template = new File(environmentManager.getTemplateDirectory(), Optional.of(directive).map(Directive::getTemplate).map(templated).map(String::trim).orElse(""));
-        File file = new File(environmentManager.getHomeDirectory(), Optional.of(directive).map(Directive::getValue).map(templated).map(String::trim).orElse(""));
+    public void processDirective(VelocityContext velocityContext, Directive directive) throws IOException {
+        Generation generation = new Generation(null, this.homeSink(), null);
+        ResolvedDirective resolvedDirective = this.modelManager.resolveDirective(directive);
 
-        if (directive.getOverride() || !file.exists())
-            VelocityUtils.processTemplate(velocityContext, template, file);
-        else
-            log.info("Directive {} not processed because file {} already exists.", directive.getName(), file.getAbsolutePath());
+        try {
+            this.processDirective(velocityContext, resolvedDirective.directive(), resolvedDirective.template(), generation);
+            this.commit(generation);
+        } catch (Exception e) {
+            this.rollback(generation);
+            throw e;
+        }
     }
+
+    /**
+     * Process the directive with the given velocity context, unless its file is up to date in the manifest of the generation.
+     * <p>The template is rendered in memory, then written in the sink of the generation.</p>
+     *
+     * @param velocityContext The velocity context to use
+     * @param directive The directive to process
+     * @param template The template file of the directive
+     * @param generation The sink, manifest and report of the generation
+     * @return The outcome of the directive
+     * @throws IOException if the template of the directive cannot be read, or if its file cannot be written
+     * @throws CancellationException if the generation has been cancelled while the template was rendered
+     */
+    private GenerationListener.Outcome processDirective(VelocityContext velocityContext, Directive directive, File template, Generation generation) throws IOException {
+        String path = Optional.of(directive).map(Directive::getValue).map(s -> expressionEvaluator.evaluate(velocityContext, s)).map(String::trim).orElse("");
+        GenerationSink sink = generation.sink();
+        GenerationManifest manifest = generation.manifest();
+        GenerationReport report = generation.report();
+
+        if (!directive.getOverride() && sink.exists(path)) {
+            log.info("Directive {} not processed because file {} already exists.", directive.getName(), path);
+            report.addSkipped();
+            metrics.directiveProcessed(generation.model(), directive.getName(), "skipped");
+            return GenerationListener.Outcome.SKIPPED;
+        }
+
+        File file = new File(environmentManager.getHomeDirectory(), path);
+        String templateHash = manifest == null ? null : templateCache.getHash(template);
+        String inputsHash = manifest == null ? null : GenerationManifest.hashInputs(velocityContext, this.getInputs(directive, template), directive.getName(), template.getPath(), path, String.valueOf(directive.getOverride()));
+
+        if (manifest != null && manifest.isUpToDate(path, file, templateHash, inputsHash)) {
+            log.info("Directive {} not processed because file {} is up to date.", directive.getName(), path);
+            report.addSkipped();
+            metrics.directiveProcessed(generation.model(), directive.getName(), "skipped");
+            return GenerationListener.Outcome.SKIPPED;
+        }
+
+        byte[] content = metrics.time(metrics.directive(generation.model(), directive.getName(), directive.getTemplate(), Step.RENDER),
+                () -> VelocityUtils.processTemplate(velocityContext, templateCache.getTemplate(template), generation.cancelled()::get).getBytes(templateCache.getCharset()));
+
+        boolean written = metrics.time(metrics.directive(generation.model(), directive.getName(), directive.getTemplate(), Step.WRITE), () -> sink.write(path, content));
+
+        if (written) {
+            log.info("File {} generated.", path);
+            report.addWritten();
+            metrics.directiveProcessed(generation.model(), directive.getName(), "written");
+        } else {
+            log.info("File {} unchanged.", path);
+            report.addUnchanged();
+            metrics.directiveProcessed(generation.model(), directive.getName(), "unchanged");
+        }
+
+        if (manifest != null)
+            generation.generatedFiles().add(new GeneratedFile(path, file, templateHash, inputsHash, HashUtils.hash(content)));
+
+        return written ? GenerationListener.Outcome.WRITTEN : GenerationListener.Outcome.UNCHANGED;
+    }
+
+    /**
+     * Find the variables read by the given directive, by its template and by its output path.
+     *
+     * @param directive The directive
+     * @param template The template file of the directive
+     * @return The root names of the read variables, {@code null} if they cannot be known before rendering
+     * @throws IOException if the template of the directive cannot be read
+     */
+    private Set<String> getInputs(Directive directive, File template) throws IOException {
+        try {
+            Set<String> templateVariables = templateCache.getVariables(template);
+            Set<String> pathVariables = expressionEvaluator.compile(Optional.ofNullable(directive.getValue()).orElse("")).variables();
+
+            if (templateVariables == null || pathVariables == null)
+                return null;
+
+            Set<String> variables = new HashSet<>(templateVariables);
+            variables.addAll(pathVariables);
+            return variables;
+        } catch (VelocityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * State of a generation, shared by all the directives it processes.
+     *
+     * @param sink The sink the files are written in
+     * @param manifest The generation manifest, {@code null} if the generation is not incremental
+     * @param report The report of the generated files
+     * @param generatedFiles The files generated since the last commit, recorded in the manifest once they are published
+     * @param listener The listener of the progress of the generation
+     * @param cancelled Set when the generation is cancelled
+     */
+    private record Generation(String model, GenerationSink sink, GenerationManifest manifest, GenerationReport report, Queue<GeneratedFile> generatedFiles, GenerationListener listener, AtomicBoolean cancelled) {
+
+        private Generation(String model, GenerationSink sink, GenerationManifest manifest) {
+            this(model, sink, manifest, GenerationListener.NONE, new AtomicBoolean());
+        }
+
+        private Generation(String model, GenerationSink sink, GenerationManifest manifest, GenerationListener listener, AtomicBoolean cancelled) {
+            this(model, sink, manifest, new GenerationReport(), new ConcurrentLinkedQueue<>(), listener, cancelled);
+        }
+
+        /**
+         * Get the state of the generation of one of the models generated together, sharing the sink, manifest and report of this generation.
+         */
+        private Generation of(String model) {
+            return new Generation(model, sink, manifest, report, generatedFiles, listener, cancelled);
+        }
+
+        private void checkCancelled() {
+            if (cancelled.get())
+                throw new CancellationException(String.format("Generation of model %s cancelled", model));
+        }
+    }
+
+    private record GeneratedFile(String path, File file, String templateHash, String inputsHash, String outputHash) { }
 }
@@ -0,0 +1,325 @@
+package dev.vinyard.blueprinter.core.generation;
+
+import dev.vinyard.blueprinter.core.utils.HashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.velocity.context.Context;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Manifest of the generated files of a workspace.
+ * <p>For each generated file, the manifest records the hash of its template, the hash of the inputs of its directive and the hash of the generated content.</p>
+ * <p>A directive whose template and inputs did not change since its file was generated, and whose file was not modified since, does not need to be rendered again.</p>
+ * <p>The manifest is a properties file keyed by the path of the generated file relative to the home directory. It is safe to use from several threads,
+ * the generations of a home directory share one manifest.</p>
+ * <p>Several processes may generate in the same home directory. The manifest only saves the files it recorded or forgot, merged with the entries saved
+ * by the other processes, under a lock of the manifest file.</p>
+ */
+@Slf4j
+public class GenerationManifest {
+
+    public static final String MANIFEST_FILE = "generation.manifest";
+
+    private static final String SEPARATOR = " ";
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private final File file;
+
+    private final ConcurrentMap<String, Entry> entries;
+
+    private final Set<String> changes = ConcurrentHashMap.newKeySet();
+
+    private GenerationManifest(File file, ConcurrentMap<String, Entry> entries) {
+        this.file = file;
+        this.entries = entries;
+    }
+
+    /**
+     * Load the manifest stored in the given file.
+     * <p>A missing or unreadable manifest is an empty manifest, every directive is then rendered again.</p>
+     *
+     * @param file The manifest file
+     * @return The manifest
+     */
+    public static GenerationManifest load(File file) {
+        ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+        try {
+            entries.putAll(read(file));
+        } catch (IOException e) {
+            log.warn("Generation manifest {} cannot be read, all the directives will be processed : {}", file.getAbsolutePath(), e.getMessage());
+        }
+
+        return new GenerationManifest(file, entries);
+    }
+
+    private static Map<String, Entry> read(File file) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+
+        if (file.isFile()) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            properties.stringPropertyNames().forEach(key -> Entry.parse(properties.getProperty(key)).ifPresent(e -> entries.put(key, e)));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Check if the given generated file is up to date.
+     * <p>The file is up to date if it was generated from the same template and the same inputs, and if it was not modified since.</p>
+     * <p>The file is first compared by size and modification time, its content is only hashed when its modification time changed.</p>
+     *
+     * @param path The path of the generated file, relative to the home directory
+     * @param output The generated file
+     * @param templateHash The hash of the template, {@code null} if it cannot be known
+     * @param inputsHash The hash of the inputs of the directive, {@code null} if they cannot be known, see {@link #hashInputs(Context, Set, String...)}
+     * @return {@code true} if the file does not need to be generated again
+     * @throws IOException if the generated file cannot be read
+     */
+    public boolean isUpToDate(String path, File output, String templateHash, String inputsHash) throws IOException {
+        Entry entry = entries.get(path);
+
+        if (entry == null || templateHash == null || inputsHash == null || !entry.templateHash().equals(templateHash) || !entry.inputsHash().equals(inputsHash))
+            return false;
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(output.toPath(), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+
+        if (attributes.size() != entry.size())
+            return false;
+
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        if (lastModified == entry.lastModified())
+            return true;
+
+        if (!HashUtils.hash(output.toPath()).equals(entry.outputHash()))
+            return false;
+
+        entries.put(path, new Entry(entry.templateHash(), entry.inputsHash(), entry.outputHash(), entry.size(), lastModified));
+        changes.add(path);
+        return true;
+    }
+
+    /**
+     * Record the given file as generated from the given template and inputs.
+     *
+     * @param path The path of the generated file, relative to the home directory
+     * @param output The generated file
+     * @param templateHash The hash of the template, {@code null} if it cannot be known
+     * @param inputsHash The hash of the inputs of the directive, {@code null} if they cannot be known
+     * @throws IOException if the generated file cannot be read
+     */
+    public void record(String path, File output, String templateHash, String inputsHash) throws IOException {
+        record(path, output, templateHash, inputsHash, HashUtils.hash(output.toPath()));
+    }
+
+    /**
+     * Record the given file as generated from the given template and inputs, with the given content hash.
+     *
+     * @param path The path of the generated file, relative to the home directory
+     * @param output The generated file
+     * @param templateHash The hash of the template, {@code null} if it cannot be known
+     * @param inputsHash The hash of the inputs of the directive, {@code null} if they cannot be known
+     * @param outputHash The hash of the content of the generated file
+     * @throws IOException if the generated file cannot be read
+     */
+    public void record(String path, File output, String templateHash, String inputsHash, String outputHash) throws IOException {
+        // a file whose template or inputs cannot be known is always generated again
+        if (templateHash == null || inputsHash == null) {
+            forget(path);
+            return;
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(output.toPath(), BasicFileAttributes.class);
+        entries.put(path, new Entry(templateHash, inputsHash, outputHash, attributes.size(), attributes.lastModifiedTime().toMillis()));
+        changes.add(path);
+    }
+
+    /**
+     * Remove the given file from the manifest, it will be generated again on the next generation.
+     *
+     * @param path The path of the generated file, relative to the home directory
+     */
+    public void forget(String path) {
+        if (entries.remove(path) != null)
+            changes.add(path);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Save the files recorded or forgotten since the last save in the manifest file.
+     * <p>The manifest file is locked, read again and merged : the files recorded or forgotten by this manifest replace the saved ones,
+     * the other saved files are kept, and are loaded in this manifest.</p>
+     * <p>The manifest is written in a temporary file then moved over the previous one, so a failed save never leaves a truncated manifest.</p>
+     *
+     * @throws IOException if the manifest cannot be written
+     */
+    public synchronized void save() throws IOException {
+        if (changes.isEmpty())
+            return;
+
+        Path target = file.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+
+        // the lock is released when its channel is closed
+        try (FileChannel lock = FileChannel.open(target.resolveSibling(file.getName() + LOCK_SUFFIX), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            lock.lock();
+            Map<String, Entry> saved = this.readSaved();
+
+            // a path changed again while the manifest is saved stays in the changes, it is saved on the next save
+            for (String path : changes) {
+                changes.remove(path);
+                Optional.ofNullable(entries.get(path)).ifPresentOrElse(entry -> saved.put(path, entry), () -> saved.remove(path));
+            }
+
+            // the files saved by the other processes are adopted, unless they changed again in this manifest
+            entries.keySet().removeIf(path -> !saved.containsKey(path) && !changes.contains(path));
+            saved.forEach((path, entry) -> {
+                if (!changes.contains(path))
+                    entries.put(path, entry);
+            });
+
+            write(target, saved);
+        }
+
+        log.debug("Generation manifest {} saved with {} files.", file.getAbsolutePath(), entries.size());
+    }
+
+    private Map<String, Entry> readSaved() {
+        try {
+            return read(file);
+        } catch (IOException e) {
+            log.warn("Generation manifest {} cannot be read, it is replaced : {}", file.getAbsolutePath(), e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    private static void write(Path target, Map<String, Entry> entries) throws IOException {
+        Properties properties = new Properties();
+        entries.forEach((key, entry) -> properties.setProperty(key, entry.format()));
+
+        Path temporary = Files.createTempFile(target.getParent(), MANIFEST_FILE, ".tmp");
+
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                properties.store(writer, "BluePrinter generation manifest");
+            }
+
+            try {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Hash the inputs of a directive.
+     * <p>The inputs are the given attributes of the directive and the values of the given variables in the given context, chained contexts included.
+     * A variable missing from the context is an input too, the directive is generated again once it is set.</p>
+     * <p>Data values are texts, numbers, booleans, enums, and collections or maps of them. Other values, like the tools of the plugins or the objects
+     * created by the setup, cannot be compared between generations : a directive reading one of them has no inputs hash, it is always generated again.</p>
+     *
+     * @param context The velocity context of the directive
+     * @param variables The root names of the variables read by the template and the output path of the directive, {@code null} if they cannot be known
+     * @param attributes The attributes of the directive, like its template and its output path
+     * @return The hexadecimal hash of the inputs, or {@code null} if the variables cannot be known or if one of them is not a data value
+     */
+    public static String hashInputs(Context context, Set<String> variables, String... attributes) {
+        if (variables == null)
+            return null;
+
+        SortedMap<String, String> values = new TreeMap<>();
+
+        for (String variable : variables) {
+            Object value = context.get(variable);
+
+            if (value == null) {
+                values.put(variable, null);
+                continue;
+            }
+
+            Optional<String> data = toData(value);
+            if (data.isEmpty())
+                return null;
+
+            values.put(variable, data.get());
+        }
+
+        StringBuilder inputs = new StringBuilder();
+        Arrays.stream(attributes).forEach(a -> inputs.append(a).append('\0'));
+        values.forEach((key, value) -> inputs.append(key).append(value == null ? "\1" : "=" + value).append('\0'));
+
+        return HashUtils.hash(inputs.toString());
+    }
+
+    private static Optional<String> toData(Object value) {
+        if (value instanceof CharSequence || value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum<?>)
+            return Optional.of(String.valueOf(value));
+
+        if (value instanceof Collection<?> collection) {
+            List<String> data = new ArrayList<>();
+            for (Object element : collection) {
+                Optional<String> d = toData(element);
+                if (d.isEmpty())
+                    return Optional.empty();
+                data.add(d.get());
+            }
+            return Optional.of(data.toString());
+        }
+
+        if (value instanceof Map<?, ?> map) {
+            SortedMap<String, String> data = new TreeMap<>();
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                Optional<String> d = toData(e.getValue());
+                if (d.isEmpty())
+                    return Optional.empty();
+                data.put(String.valueOf(e.getKey()), d.get());
+            }
+            return Optional.of(data.toString());
+        }
+
+        return Optional.empty();
+    }
+
+    private record Entry(String templateHash, String inputsHash, String outputHash, long size, long lastModified) {
+
+        private String format() {
+            return String.join(SEPARATOR, templateHash, inputsHash, outputHash, String.valueOf(size), String.valueOf(lastModified));
+        }
+
+        private static Optional<Entry> parse(String value) {
+            String[] parts = value.split(SEPARATOR);
+
+            if (parts.length != 5)
+                return Optional.empty();
+
+            try {
+                return Optional.of(new Entry(parts[0], parts[1], parts[2], Long.parseLong(parts[3]), Long.parseLong(parts[4])));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package dev.vinyard.blueprinter.core.generation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Report of a generation.
+ * <p>Count the files of the processed directives by outcome :</p>
+ * <ul>
+ *     <li>written : the file has been created or its content has changed</li>
+ *     <li>unchanged : the file has been rendered with the content it already had, so it has not been touched</li>
+ *     <li>skipped : the directive has not been rendered, because its file already exists and must not be overridden, or because it is up to date</li>
+ * </ul>
+ * <p>The report is safe to update from several threads.</p>
+ */
+public class GenerationReport {
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder unchanged = new LongAdder();
+
+    private final LongAdder skipped = new LongAdder();
+
+    void addWritten() {
+        written.increment();
+    }
+
+    void addUnchanged() {
+        unchanged.increment();
+    }
+
+    void addSkipped() {
+        skipped.increment();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getUnchangedCount() {
+        return unchanged.sum();
+    }
+
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    public long getTotalCount() {
+        return getWrittenCount() + getUnchangedCount() + getSkippedCount();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d files written, %d unchanged, %d skipped.", getWrittenCount(), getUnchangedCount(), getSkippedCount());
+    }
+}
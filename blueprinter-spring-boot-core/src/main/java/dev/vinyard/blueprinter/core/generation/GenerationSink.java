@@ -0,0 +1,69 @@
+package dev.vinyard.blueprinter.core.generation;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of the files generated by the directives.
+ * <p>Files are identified by their path relative to the root of the sink, with {@code /} separators.</p>
+ * <p>Directives may be processed in parallel, so a sink must accept concurrent writes.</p>
+ *
+ * @see FileSystemGenerationSink
+ * @see InMemoryGenerationSink
+ * @see ZipGenerationSink
+ * @see TransactionalGenerationSink
+ */
+public interface GenerationSink extends Closeable {
+
+    /**
+     * Check if a file exists in the sink.
+     * <p>A directive that must not override its file is skipped if its file exists.</p>
+     *
+     * @param path The path of the file, relative to the root of the sink
+     * @return {@code true} if the file exists
+     */
+    boolean exists(String path);
+
+    /**
+     * Write a generated file in the sink.
+     *
+     * @param path The path of the file, relative to the root of the sink
+     * @param content The generated content
+     * @return {@code true} if the file has been written, {@code false} if it already had this content and has been left untouched
+     * @throws IOException if the file cannot be written
+     */
+    boolean write(String path, byte[] content) throws IOException;
+
+    /**
+     * Check if the sink holds the written files until they are committed.
+     *
+     * @return {@code true} if the written files are only visible once {@link #commit()} succeeds
+     */
+    default boolean isTransactional() {
+        return false;
+    }
+
+    /**
+     * Publish the files written since the last commit, once all the directives of a generation succeeded.
+     *
+     * @throws IOException if the files cannot be published, the sink is then left as it was before the generation
+     */
+    default void commit() throws IOException {
+    }
+
+    /**
+     * Discard the files written since the last commit, when a directive of the generation failed.
+     * <p>A sink that is not transactional keeps the files already written.</p>
+     */
+    default void rollback() {
+    }
+
+    /**
+     * Release the resources of the sink once the generation is done.
+     *
+     * @throws IOException if the sink cannot be completed
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,52 @@
+package dev.vinyard.blueprinter.core.generation;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sink keeping the generated files in memory.
+ * <p>Nothing is written on disk, so it can be used for a dry run, to preview the files a model would generate.</p>
+ */
+public class InMemoryGenerationSink implements GenerationSink {
+
+    private final ConcurrentSkipListMap<String, byte[]> files = new ConcurrentSkipListMap<>();
+
+    @Override
+    public boolean exists(String path) {
+        return files.containsKey(path);
+    }
+
+    @Override
+    public boolean write(String path, byte[] content) {
+        byte[] previous = files.put(path, content.clone());
+        return !Arrays.equals(previous, content);
+    }
+
+    /**
+     * Get the generated files.
+     *
+     * @return The content of the generated files, sorted by path
+     */
+    public SortedMap<String, byte[]> getFiles() {
+        return Collections.unmodifiableSortedMap(files);
+    }
+
+    /**
+     * Get the content of a generated file.
+     *
+     * @param path The path of the file
+     * @param charset The charset the file was encoded with, the charset of the templates, see {@link dev.vinyard.blueprinter.core.template.TemplateCache#getCharset()}
+     * @return The content of the file, empty if the file has not been generated
+     */
+    public Optional<String> getContent(String path, Charset charset) {
+        return Optional.ofNullable(files.get(path)).map(c -> new String(c, charset));
+    }
+
+    public int size() {
+        return files.size();
+    }
+}
@@ -0,0 +1,171 @@
+package dev.vinyard.blueprinter.core.generation;
+
+import dev.vinyard.blueprinter.core.model.ValidatedModel;
+import dev.vinyard.blueprinter.core.model.entities.*;
+import dev.vinyard.blueprinter.core.model.entities.Properties;
+import dev.vinyard.blueprinter.core.template.ExpressionEvaluator;
+import dev.vinyard.blueprinter.core.template.TemplateAnalyzer;
+import dev.vinyard.blueprinter.core.template.TemplateCache;
+import org.apache.velocity.exception.VelocityException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Dependencies between the directives, the properties and the prompts of a model, found by static analysis, see {@link TemplateAnalyzer}.
+ * <p>The variables used by a generation are the ones read by the templates and the output paths of the directives,
+ * then, transitively, the ones read by the values of the used properties and by the labels, values and default values of the used prompts.
+ * The properties and the prompts which are not used do not need to be evaluated or resolved.</p>
+ * <p>The properties and the prompts which may set variables, like the setup inputs, are always used.</p>
+ * <p>The dependencies only depend on the model, they are built once per model. The templates and the variables of the output paths are taken from the summary
+ * of the directives collected when the model was loaded, see {@link ValidatedModel#templates()}, so the directives of a streamed model are not read for it.
+ * The variables of the templates are read from the {@link TemplateCache}, so the dependencies follow the changes of the templates.</p>
+ */
+final class ModelDependencies {
+
+    private final Model model;
+
+    private final Set<File> templates;
+
+    private final Set<String> directiveVariables;
+
+    private final Map<String, Set<String>> dependencies;
+
+    private final Set<String> assigningKeys;
+
+    private ModelDependencies(Model model, Set<File> templates, Set<String> directiveVariables, Map<String, Set<String>> dependencies, Set<String> assigningKeys) {
+        this.model = model;
+        this.templates = templates;
+        this.directiveVariables = directiveVariables;
+        this.dependencies = dependencies;
+        this.assigningKeys = assigningKeys;
+    }
+
+    /**
+     * Find the dependencies of the given model.
+     *
+     * @param validatedModel The validated model
+     * @param expressionEvaluator The evaluator compiling the templated strings of the model
+     * @return The dependencies of the model
+     */
+    static ModelDependencies of(ValidatedModel validatedModel, ExpressionEvaluator expressionEvaluator) {
+        Model model = validatedModel.model();
+
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        Set<String> assigningKeys = new HashSet<>();
+
+        for (Property property : Optional.of(model).map(Model::getProperties).map(Properties::getPropertyList).orElseGet(Collections::emptyList))
+            addDependencies(expressionEvaluator, property.getKey(), Stream.of(property.getValue()), dependencies, assigningKeys);
+
+        Optional.of(model).map(Model::getPrompts).stream()
+                .flatMap(p -> Stream.of(p.getMultiSelectList(), p.getMonoSelectList(), p.getStringInputList(), p.getSetupInputList()))
+                .filter(Objects::nonNull).flatMap(List::stream).map(PromptType.class::cast)
+                .forEach(prompt -> {
+                    addDependencies(expressionEvaluator, prompt.getValue(), strings(prompt), dependencies, assigningKeys);
+                    if (prompt instanceof SetupInput)
+                        assigningKeys.add(prompt.getValue());
+                });
+
+        return new ModelDependencies(model, validatedModel.templates(), validatedModel.variables(), dependencies, Set.copyOf(assigningKeys));
+    }
+
+    /**
+     * The templated strings of the given prompt, as evaluated by the prompt providers.
+     */
+    private static Stream<String> strings(PromptType prompt) {
+        Stream<String> strings = switch (prompt) {
+            case MonoSelect monoSelect -> Optional.ofNullable(monoSelect.getValueList()).stream().flatMap(List::stream).flatMap(v -> Stream.of(v.getKey(), v.getContent()));
+            case MultiSelect multiSelect -> Optional.ofNullable(multiSelect.getValueList()).stream().flatMap(List::stream).flatMap(v -> Stream.of(v.getKey(), v.getContent()));
+            case StringInput stringInput -> Optional.ofNullable(stringInput.getDefaultValue()).map(DefaultValue::getContent).stream();
+            case SetupInput setupInput -> Optional.ofNullable(setupInput.getSetup()).map(Setup::getContent).stream();
+            default -> Stream.empty();
+        };
+
+        return Stream.concat(Stream.of(prompt.getValue()), strings);
+    }
+
+    /**
+     * Record the variables read by the given strings as the dependencies of the given key, {@code null} if they cannot be known.
+     */
+    private static void addDependencies(ExpressionEvaluator expressionEvaluator, String key, Stream<String> strings, Map<String, Set<String>> dependencies, Set<String> assigningKeys) {
+        if (key == null)
+            return;
+
+        // a key both declared as a property and resolved by a prompt depends on the strings of both
+        Set<String> variables = dependencies.containsKey(key) ? dependencies.get(key) : new HashSet<>();
+
+        for (String source : (Iterable<String>) strings::iterator) {
+            if (variables == null)
+                break;
+
+            if (source == null)
+                continue;
+
+            try {
+                ExpressionEvaluator.CompiledExpression expression = expressionEvaluator.compile(source);
+                if (expression.assigns())
+                    assigningKeys.add(key);
+                if (expression.variables() == null)
+                    variables = null;
+                else
+                    variables.addAll(expression.variables());
+            } catch (VelocityException e) {
+                // the string fails when it is evaluated, it is kept so the failure is reported
+                assigningKeys.add(key);
+                variables = null;
+            }
+        }
+
+        dependencies.put(key, variables);
+    }
+
+    Model model() {
+        return model;
+    }
+
+    /**
+     * Find the properties and the prompts used by a generation of the model.
+     *
+     * @param templateCache The cache of the compiled templates, holding the variables of each template
+     * @return The keys of the used properties and prompts, or {@code null} if all of them may be used
+     */
+    Set<String> getUsedKeys(TemplateCache templateCache) {
+        if (directiveVariables == null)
+            return null;
+
+        Set<String> variables = new HashSet<>(directiveVariables);
+        variables.addAll(assigningKeys);
+
+        for (File template : templates) {
+            try {
+                Set<String> templateVariables = templateCache.getVariables(template);
+                if (templateVariables == null)
+                    return null;
+                variables.addAll(templateVariables);
+            } catch (IOException | VelocityException e) {
+                // the directive fails when it is rendered, all the keys are kept so the failure is the same as without analysis
+                return null;
+            }
+        }
+
+        Set<String> used = new HashSet<>();
+        Deque<String> keys = new ArrayDeque<>(variables);
+
+        while (!keys.isEmpty()) {
+            String key = keys.pop();
+
+            if (!dependencies.containsKey(key) || !used.add(key))
+                continue;
+
+            Set<String> keyDependencies = dependencies.get(key);
+            if (keyDependencies == null)
+                return null;
+
+            keys.addAll(keyDependencies);
+        }
+
+        return used;
+    }
+}
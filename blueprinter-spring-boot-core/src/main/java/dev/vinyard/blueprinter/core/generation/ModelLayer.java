@@ -0,0 +1,68 @@
+package dev.vinyard.blueprinter.core.generation;
+
+import dev.vinyard.blueprinter.core.environment.ResolvedEnvironment;
+import dev.vinyard.blueprinter.core.model.entities.Model;
+import dev.vinyard.blueprinter.core.model.entities.Properties;
+import dev.vinyard.blueprinter.core.model.entities.Property;
+import dev.vinyard.blueprinter.core.model.entities.Setup;
+import dev.vinyard.blueprinter.core.template.TemplateExpression;
+import dev.vinyard.blueprinter.core.utils.VelocityUtils;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.context.Context;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Read only layer of velocity context holding the static properties of a model.
+ * <p>A model property is static when it is a literal, or when it only references static environment properties.
+ * It is then evaluated once and shared by all the generations of the model, the other properties are evaluated on each generation, in declaration order.</p>
+ * <p>All the properties of a model with a setup are dynamic, as the setup may set variables read by the properties.</p>
+ *
+ * @param model The model the layer is built from
+ * @param environment The resolved environment the layer is built from
+ * @param environmentContext The environment layer the layer is chained to
+ * @param context The read only context of the static properties
+ * @param dynamicProperties The properties to evaluate on each generation
+ */
+record ModelLayer(Model model, ResolvedEnvironment environment, Context environmentContext, VelocityContext context, List<Property> dynamicProperties) {
+
+    /**
+     * Build the layer of the given model.
+     *
+     * @param model The model
+     * @param environment The resolved environment
+     * @param environmentContext The environment layer, see {@link ResolvedEnvironment#getContext(Context)}
+     * @return The layer of the model
+     */
+    static ModelLayer of(Model model, ResolvedEnvironment environment, Context environmentContext) {
+        List<Property> properties = Optional.of(model).map(Model::getProperties).map(Properties::getPropertyList).orElseGet(Collections::emptyList);
+        boolean hasSetup = Optional.of(model).map(Model::getSetup).map(Setup::getContent).isPresent();
+
+        Set<String> dynamicKeys = environment.getDynamicProperties().stream().map(p -> p.getKey()).collect(Collectors.toCollection(HashSet::new));
+        Set<String> modelKeys = properties.stream().map(Property::getKey).collect(Collectors.toSet());
+        Map<String, String> staticValues = environment.getStaticProperties();
+
+        Map<String, Object> values = new HashMap<>();
+        List<Property> dynamicProperties = new ArrayList<>();
+
+        for (Property property : properties) {
+            TemplateExpression expression = TemplateExpression.of(property.getValue());
+
+            boolean isStatic = !hasSetup && switch (expression.kind()) {
+                case LITERAL -> true;
+                case REFERENCES -> expression.references().stream().allMatch(r -> staticValues.containsKey(r) && !modelKeys.contains(r));
+                case VELOCITY -> false;
+            };
+
+            if (isStatic && !dynamicKeys.contains(property.getKey())) {
+                values.put(property.getKey(), expression.substitute(staticValues::get));
+            } else {
+                dynamicKeys.add(property.getKey());
+                dynamicProperties.add(property);
+            }
+        }
+
+        return new ModelLayer(model, environment, environmentContext, VelocityUtils.freeze(values, environmentContext), List.copyOf(dynamicProperties));
+    }
+}
@@ -0,0 +1,253 @@
+package dev.vinyard.blueprinter.core.generation;
+
+import dev.vinyard.blueprinter.core.utils.FileUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sink writing the generated files in a directory, all at once or not at all.
+ * <p>Each file is first written in a temporary file next to its target, so it is on the same file system.
+ * The missing parent directories of the targets are created for the temporary files, they are deleted again if the files are not published.</p>
+ * <p>On {@link #commit()}, the temporary files are synced to the disk in one batch, then moved over their targets with atomic moves.
+ * A replaced file is kept as a hard link until all the files are published, so a failed publication restores the previous files.</p>
+ * <p>On {@link #rollback()}, the temporary files and the directories created for them are deleted, the directory is left untouched.</p>
+ */
+@Slf4j
+public class TransactionalGenerationSink extends FileSystemGenerationSink {
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final String BACKUP_SUFFIX = ".bak";
+
+    private final Map<String, Path> staged = new ConcurrentHashMap<>();
+
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param directory The directory the paths are relative to
+     * @param writeOnlyIfChanged {@code true} to leave untouched the files that already have the generated content
+     */
+    public TransactionalGenerationSink(File directory, boolean writeOnlyIfChanged) {
+        super(directory, writeOnlyIfChanged);
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return staged.containsKey(path) || super.exists(path);
+    }
+
+    @Override
+    public boolean write(String path, byte[] content) throws IOException {
+        File file = getFile(path);
+
+        if (isWriteOnlyIfChanged() && FileUtils.contentEquals(file, content)) {
+            Optional.ofNullable(staged.remove(path)).ifPresent(TransactionalGenerationSink::delete);
+            return false;
+        }
+
+        this.createParentDirectories(file.toPath());
+        Path temporary = siblingPath(file.toPath(), TEMPORARY_SUFFIX);
+        Files.write(temporary, content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        copyPermissions(file.toPath(), temporary);
+
+        Optional.ofNullable(staged.put(path, temporary)).ifPresent(TransactionalGenerationSink::delete);
+        return true;
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return true;
+    }
+
+    /**
+     * Publish the staged files.
+     * <p>The staged files are synced to the disk first, then each one is atomically moved over its target.</p>
+     * <p>If a file cannot be published, the files already published are restored and the staged files are deleted.</p>
+     *
+     * @throws IOException if the files cannot be published
+     */
+    @Override
+    public synchronized void commit() throws IOException {
+        if (staged.isEmpty())
+            return;
+
+        Map<Path, Path> files = new LinkedHashMap<>();
+        staged.forEach((path, temporary) -> files.put(getFile(path).toPath(), temporary));
+        staged.clear();
+
+        Deque<Publication> published = new ArrayDeque<>();
+
+        try {
+            for (Path temporary : files.values())
+                sync(temporary);
+
+            for (Map.Entry<Path, Path> file : files.entrySet())
+                published.push(publish(file.getKey(), file.getValue()));
+
+            files.keySet().stream().map(Path::getParent).distinct().forEach(TransactionalGenerationSink::syncDirectory);
+        } catch (IOException | RuntimeException e) {
+            log.error("Generated files cannot be published, {} published files are restored : {}", published.size(), e.getMessage());
+            published.forEach(TransactionalGenerationSink::restore);
+            files.values().forEach(TransactionalGenerationSink::delete);
+            this.deleteCreatedDirectories();
+            throw e;
+        }
+
+        createdDirectories.clear();
+        published.stream().map(Publication::backup).filter(Objects::nonNull).forEach(TransactionalGenerationSink::delete);
+        log.info("{} generated files published.", published.size());
+    }
+
+    @Override
+    public synchronized void rollback() {
+        staged.values().forEach(TransactionalGenerationSink::delete);
+        log.info("{} generated files discarded.", staged.size());
+        staged.clear();
+        this.deleteCreatedDirectories();
+    }
+
+    /**
+     * Create the missing parent directories of the given file, and remember them so they can be deleted if the file is not published.
+     *
+     * @param file The file
+     * @throws IOException if a directory cannot be created
+     */
+    private void createParentDirectories(Path file) throws IOException {
+        Deque<Path> missing = new ArrayDeque<>();
+        for (Path parent = file.getParent(); parent != null && !Files.isDirectory(parent); parent = parent.getParent())
+            missing.push(parent);
+
+        for (Path directory : missing) {
+            try {
+                Files.createDirectory(directory);
+                createdDirectories.add(directory);
+            } catch (FileAlreadyExistsException e) {
+                // created by a concurrent write
+                if (!Files.isDirectory(directory))
+                    throw e;
+            }
+        }
+    }
+
+    /**
+     * Delete the directories created for the staged files, the deepest first. A directory which is not empty any more is kept.
+     */
+    private void deleteCreatedDirectories() {
+        createdDirectories.stream().sorted(Comparator.comparingInt(Path::getNameCount).reversed()).forEach(directory -> {
+            try {
+                Files.deleteIfExists(directory);
+            } catch (DirectoryNotEmptyException e) {
+                log.debug("Directory {} is not empty, it is kept.", directory);
+            } catch (IOException e) {
+                log.warn("Directory {} cannot be deleted : {}", directory, e.getMessage());
+            }
+        });
+        createdDirectories.clear();
+    }
+
+    private static Publication publish(Path target, Path temporary) throws IOException {
+        Path backup = null;
+
+        if (Files.exists(target)) {
+            backup = siblingPath(target, BACKUP_SUFFIX);
+            try {
+                Files.createLink(backup, target);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(target, backup, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+
+        try {
+            move(temporary, target);
+        } catch (IOException | RuntimeException e) {
+            // the target is left as it was, its backup is not needed
+            if (backup != null)
+                delete(backup);
+            throw e;
+        }
+
+        return new Publication(target, backup);
+    }
+
+    /**
+     * Get a new hidden path next to the given file, so it is on the same file system and can be atomically moved over it.
+     * <p>Unlike a temporary file, the file created at this path gets the default permissions of a new file.</p>
+     *
+     * @param file The file
+     * @param suffix The suffix of the new path
+     * @return A path that does not exist yet
+     */
+    private static Path siblingPath(Path file, String suffix) {
+        return file.resolveSibling("." + file.getFileName() + "." + UUID.randomUUID() + suffix);
+    }
+
+    /**
+     * Give the permissions of the existing file to its replacement, as a file rewritten in place keeps its permissions.
+     *
+     * @param file The file to replace
+     * @param replacement The replacement
+     */
+    private static void copyPermissions(Path file, Path replacement) {
+        try {
+            if (Files.exists(file) && Files.getFileStore(file).supportsFileAttributeView(PosixFileAttributeView.class))
+                Files.setPosixFilePermissions(replacement, Files.getPosixFilePermissions(file));
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("Permissions of {} cannot be copied : {}", file, e.getMessage());
+        }
+    }
+
+    private static void restore(Publication publication) {
+        try {
+            if (publication.backup() != null)
+                move(publication.backup(), publication.target());
+            else
+                Files.deleteIfExists(publication.target());
+        } catch (IOException e) {
+            log.error("Generated file {} cannot be restored : {}", publication.target(), e.getMessage());
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void sync(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Sync a directory, so the moves of its files are durable. Some platforms cannot open a directory, the sync is then skipped.
+     *
+     * @param directory The directory to sync
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Directory {} cannot be synced : {}", directory, e.getMessage());
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Temporary file {} cannot be deleted : {}", path, e.getMessage());
+        }
+    }
+
+    private record Publication(Path target, Path backup) { }
+}
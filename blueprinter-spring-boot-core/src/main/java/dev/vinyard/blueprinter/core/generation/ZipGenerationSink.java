@@ -0,0 +1,57 @@
+package dev.vinyard.blueprinter.core.generation;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Sink streaming the generated files in a zip archive.
+ * <p>Each file is written as an entry as soon as it is generated, so the archive can be sent straight to an HTTP response or a build artifact.</p>
+ * <p>A zip archive cannot hold the same entry twice, so a file can only be written once.</p>
+ * <p>The archive is completed when the sink is closed, the given output stream is left open.</p>
+ */
+public class ZipGenerationSink implements GenerationSink {
+
+    private final ZipOutputStream zipOutputStream;
+
+    private final Set<String> entries = new HashSet<>();
+
+    public ZipGenerationSink(OutputStream outputStream) {
+        this.zipOutputStream = new ZipOutputStream(new BufferedOutputStream(outputStream));
+    }
+
+    @Override
+    public synchronized boolean exists(String path) {
+        return entries.contains(toEntryName(path));
+    }
+
+    @Override
+    public synchronized boolean write(String path, byte[] content) throws IOException {
+        String name = toEntryName(path);
+
+        if (!entries.add(name))
+            throw new IOException(String.format("File %s has already been written in the archive.", name));
+
+        zipOutputStream.putNextEntry(new ZipEntry(name));
+        zipOutputStream.write(content);
+        zipOutputStream.closeEntry();
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        zipOutputStream.finish();
+        zipOutputStream.flush();
+    }
+
+    private static String toEntryName(String path) {
+        String name = path.replace('\\', '/');
+        while (name.startsWith("/") || name.startsWith("./"))
+            name = name.substring(name.startsWith("/") ? 1 : 2);
+        return name;
+    }
+}
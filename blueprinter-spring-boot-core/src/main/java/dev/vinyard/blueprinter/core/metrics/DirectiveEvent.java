@@ -0,0 +1,25 @@
+package dev.vinyard.blueprinter.core.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a step of a directive, see {@link GenerationMetrics.Step}.
+ */
+@Name("dev.vinyard.blueprinter.Directive")
+@Label("Directive")
+@Category("BluePrinter")
+@Description("Render or write step of a directive")
+public class DirectiveEvent extends Event {
+
+    @Label("Model")
+    String model;
+
+    @Label("Directive")
+    String directive;
+
+    @Label("Template")
+    String template;
+
+    @Label("Step")
+    String step;
+}
@@ -0,0 +1,16 @@
+package dev.vinyard.blueprinter.core.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a whole generation.
+ */
+@Name("dev.vinyard.blueprinter.Generation")
+@Label("Generation")
+@Category("BluePrinter")
+@Description("Generation of a model")
+public class GenerationEvent extends Event {
+
+    @Label("Model")
+    String model;
+}
@@ -0,0 +1,256 @@
+package dev.vinyard.blueprinter.core.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Event;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Metrics of the generations.
+ * <p>Each phase of a generation and each step of a directive is timed with a Micrometer {@link Timer}, and recorded as a JDK Flight Recorder event :</p>
+ * <ul>
+ *     <li>{@value #GENERATION_TIMER} : whole generations, tagged with the model, see {@link GenerationEvent}</li>
+ *     <li>{@value #PHASE_TIMER} : phases of the generations, tagged with the model and the phase, see {@link GenerationPhaseEvent}</li>
+ *     <li>{@value #DIRECTIVE_TIMER} : render and write steps of the directives, tagged with the model, the directive, the template and the step, see {@link DirectiveEvent}</li>
+ *     <li>{@value #DIRECTIVE_COUNTER} : processed directives, tagged with the model, the directive and the outcome</li>
+ *     <li>{@value #PLUGIN_LOAD_TIMER} : loadings of the plugins, see {@link GenerationPhaseEvent}</li>
+ * </ul>
+ * <p>The meters are registered in the given registry, like the one of Spring Boot actuator, or in a private in memory registry.</p>
+ */
+public class GenerationMetrics {
+
+    public static final String GENERATION_TIMER = "blueprinter.generation";
+    public static final String PHASE_TIMER = "blueprinter.generation.phase";
+    public static final String DIRECTIVE_TIMER = "blueprinter.generation.directive";
+    public static final String DIRECTIVE_COUNTER = "blueprinter.generation.directives";
+    public static final String PLUGIN_LOAD_TIMER = "blueprinter.plugins.load";
+
+    private static final String NONE = "none";
+
+    /**
+     * Phases of a generation.
+     */
+    public enum Phase {
+        /** Check and load the model */
+        MODEL,
+        /** Load the plugins, or get the already loaded ones */
+        PLUGINS,
+        /** Load and resolve the environment, build the shared context layers */
+        ENVIRONMENT,
+        /** Create the context of the run and evaluate the dynamic environment properties */
+        CONTEXT,
+        /** Run the setup of the model */
+        SETUP,
+        /** Evaluate the dynamic model properties */
+        PROPERTIES,
+        /** Resolve the prompts */
+        PROMPTS,
+        /** Process the directives */
+        DIRECTIVES,
+        /** Commit the generated files */
+        COMMIT;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Steps of a directive.
+     */
+    public enum Step {
+        /** Render the template of the directive */
+        RENDER,
+        /** Write the rendered file in the sink */
+        WRITE;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    @Getter
+    private final MeterRegistry meterRegistry;
+
+    public GenerationMetrics() {
+        this(new SimpleMeterRegistry());
+    }
+
+    /**
+     * @param meterRegistry The registry the meters are registered in
+     */
+    public GenerationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Start timing a whole generation.
+     *
+     * @param model The name of the generated model
+     * @return The running timing, to close once the generation is done
+     */
+    public Timing generation(String model) {
+        GenerationEvent event = new GenerationEvent();
+        event.model = model;
+        return new Timing(Timer.builder(GENERATION_TIMER).description("Duration of the generations").tag("model", tag(model)), event);
+    }
+
+    /**
+     * Start timing a phase of a generation.
+     *
+     * @param model The name of the generated model
+     * @param phase The phase
+     * @return The running timing, to close once the phase is done
+     */
+    public Timing phase(String model, Phase phase) {
+        GenerationPhaseEvent event = new GenerationPhaseEvent();
+        event.model = model;
+        event.phase = phase.tag();
+        return new Timing(Timer.builder(PHASE_TIMER).description("Duration of the phases of the generations").tag("model", tag(model)).tag("phase", phase.tag()), event);
+    }
+
+    /**
+     * Start timing a step of a directive.
+     *
+     * @param model The name of the generated model
+     * @param directive The name of the directive
+     * @param template The template of the directive
+     * @param step The step
+     * @return The running timing, to close once the step is done
+     */
+    public Timing directive(String model, String directive, String template, Step step) {
+        DirectiveEvent event = new DirectiveEvent();
+        event.model = model;
+        event.directive = directive;
+        event.template = template;
+        event.step = step.tag();
+        return new Timing(Timer.builder(DIRECTIVE_TIMER).description("Duration of the steps of the directives")
+                .tag("model", tag(model)).tag("directive", tag(directive)).tag("template", tag(template)).tag("step", step.tag()), event);
+    }
+
+    /**
+     * Start timing a loading of the plugins.
+     *
+     * @return The running timing, to close once the plugins are loaded
+     */
+    public Timing pluginLoad() {
+        GenerationPhaseEvent event = new GenerationPhaseEvent();
+        event.phase = Phase.PLUGINS.tag();
+        return new Timing(Timer.builder(PLUGIN_LOAD_TIMER).description("Duration of the loadings of the plugins"), event);
+    }
+
+    /**
+     * Run the given code, timed by the given timing.
+     *
+     * @param timing The running timing, closed once the code is done
+     * @param code The timed code
+     * @return The result of the code
+     * @throws E if the code fails, the timing is closed anyway
+     */
+    public <T, E extends Exception> T time(Timing timing, TimedSupplier<T, E> code) throws E {
+        try (timing) {
+            return code.get();
+        }
+    }
+
+    /**
+     * Run the given code, timed by the given timing.
+     *
+     * @param timing The running timing, closed once the code is done
+     * @param code The timed code
+     * @throws E if the code fails, the timing is closed anyway
+     */
+    public <E extends Exception> void time(Timing timing, TimedRunnable<E> code) throws E {
+        try (timing) {
+            code.run();
+        }
+    }
+
+    /**
+     * Count a processed directive.
+     *
+     * @param model The name of the generated model
+     * @param directive The name of the directive
+     * @param outcome The outcome of the directive, like {@code written}, {@code unchanged}, {@code skipped} or {@code failed}
+     */
+    public void directiveProcessed(String model, String directive, String outcome) {
+        Counter.builder(DIRECTIVE_COUNTER).description("Number of processed directives")
+                .tag("model", tag(model)).tag("directive", tag(directive)).tag("outcome", outcome)
+                .register(meterRegistry).increment();
+    }
+
+    /**
+     * Get the meters of the generations.
+     *
+     * @return The meters whose name starts with {@code blueprinter.}
+     */
+    public List<Meter> getMeters() {
+        return meterRegistry.getMeters().stream().filter(m -> m.getId().getName().startsWith("blueprinter.")).toList();
+    }
+
+    private static String tag(String value) {
+        return Objects.requireNonNullElse(value, NONE);
+    }
+
+    /**
+     * Timed code returning a result.
+     */
+    @FunctionalInterface
+    public interface TimedSupplier<T, E extends Exception> {
+        T get() throws E;
+    }
+
+    /**
+     * Timed code.
+     */
+    @FunctionalInterface
+    public interface TimedRunnable<E extends Exception> {
+        void run() throws E;
+    }
+
+    /**
+     * Running timing of a generation, a phase or a step.
+     * <p>Closing the timing stops its timer and commits its flight recorder event.</p>
+     * <p>A timing times the code given to {@link #time(Timing, TimedSupplier)}, or is closed by the code reporting its duration.</p>
+     */
+    public class Timing implements AutoCloseable {
+
+        private final Timer.Builder timer;
+
+        private final Event event;
+
+        private final Timer.Sample sample;
+
+        private final long start = System.nanoTime();
+
+        private Timing(Timer.Builder timer, Event event) {
+            this.timer = timer;
+            this.event = event;
+            this.event.begin();
+            this.sample = Timer.start(meterRegistry);
+        }
+
+        /**
+         * Get the time elapsed since the timing started.
+         *
+         * @return The elapsed duration
+         */
+        public Duration elapsed() {
+            return Duration.ofNanos(System.nanoTime() - start);
+        }
+
+        @Override
+        public void close() {
+            sample.stop(timer.register(meterRegistry));
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package dev.vinyard.blueprinter.core.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a phase of a generation, see {@link GenerationMetrics.Phase}.
+ */
+@Name("dev.vinyard.blueprinter.GenerationPhase")
+@Label("Generation Phase")
+@Category("BluePrinter")
+@Description("Phase of the generation of a model")
+public class GenerationPhaseEvent extends Event {
+
+    @Label("Model")
+    String model;
+
+    @Label("Phase")
+    String phase;
+}
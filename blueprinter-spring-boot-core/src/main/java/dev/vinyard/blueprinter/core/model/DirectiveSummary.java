@@ -0,0 +1,65 @@
+package dev.vinyard.blueprinter.core.model;
+
+import dev.vinyard.blueprinter.core.model.entities.Directive;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Summary of the directives of a model, collected in the pass reading them.
+ * <p>The templates are checked and the output paths are analysed from the summary, the directives of a streamed model are not read again for it.</p>
+ *
+ * @param templates The distinct templates of the directives, as written in the model
+ * @param variables The root names of the variables read by the output paths of the directives, {@code null} if they cannot be known
+ */
+record DirectiveSummary(Set<String> templates, Set<String> variables) {
+
+    /**
+     * Summarize the given directives.
+     *
+     * @param directives The directives
+     * @param variableFinder The finder of the variables read by an output path, returning {@code null} if they cannot be known
+     * @return The summary of the directives
+     */
+    static DirectiveSummary of(Iterable<Directive> directives, Function<String, Set<String>> variableFinder) {
+        Collector collector = new Collector(variableFinder);
+        directives.forEach(d -> collector.add(d.getTemplate(), d.getValue()));
+        return collector.build();
+    }
+
+    /**
+     * Collector of the summary, fed with the directives one at a time.
+     */
+    static class Collector {
+
+        private final Function<String, Set<String>> variableFinder;
+
+        private final Set<String> templates = new LinkedHashSet<>();
+
+        private Set<String> variables = new HashSet<>();
+
+        Collector(Function<String, Set<String>> variableFinder) {
+            this.variableFinder = variableFinder;
+        }
+
+        void add(String template, String value) {
+            templates.add(template);
+
+            if (variables == null || value == null)
+                return;
+
+            Set<String> valueVariables = variableFinder.apply(value);
+            if (valueVariables == null)
+                variables = null;
+            else
+                variables.addAll(valueVariables);
+        }
+
+        DirectiveSummary build() {
+            return new DirectiveSummary(Collections.unmodifiableSet(templates), variables == null ? null : Set.copyOf(variables));
+        }
+    }
+}
@@ -1,28 +1,50 @@
 package dev.vinyard.blueprinter.core.model;
 
 import dev.vinyard.blueprinter.core.environment.EnvironmentManager;
-import dev.vinyard.blueprinter.core.environment.entities.Environment;
 import dev.vinyard.blueprinter.core.exception.BluePrinterException;
+import dev.vinyard.blueprinter.core.metrics.GenerationMetrics;
+import dev.vinyard.blueprinter.core.metrics.GenerationMetrics.Phase;
+import dev.vinyard.blueprinter.core.metrics.GenerationMetrics.Timing;
 import dev.vinyard.blueprinter.core.model.entities.Directive;
 import dev.vinyard.blueprinter.core.model.entities.Directives;
 import dev.vinyard.blueprinter.core.model.entities.Model;
+import dev.vinyard.blueprinter.core.model.entities.Properties;
+import dev.vinyard.blueprinter.core.model.entities.Property;
+import dev.vinyard.blueprinter.core.model.entities.PromptType;
+import dev.vinyard.blueprinter.core.support.WatchedFileCache;
+import dev.vinyard.blueprinter.core.template.ExpressionEvaluator;
 import dev.vinyard.blueprinter.core.template.TemplateManager;
+import dev.vinyard.blueprinter.core.template.TemplateSnapshot;
+import dev.vinyard.blueprinter.core.utils.CacheStatistics;
 import dev.vinyard.blueprinter.core.utils.DirectoryUtils;
 import dev.vinyard.blueprinter.core.utils.FileUtils;
-import dev.vinyard.blueprinter.core.utils.VelocityUtils;
+import dev.vinyard.blueprinter.core.workspace.WorkspaceIndex;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.velocity.VelocityContext;
+import org.apache.velocity.exception.VelocityException;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Manager for the models.
  * <p>Handle the creation, deletion, listing and loading of the models.</p>
+ * <p>Parsed models are cached until their configuration file changes, see {@link WatchedFileCache}.</p>
+ * <p>A configuration file larger than the streaming threshold is streamed, its directives and prompt values are read from the file when they are used, see {@link ModelStreamReader}.</p>
  */
 @Slf4j
 public class ModelManager {
@@ -35,9 +57,50 @@ public class ModelManager {
 
     private final TemplateManager templateManager;
 
-    public ModelManager(EnvironmentManager environmentManager, TemplateManager templateManager) {
+    private final ExpressionEvaluator expressionEvaluator;
+
+    private final WatchedFileCache<Model> modelCache;
+
+    private final WatchedFileCache<ModelStreamReader.StreamedModel> streamedModelCache;
+
+    private final long streamingThreshold;
+
+    private final GenerationMetrics metrics;
+
+    private final WorkspaceIndex workspaceIndex;
+
+    /**
+     * @param environmentManager The environment manager, used to find the model directory
+     * @param templateManager The template manager, used to resolve the templates of the directives
+     * @param expressionEvaluator The evaluator of the environment properties
+     * @param metrics The metrics timing the loading of the models
+     * @param workspaceIndex The index listing the models
+     * @param streamingThreshold The size in bytes above which a configuration file is streamed
+     */
+    public ModelManager(EnvironmentManager environmentManager, TemplateManager templateManager, ExpressionEvaluator expressionEvaluator, GenerationMetrics metrics, WorkspaceIndex workspaceIndex, long streamingThreshold) {
         this.environmentManager = environmentManager;
         this.templateManager = templateManager;
+        this.expressionEvaluator = expressionEvaluator;
+        this.metrics = metrics;
+        this.workspaceIndex = workspaceIndex;
+        this.streamingThreshold = streamingThreshold;
+        this.modelCache = new WatchedFileCache<>("model", xmlFile -> FileUtils.loadConfigurationFile(xmlFile, Model.class, FILE_LOCATION + SCHEMA_FILE));
+        this.streamedModelCache = new WatchedFileCache<>("streamed model", xmlFile -> ModelStreamReader.read(xmlFile, FILE_LOCATION + SCHEMA_FILE, this::getVariables));
+    }
+
+    /**
+     * Stop watching the model configuration files.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        this.modelCache.close();
+        this.streamedModelCache.close();
+    }
+
+    public CacheStatistics getModelCacheStatistics() {
+        return this.modelCache.getStatistics();
     }
 
     /**
@@ -56,6 +119,8 @@ public class ModelManager {
 
         File xsdFile = FileUtils.copyFile(FILE_LOCATION + SCHEMA_FILE, new File(modelFolder, SCHEMA_FILE));
         log.info("Model configuration validator file {} created.", xsdFile.getAbsolutePath());
+
+        this.workspaceIndex.refresh(modelFolder);
     }
 
     /**
@@ -70,6 +135,9 @@ public class ModelManager {
             throw new RuntimeException(String.format("Model %s does not exist.", name));
 
         DirectoryUtils.deleteFolder(modelFolder);
+        this.modelCache.invalidate(getConfigurationFile(name));
+        this.streamedModelCache.invalidate(getConfigurationFile(name));
+        this.workspaceIndex.refresh(modelFolder);
 
         log.info("Model {} deleted.", name);
     }
@@ -120,6 +188,192 @@ public class ModelManager {
      * @throws BluePrinterException if the model is not valid
      */
     public void checkModel(String name) throws BluePrinterException {
+        this.loadValidatedModel(name);
+    }
+
+    /**
+     * Check the templates of the directives of the model with the given name.
+     * <p>All the templates are resolved against a single snapshot of the template directory, see {@link TemplateManager#snapshot()},
+     * and all the missing templates are reported, the check does not stop at the first one.</p>
+     *
+     * @param name The name of the model to check
+     * @return The report of the missing templates
+     * @throws BluePrinterException if the model does not exist or if its configuration file is not valid
+     */
+    public ModelValidationReport checkTemplates(String name) throws BluePrinterException {
+        return this.checkTemplates(name, getDirectiveList(loadCheckedModel(name)), templateManager.snapshot());
+    }
+
+    /**
+     * Validate all the models of the workspace, see {@link #validate(Collection)}.
+     *
+     * @return The report of all the models
+     */
+    public WorkspaceValidationReport validateAll() {
+        return this.validate(findAllModels());
+    }
+
+    /**
+     * Validate the models with the given names, in parallel.
+     * <p>Each model is checked for :</p>
+     * <ul>
+     *     <li>a missing file, or a configuration file not valid given the schema</li>
+     *     <li>the missing templates of its directives</li>
+     *     <li>the prompts whose value is not declared in its properties</li>
+     *     <li>the directives writing the same output path, as written in the model : the paths depend on the values of a generation,
+     *     they are not evaluated, so two different expressions resolving to the same file are not reported</li>
+     * </ul>
+     * <p>The models are validated on a fork-join pool, they share the cached JAXB context and compiled schema, see {@link FileUtils},
+     * the cache of the parsed models and a single snapshot of the templates. A model is not generated, its templates are not parsed.</p>
+     * <p>The validation does not stop at the first invalid model, all the problems of all the models are reported.</p>
+     *
+     * @param names The names of the models to validate
+     * @return The report of the models, in the order of the given names
+     */
+    public WorkspaceValidationReport validate(Collection<String> names) {
+        TemplateSnapshot snapshot = templateManager.snapshot();
+
+        try (ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors())) {
+            return new WorkspaceValidationReport(pool.submit(() -> names.parallelStream().map(name -> this.validate(name, snapshot)).toList()).join());
+        }
+    }
+
+    private ModelValidationReport validate(String name, TemplateSnapshot snapshot) {
+        List<ModelValidationReport.Problem> problems = new ArrayList<>();
+
+        Model model;
+        try {
+            model = loadCheckedModel(name);
+        } catch (BluePrinterException | RuntimeException e) {
+            problems.add(new ModelValidationReport.Problem(ModelValidationReport.Type.INVALID_CONFIGURATION, null, e.getMessage()));
+
+            // the other problems are still looked for in a configuration file which is well-formed but not valid
+            Optional<Model> unvalidatedModel = loadUnvalidatedModel(name);
+            if (unvalidatedModel.isEmpty())
+                return new ModelValidationReport(name, problems);
+
+            model = unvalidatedModel.get();
+        }
+
+        Set<String> properties = Optional.of(model).map(Model::getProperties).map(Properties::getPropertyList).orElseGet(Collections::emptyList).stream()
+                .map(Property::getKey).collect(Collectors.toSet());
+
+        Optional.of(model).map(Model::getPrompts).stream()
+                .flatMap(p -> Stream.of(p.getMultiSelectList(), p.getMonoSelectList(), p.getStringInputList(), p.getSetupInputList()))
+                .filter(Objects::nonNull).flatMap(List::stream).map(PromptType.class::cast)
+                .filter(p -> p.getValue() != null && !properties.contains(p.getValue()))
+                .forEach(p -> problems.add(new ModelValidationReport.Problem(ModelValidationReport.Type.UNDECLARED_PROMPT, p.getValue(), String.format("Prompt %s is not declared in the properties.", p.getValue()))));
+
+        // a streamed directive list is read once
+        Map<String, String> outputs = new HashMap<>();
+        try {
+            for (Directive directive : getDirectiveList(model)) {
+                this.checkTemplate(directive, snapshot, problems);
+
+                // the unevaluated output paths are compared, see ModelValidationReport.Type#DUPLICATE_OUTPUT
+                String output = Optional.ofNullable(directive.getValue()).map(String::trim).orElse("");
+                String writer = outputs.putIfAbsent(output, directive.getName());
+                if (writer != null)
+                    problems.add(new ModelValidationReport.Problem(ModelValidationReport.Type.DUPLICATE_OUTPUT, directive.getName(), String.format("Output %s is also written by directive %s.", output, writer)));
+            }
+        } catch (RuntimeException e) {
+            problems.add(new ModelValidationReport.Problem(ModelValidationReport.Type.INVALID_CONFIGURATION, null, e.getMessage()));
+        }
+
+        log.debug("Model {} validated : {} problems.", name, problems.size());
+
+        return new ModelValidationReport(name, problems);
+    }
+
+    /**
+     * Load and validate the model with the given name, in a single pass.
+     * <p>The model is valid if :</p>
+     * <ul>
+     *     <li>The model folder exists</li>
+     *     <li>The model configuration file exists</li>
+     *     <li>The model configuration validator file exists</li>
+     *     <li>The model configuration file is valid</li>
+     *     <li>The templates of all the directives exist</li>
+     * </ul>
+     * <p>The configuration file is parsed once, and the template files of the directives are resolved in the returned handle.
+     * The templates are checked together, see {@link #checkTemplates(String)}.</p>
+     * <p>The distinct templates and the variables of the output paths are summarized in the pass reading the directives, see {@link DirectiveSummary} :
+     * the directives of a streamed model are not read again to be checked, they are only read again when the model is generated, or to report its missing templates.</p>
+     *
+     * @param name The name of the model to load
+     * @return The validated model
+     * @throws BluePrinterException if the model is not valid, with all its missing templates
+     */
+    public ValidatedModel loadValidatedModel(String name) throws BluePrinterException {
+        try (Timing timing = metrics.phase(name, Phase.MODEL)) {
+            File xmlFile = getCheckedConfigurationFile(name);
+
+            Model model;
+            DirectiveSummary directiveSummary;
+            if (xmlFile.length() > streamingThreshold) {
+                ModelStreamReader.StreamedModel streamedModel = this.streamedModelCache.get(xmlFile);
+                model = streamedModel.model();
+                directiveSummary = streamedModel.directiveSummary();
+            } else {
+                model = this.modelCache.get(xmlFile);
+                directiveSummary = DirectiveSummary.of(getDirectiveList(model), this::getVariables);
+            }
+
+            List<Directive> directiveList = getDirectiveList(model);
+
+            TemplateSnapshot snapshot = templateManager.snapshot();
+
+            // the directives are only read again to find the ones whose template is missing
+            if (!directiveSummary.templates().stream().allMatch(snapshot::exists))
+                throw new BluePrinterException(this.checkTemplates(name, directiveList, snapshot).toString());
+
+            List<ValidatedModel.ResolvedDirective> directives;
+            if (directiveList instanceof XmlElementList<Directive> streamedDirectives) {
+                // the templates are resolved again each time the directives are read
+                directives = streamedDirectives.map(d -> ValidatedModel.ResolvedDirective.of(d, snapshot));
+            } else {
+                directives = directiveList.stream()
+                        .map(d -> ValidatedModel.ResolvedDirective.of(d, snapshot))
+                        .toList();
+            }
+
+            log.info("Model {} is valid, loaded in {} ms.", name, timing.elapsed().toMillis());
+
+            Set<File> templates = directiveSummary.templates().stream().map(snapshot::resolve).collect(Collectors.toSet());
+
+            return new ValidatedModel(name, model, directives, templates, directiveSummary.variables());
+        }
+    }
+
+    /**
+     * Resolve the template of the given directive, as the directives of a validated model are resolved.
+     *
+     * @param directive The directive
+     * @return The directive with its template file, which may not exist
+     */
+    public ValidatedModel.ResolvedDirective resolveDirective(Directive directive) {
+        return ValidatedModel.ResolvedDirective.of(directive, templateManager.snapshot());
+    }
+
+    /**
+     * Load the model with the given name, after checking its files.
+     *
+     * @param name The name of the model to load
+     * @return The model
+     * @throws BluePrinterException if the folder or a file of the model does not exist, or if the configuration file is not valid
+     */
+    private Model loadCheckedModel(String name) throws BluePrinterException {
+        return loadConfigurationFile(getCheckedConfigurationFile(name));
+    }
+
+    /**
+     * Get the configuration file of the model with the given name, after checking the files of the model.
+     *
+     * @param name The name of the model
+     * @return The configuration file of the model
+     * @throws BluePrinterException if the folder or a file of the model does not exist
+     */
+    private File getCheckedConfigurationFile(String name) throws BluePrinterException {
         File modelFolder = getModelFolder(name);
 
         if (!modelFolder.exists()) {
@@ -136,23 +390,57 @@ public class ModelManager {
             throw new BluePrinterException(String.format("Model configuration validator file %s does not exist.", xsdFile.getName()));
         }
 
-        this.checkConfigurationFile(xmlFile);
+        return xmlFile;
+    }
+
+    /**
+     * Load the configuration file of the model with the given name without checking it against the schema.
+     *
+     * @param name The name of the model
+     * @return The model, empty if the configuration file does not exist, is not well-formed, or is too large to be loaded in memory
+     */
+    private Optional<Model> loadUnvalidatedModel(String name) {
+        File xmlFile = getConfigurationFile(name);
+
+        if (!xmlFile.isFile() || xmlFile.length() > streamingThreshold)
+            return Optional.empty();
 
-        log.info("Model {} is valid.", name);
+        try {
+            return Optional.of(FileUtils.loadUnvalidatedConfigurationFile(xmlFile, Model.class));
+        } catch (BluePrinterException e) {
+            return Optional.empty();
+        }
     }
 
     /**
-     * Check if the model configuration file is valid.
-     * <p>Loading the model configuration file and check if all the templates of the directives are valid.</p>
-     * @param xmlFile The model configuration file to check
-     * @throws BluePrinterException if the model configuration file is not valid
+     * Find the variables read by the given output path.
+     *
+     * @param value The output path of a directive
+     * @return The root names of the read variables, {@code null} if they cannot be known, as when the output path is not valid
      */
-    private void checkConfigurationFile(File xmlFile) throws BluePrinterException {
-        Model model = loadConfigurationFile(xmlFile);
+    private Set<String> getVariables(String value) {
+        try {
+            return expressionEvaluator.compile(value).variables();
+        } catch (VelocityException e) {
+            return null;
+        }
+    }
+
+    private static List<Directive> getDirectiveList(Model model) {
+        return Optional.of(model).map(Model::getDirectives).map(Directives::getDirectiveList).orElseGet(Collections::emptyList);
+    }
 
-        List<String> templates = Optional.of(model).map(Model::getDirectives).map(Directives::getDirectiveList).orElseGet(Collections::emptyList).stream().map(Directive::getTemplate).toList();
+    private ModelValidationReport checkTemplates(String name, List<Directive> directiveList, TemplateSnapshot snapshot) {
+        // a streamed directive list is read once
+        List<ModelValidationReport.Problem> problems = new ArrayList<>();
+        directiveList.forEach(d -> this.checkTemplate(d, snapshot, problems));
 
-        templates.forEach(templateManager::checkTemplate);
+        return new ModelValidationReport(name, problems);
+    }
+
+    private void checkTemplate(Directive directive, TemplateSnapshot snapshot, List<ModelValidationReport.Problem> problems) {
+        if (!snapshot.exists(directive.getTemplate()))
+            problems.add(new ModelValidationReport.Problem(ModelValidationReport.Type.MISSING_TEMPLATE, directive.getName(), String.format("Template %s does not exist.", directive.getTemplate())));
     }
 
     /**
@@ -167,21 +455,29 @@ public class ModelManager {
      */
     public Model loadModel(VelocityContext velocityContext, String name) throws BluePrinterException, IOException {
         File xmlFile = getConfigurationFile(name);
-        Environment environment = this.environmentManager.loadConfigurationFile();
-
-        log.info("Put environment properties on velocity context");
 
-        environment.getProperties().getPropertyList().forEach(property -> {
-            String value = VelocityUtils.processTemplate(velocityContext, property.getValue());
-            log.info("Put property on velocity context {} : {}", property.getKey(), value);
-            velocityContext.put(property.getKey(), value);
-        });
+        this.loadEnvironment(velocityContext);
 
         return loadConfigurationFile(xmlFile);
     }
 
+    /**
+     * Put the environment properties on the velocity context.
+     *
+     * @param velocityContext The velocity context to fill
+     * @throws BluePrinterException if the environment configuration file cannot be loaded
+     */
+    public void loadEnvironment(VelocityContext velocityContext) throws BluePrinterException {
+        log.info("Put environment properties on velocity context");
+
+        this.environmentManager.getResolvedEnvironment().putProperties(expressionEvaluator, velocityContext);
+    }
+
     private Model loadConfigurationFile(File xmlFile) throws BluePrinterException {
-        return FileUtils.loadConfigurationFile(xmlFile, Model.class, FILE_LOCATION + SCHEMA_FILE);
+        if (xmlFile.length() > streamingThreshold)
+            return this.streamedModelCache.get(xmlFile).model();
+
+        return this.modelCache.get(xmlFile);
     }
 
     private Model loadConfigurationFile(String xml) throws BluePrinterException {
@@ -190,9 +486,10 @@ public class ModelManager {
 
     /**
      * List all models.
+     * <p>The models are listed from the {@link WorkspaceIndex}, the model directory is not listed.</p>
      * @return List of all models names
      */
     public List<String> findAllModels() {
-        return DirectoryUtils.listFolders(environmentManager.getModelDirectory()).stream().map(File::getName).toList();
+        return workspaceIndex.getModels();
     }
 }
@@ -0,0 +1,315 @@
+package dev.vinyard.blueprinter.core.model;
+
+import dev.vinyard.blueprinter.core.exception.BluePrinterException;
+import dev.vinyard.blueprinter.core.model.entities.*;
+import dev.vinyard.blueprinter.core.utils.FileUtils;
+import jakarta.xml.bind.DatatypeConverter;
+import lombok.extern.slf4j.Slf4j;
+import org.xml.sax.SAXException;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.util.EventReaderDelegate;
+import javax.xml.transform.stax.StAXSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Streaming reader of the model configuration files, for the models whose directives and prompt values are too many to be kept in memory.
+ * <p>The file is read once with StAX, the events are validated against the schema as they are read, and the model is built from the same events :</p>
+ * <ul>
+ *     <li>the name, the dependencies, the properties and the prompts are kept in memory,</li>
+ *     <li>the directives and the values of the select prompts are only counted, their lists read them from the file each time they are iterated, see {@link XmlElementList}.</li>
+ *     <li>the templates and the variables of the output paths of the directives are summarized in the same pass, see {@link DirectiveSummary}.</li>
+ * </ul>
+ * <p>The returned model is equivalent to the one loaded by {@link FileUtils#loadConfigurationFile(File, Class, String)}, as long as its configuration file does not change.</p>
+ */
+@Slf4j
+public class ModelStreamReader {
+
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    static XMLStreamReader createStreamReader(InputStream inputStream) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(inputStream);
+    }
+
+    /**
+     * Model read by the streaming reader.
+     *
+     * @param model The model, whose directives and select values are read from the file when they are used
+     * @param directiveSummary The summary of the directives of the model, collected while the file was read
+     */
+    record StreamedModel(Model model, DirectiveSummary directiveSummary) { }
+
+    /**
+     * Read and validate the given model configuration file.
+     *
+     * @param xmlFile The model configuration file
+     * @param schemaLocation The classpath location of the schema of the model
+     * @return The model, whose directives and select values are read from the file when they are used
+     * @throws BluePrinterException if the file cannot be read, or if it is not valid given the schema
+     */
+    public static Model read(File xmlFile, String schemaLocation) throws BluePrinterException {
+        return read(xmlFile, schemaLocation, value -> null).model();
+    }
+
+    /**
+     * Read and validate the given model configuration file, and summarize its directives in the same pass.
+     *
+     * @param xmlFile The model configuration file
+     * @param schemaLocation The classpath location of the schema of the model
+     * @param variableFinder The finder of the variables read by an output path, returning {@code null} if they cannot be known
+     * @return The model and the summary of its directives
+     * @throws BluePrinterException if the file cannot be read, or if it is not valid given the schema
+     */
+    static StreamedModel read(File xmlFile, String schemaLocation, Function<String, Set<String>> variableFinder) throws BluePrinterException {
+        ModelBuilder builder = new ModelBuilder(xmlFile, xmlFile.lastModified(), xmlFile.length(), new DirectiveSummary.Collector(variableFinder));
+
+        try (InputStream inputStream = Files.newInputStream(xmlFile.toPath())) {
+            XMLEventReader eventReader = INPUT_FACTORY.createXMLEventReader(inputStream);
+
+            try {
+                // the validator pulls the events, the builder sees each of them once it has been validated
+                XMLEventReader observedReader = new EventReaderDelegate(eventReader) {
+                    @Override
+                    public XMLEvent nextEvent() throws XMLStreamException {
+                        return builder.accept(super.nextEvent());
+                    }
+
+                    @Override
+                    public Object next() {
+                        return builder.accept((XMLEvent) super.next());
+                    }
+                };
+
+                FileUtils.getSchema(schemaLocation).newValidator().validate(new StAXSource(observedReader));
+            } finally {
+                eventReader.close();
+            }
+        } catch (IOException | SAXException | XMLStreamException e) {
+            // the validation errors come wrapped by the transformation of the StAX source
+            Throwable cause = e;
+            while (cause.getCause() != null && cause.getCause() != cause)
+                cause = cause.getCause();
+
+            throw new BluePrinterException(Optional.ofNullable(cause.getMessage()).orElse("unknown"), e);
+        }
+
+        log.debug("Model configuration file {} streamed : {} directives.", xmlFile.getName(), builder.directives);
+
+        return new StreamedModel(builder.model, builder.directiveSummary.build());
+    }
+
+    private static Value readValue(XMLStreamReader reader) throws XMLStreamException {
+        Value value = new Value();
+        value.setKey(reader.getAttributeValue(null, "key"));
+        Optional.ofNullable(reader.getAttributeValue(null, "selected")).map(DatatypeConverter::parseBoolean).ifPresent(value::setSelected);
+        Optional.ofNullable(reader.getAttributeValue(null, "enabled")).map(DatatypeConverter::parseBoolean).ifPresent(value::setEnabled);
+        value.setContent(reader.getElementText());
+        return value;
+    }
+
+    private static Directive readDirective(XMLStreamReader reader) throws XMLStreamException {
+        Directive directive = new Directive();
+        directive.setName(reader.getAttributeValue(null, "name"));
+        directive.setTemplate(reader.getAttributeValue(null, "template"));
+        Optional.ofNullable(reader.getAttributeValue(null, "override")).map(DatatypeConverter::parseBoolean).ifPresent(directive::setOverride);
+        directive.setValue(reader.getElementText());
+        return directive;
+    }
+
+    /**
+     * Builder of the model from the events of its configuration file.
+     * <p>The events are received in document order, the position of an element is the number of elements started before it.</p>
+     */
+    private static class ModelBuilder {
+
+        private final File file;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final Model model = new Model();
+
+        private final Deque<String> path = new ArrayDeque<>();
+
+        private final DirectiveSummary.Collector directiveSummary;
+
+        private int ordinal = -1;
+
+        private StringBuilder text;
+
+        private Property property;
+
+        private PromptType prompt;
+
+        private int promptOrdinal;
+
+        private int values;
+
+        private int directivesOrdinal;
+
+        private int directives;
+
+        private String directiveTemplate;
+
+        private ModelBuilder(File file, long lastModified, long length, DirectiveSummary.Collector directiveSummary) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.directiveSummary = directiveSummary;
+        }
+
+        private XMLEvent accept(XMLEvent event) {
+            switch (event.getEventType()) {
+                case XMLStreamConstants.START_ELEMENT -> this.start(event.asStartElement());
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                    if (text != null)
+                        text.append(event.asCharacters().getData());
+                }
+                case XMLStreamConstants.END_ELEMENT -> this.end();
+                default -> { }
+            }
+
+            return event;
+        }
+
+        private void start(StartElement element) {
+            ordinal++;
+            String parent = path.peek();
+            String name = element.getName().getLocalPart();
+            path.push(name);
+
+            if (parent == null) {
+                model.setName(attribute(element, "name"));
+                Optional.ofNullable(attribute(element, "dependsOn")).map(String::trim).filter(s -> !s.isEmpty()).map(s -> List.of(s.split("\\s+"))).ifPresent(model::setDependsOn);
+                return;
+            }
+
+            switch (parent + "/" + name) {
+                case "model/properties" -> model.setProperties(new Properties());
+                case "model/directives" -> {
+                    model.setDirectives(new Directives());
+                    directivesOrdinal = ordinal;
+                }
+                case "model/prompts" -> model.setPrompts(new Prompts());
+                case "properties/property" -> {
+                    property = new Property();
+                    property.setKey(attribute(element, "key"));
+                    text = new StringBuilder();
+                }
+                case "directives/directive" -> {
+                    directives++;
+                    directiveTemplate = attribute(element, "template");
+                    text = new StringBuilder();
+                }
+                case "prompts/monoSelect", "prompts/multiSelect", "prompts/stringInput", "prompts/setupInput" -> {
+                    prompt = switch (name) {
+                        case "monoSelect" -> new MonoSelect();
+                        case "multiSelect" -> new MultiSelect();
+                        case "stringInput" -> new StringInput();
+                        default -> new SetupInput();
+                    };
+                    prompt.setValue(attribute(element, "value"));
+                    Optional.ofNullable(attribute(element, "order")).map(String::trim).map(Integer::valueOf).ifPresent(prompt::setOrder);
+                    if (prompt instanceof StringInput stringInput)
+                        Optional.ofNullable(attribute(element, "masked")).map(DatatypeConverter::parseBoolean).ifPresent(stringInput::setMasked);
+                    promptOrdinal = ordinal;
+                    values = 0;
+                }
+                case "monoSelect/value", "multiSelect/value" -> values++;
+                case "stringInput/defaultValue", "setupInput/setup" -> text = new StringBuilder();
+                default -> { }
+            }
+        }
+
+        private void end() {
+            String name = path.pop();
+            String parent = path.peek();
+
+            if (parent == null) {
+                // an empty element has no list, like JAXB
+                if (directives > 0)
+                    model.getDirectives().setDirectiveList(new XmlElementList<>(file, lastModified, length, directivesOrdinal, "directive", directives, ModelStreamReader::readDirective));
+                return;
+            }
+
+            switch (parent + "/" + name) {
+                case "directives/directive" -> {
+                    directiveSummary.add(directiveTemplate, text.toString());
+                    text = null;
+                }
+                case "properties/property" -> {
+                    property.setValue(text.toString());
+                    add(model.getProperties()::getPropertyList, model.getProperties()::setPropertyList, property);
+                    text = null;
+                }
+                case "prompts/monoSelect" -> {
+                    if (values > 0)
+                        ((MonoSelect) prompt).setValueList(new XmlElementList<>(file, lastModified, length, promptOrdinal, "value", values, ModelStreamReader::readValue));
+                    add(model.getPrompts()::getMonoSelectList, model.getPrompts()::setMonoSelectList, (MonoSelect) prompt);
+                }
+                case "prompts/multiSelect" -> {
+                    if (values > 0)
+                        ((MultiSelect) prompt).setValueList(new XmlElementList<>(file, lastModified, length, promptOrdinal, "value", values, ModelStreamReader::readValue));
+                    add(model.getPrompts()::getMultiSelectList, model.getPrompts()::setMultiSelectList, (MultiSelect) prompt);
+                }
+                case "prompts/stringInput" -> add(model.getPrompts()::getStringInputList, model.getPrompts()::setStringInputList, (StringInput) prompt);
+                case "prompts/setupInput" -> add(model.getPrompts()::getSetupInputList, model.getPrompts()::setSetupInputList, (SetupInput) prompt);
+                case "stringInput/defaultValue" -> {
+                    DefaultValue defaultValue = new DefaultValue();
+                    defaultValue.setContent(text.toString());
+                    ((StringInput) prompt).setDefaultValue(defaultValue);
+                    text = null;
+                }
+                case "setupInput/setup" -> {
+                    Setup setup = new Setup();
+                    setup.setContent(text.toString());
+                    ((SetupInput) prompt).setSetup(setup);
+                    text = null;
+                }
+                default -> { }
+            }
+        }
+
+        /**
+         * Add the element to the list, created on the first element like JAXB does.
+         */
+        private static <T> void add(Supplier<List<T>> getter, Consumer<List<T>> setter, T element) {
+            if (getter.get() == null)
+                setter.accept(new ArrayList<>());
+
+            getter.get().add(element);
+        }
+
+        private static String attribute(StartElement element, String name) {
+            return Optional.ofNullable(element.getAttributeByName(new QName(name))).map(Attribute::getValue).orElse(null);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package dev.vinyard.blueprinter.core.model;
+
+import java.util.List;
+
+/**
+ * Report of the validation of a model.
+ * <p>The validation does not stop at the first problem, the report lists all the problems found in the model.</p>
+ *
+ * @param model The name of the model
+ * @param problems The problems found in the model, empty if the model is valid
+ */
+public record ModelValidationReport(String model, List<Problem> problems) {
+
+    public ModelValidationReport {
+        problems = List.copyOf(problems);
+    }
+
+    /**
+     * Type of problem.
+     */
+    public enum Type {
+        /**
+         * A file of the model does not exist, or the configuration file is not valid given the schema.
+         */
+        INVALID_CONFIGURATION,
+        /**
+         * The template of a directive does not exist.
+         */
+        MISSING_TEMPLATE,
+        /**
+         * The value of a prompt is not declared in the properties of the model.
+         */
+        UNDECLARED_PROMPT,
+        /**
+         * Several directives of the model write the same output path.
+         * <p>The output paths are compared as written in the model, trimmed : they are not evaluated, the check is syntactic.</p>
+         */
+        DUPLICATE_OUTPUT
+    }
+
+    /**
+     * Problem found in a model.
+     *
+     * @param type The type of problem
+     * @param element The name of the element of the model having the problem, as a directive or a prompt, {@code null} if the problem concerns the whole model
+     * @param message The description of the problem
+     */
+    public record Problem(Type type, String element, String message) { }
+
+    public boolean isValid() {
+        return problems.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        if (this.isValid())
+            return String.format("Model %s is valid.", model);
+
+        StringBuilder stringBuilder = new StringBuilder(String.format("Model %s has %d problems :", model, problems.size()));
+        problems.forEach(p -> stringBuilder.append(System.lineSeparator()).append(" - ").append(p.element() == null ? p.message() : String.format("%s : %s", p.element(), p.message())));
+
+        return stringBuilder.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package dev.vinyard.blueprinter.core.model;
+
+import dev.vinyard.blueprinter.core.model.entities.Directive;
+import dev.vinyard.blueprinter.core.model.entities.Model;
+import dev.vinyard.blueprinter.core.template.TemplateSnapshot;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Model loaded and validated in a single pass, see {@link ModelManager#loadValidatedModel(String)}.
+ * <p>The handle is a snapshot of the model at validation time : it is not affected by later changes of the configuration file, and must not be modified.
+ * The directives of a streamed model are read from its configuration file when they are iterated, they cannot be iterated any more once the file changes,
+ * see {@link ModelStreamReader}.</p>
+ *
+ * @param name The name of the model
+ * @param model The parsed model configuration
+ * @param directives The directives of the model, with their resolved template file
+ * @param templates The distinct resolved template files of the directives
+ * @param variables The root names of the variables read by the output paths of the directives, {@code null} if they cannot be known
+ */
+public record ValidatedModel(String name, Model model, List<ResolvedDirective> directives, Set<File> templates, Set<String> variables) {
+
+    public ValidatedModel {
+        // streamed directives stay in the configuration file, they are not copied in memory
+        if (!(directives instanceof XmlElementList<?>))
+            directives = List.copyOf(directives);
+        templates = Set.copyOf(templates);
+        if (variables != null)
+            variables = Set.copyOf(variables);
+    }
+
+    /**
+     * Directive of a validated model.
+     *
+     * @param directive The directive
+     * @param template The template file of the directive, checked to exist at validation time
+     */
+    public record ResolvedDirective(Directive directive, File template) {
+
+        /**
+         * Resolve the template of the given directive, its name is relative to the template directory.
+         *
+         * @param directive The directive
+         * @param snapshot The snapshot of the templates
+         * @return The directive with its template file, which may not exist
+         */
+        public static ResolvedDirective of(Directive directive, TemplateSnapshot snapshot) {
+            return new ResolvedDirective(directive, snapshot.resolve(directive.getTemplate()));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package dev.vinyard.blueprinter.core.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Report of the validation of several models, see {@link ModelManager#validateAll()}.
+ * <p>The report is written as JSON by {@link #toJson()}, to be read by the tools running the validation, as a pre-commit hook or a CI job.</p>
+ *
+ * @param models The reports of the validated models, in the order of their names
+ */
+public record WorkspaceValidationReport(List<ModelValidationReport> models) {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public WorkspaceValidationReport {
+        models = List.copyOf(models);
+    }
+
+    public boolean isValid() {
+        return models.stream().allMatch(ModelValidationReport::isValid);
+    }
+
+    public long getProblemCount() {
+        return models.stream().mapToLong(m -> m.problems().size()).sum();
+    }
+
+    /**
+     * Write the report as JSON.
+     *
+     * @return The JSON report
+     */
+    public String toJson() {
+        try {
+            return OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(this);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        models.forEach(m -> stringBuilder.append(m).append(System.lineSeparator()));
+        stringBuilder.append(String.format("%d models validated, %d invalid, %d problems.", models.size(), models.stream().filter(m -> !m.isValid()).count(), getProblemCount()));
+
+        return stringBuilder.toString();
+    }
+}
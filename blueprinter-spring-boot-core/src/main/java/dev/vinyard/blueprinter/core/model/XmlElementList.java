@@ -0,0 +1,256 @@
+package dev.vinyard.blueprinter.core.model;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Immutable list of the child elements of an element of a XML file, read from the file each time the list is iterated.
+ * <p>Only the position of the parent element and the number of children are kept in memory, an element is read when the iteration reaches it
+ * and can be collected as soon as it has been used, so the memory used by the list does not depend on the number of its elements.</p>
+ * <p>The file must not change while the list is used, a change of its modification time or of its size is reported by a {@link ConcurrentModificationException}.</p>
+ * <p>The list is not random access, {@link #get(int)} reads the file up to the requested element.</p>
+ *
+ * @param <T> The type of the elements
+ */
+final class XmlElementList<T> extends AbstractList<T> {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * Reader of an element of the list.
+     *
+     * @param <T> The type of the read elements
+     */
+    @FunctionalInterface
+    interface ElementReader<T> {
+        /**
+         * Read the element the reader is positioned on.
+         *
+         * @param reader The reader, positioned on the start of the element, it must be left on the end of the element
+         * @return The element
+         * @throws XMLStreamException if the element cannot be read
+         */
+        T read(XMLStreamReader reader) throws XMLStreamException;
+    }
+
+    private final File file;
+
+    private final long lastModified;
+
+    private final long length;
+
+    private final int parentOrdinal;
+
+    private final String elementName;
+
+    private final int size;
+
+    private final ElementReader<? extends T> elementReader;
+
+    /**
+     * @param file The XML file
+     * @param lastModified The modification time of the file when the list was created
+     * @param length The size of the file when the list was created
+     * @param parentOrdinal The position of the parent element among all the elements of the file, in document order, the root element being 0
+     * @param elementName The name of the child elements of the list, the other children are ignored
+     * @param size The number of child elements of the list
+     * @param elementReader The reader of a child element
+     */
+    XmlElementList(File file, long lastModified, long length, int parentOrdinal, String elementName, int size, ElementReader<? extends T> elementReader) {
+        this.file = file;
+        this.lastModified = lastModified;
+        this.length = length;
+        this.parentOrdinal = parentOrdinal;
+        this.elementName = elementName;
+        this.size = size;
+        this.elementReader = elementReader;
+    }
+
+    /**
+     * Get a list of the same elements, transformed by the given function when they are read.
+     *
+     * @param mapper The function applied to each element
+     * @param <R> The type of the transformed elements
+     * @return The transformed list, read from the same file
+     */
+    <R> XmlElementList<R> map(Function<? super T, ? extends R> mapper) {
+        return new XmlElementList<>(file, lastModified, length, parentOrdinal, elementName, size, reader -> mapper.apply(elementReader.read(reader)));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+
+        Iterator<T> iterator = this.iterator();
+        for (int i = 0; i < index; i++)
+            iterator.next();
+
+        return iterator.next();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ElementIterator();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%d %s elements of %s]", size, elementName, file.getName());
+    }
+
+    /**
+     * Resources of an iteration, released when the iteration ends or when the iterator is collected before its end.
+     */
+    private record Resources(InputStream inputStream, XMLStreamReader reader) implements Runnable {
+        @Override
+        public void run() {
+            try {
+                reader.close();
+                inputStream.close();
+            } catch (XMLStreamException | IOException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+
+    private class ElementIterator implements Iterator<T> {
+
+        private XMLStreamReader reader;
+
+        private Cleaner.Cleanable cleanable;
+
+        private boolean positioned;
+
+        private boolean finished = size == 0;
+
+        @Override
+        public boolean hasNext() {
+            if (finished)
+                return false;
+
+            if (positioned)
+                return true;
+
+            try {
+                if (reader == null)
+                    this.open();
+
+                positioned = this.nextElement();
+            } catch (XMLStreamException e) {
+                this.close();
+                throw new IllegalStateException(String.format("Cannot read %s : %s", file.getName(), e.getMessage()), e);
+            }
+
+            if (!positioned)
+                this.close();
+
+            return positioned;
+        }
+
+        @Override
+        public T next() {
+            if (!this.hasNext())
+                throw new NoSuchElementException();
+
+            try {
+                positioned = false;
+                return elementReader.read(reader);
+            } catch (XMLStreamException e) {
+                this.close();
+                throw new IllegalStateException(String.format("Cannot read %s : %s", file.getName(), e.getMessage()), e);
+            }
+        }
+
+        private void open() throws XMLStreamException {
+            if (file.lastModified() != lastModified || file.length() != length)
+                throw new ConcurrentModificationException(String.format("File %s changed since it was loaded.", file.getName()));
+
+            InputStream inputStream;
+            try {
+                inputStream = Files.newInputStream(file.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            reader = ModelStreamReader.createStreamReader(inputStream);
+            cleanable = CLEANER.register(this, new Resources(inputStream, reader));
+
+            // move to the start of the parent element
+            int ordinal = -1;
+            while (ordinal < parentOrdinal && reader.hasNext())
+                if (reader.next() == XMLStreamConstants.START_ELEMENT)
+                    ordinal++;
+
+            if (ordinal != parentOrdinal)
+                throw new ConcurrentModificationException(String.format("File %s changed since it was loaded.", file.getName()));
+        }
+
+        /**
+         * Move to the start of the next child element of the list.
+         *
+         * @return {@code false} if the parent element ended
+         */
+        private boolean nextElement() throws XMLStreamException {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        if (elementName.equals(reader.getLocalName()))
+                            return true;
+                        skipElement(reader);
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        return false;
+                    }
+                    default -> { }
+                }
+            }
+
+            return false;
+        }
+
+        private void close() {
+            finished = true;
+            positioned = false;
+            if (cleanable != null)
+                cleanable.clean();
+        }
+    }
+
+    /**
+     * Skip the element the reader is positioned on, the reader is left on its end.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> depth++;
+                case XMLStreamConstants.END_ELEMENT -> depth--;
+                default -> { }
+            }
+        }
+    }
+}
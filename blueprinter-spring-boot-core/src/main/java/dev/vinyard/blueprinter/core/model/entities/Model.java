@@ -3,6 +3,8 @@ package dev.vinyard.blueprinter.core.model.entities;
 import jakarta.xml.bind.annotation.*;
 import lombok.Data;
 
+import java.util.List;
+
 @XmlRootElement(name = "model")
 @XmlAccessorType(XmlAccessType.FIELD)
 @Data
@@ -14,6 +16,10 @@ public class Model {
     @XmlAttribute
     private Setup setup;
 
+    @XmlAttribute
+    @XmlList
+    private List<String> dependsOn;
+
     @XmlElement
     private Properties properties;
 
@@ -1,21 +1,39 @@
 package dev.vinyard.blueprinter.core.pluginManager;
 
 import dev.vinyard.blueprinter.core.environment.EnvironmentManager;
+import dev.vinyard.blueprinter.core.metrics.GenerationMetrics;
+import dev.vinyard.blueprinter.core.utils.VelocityUtils;
 import dev.vinyard.blueprinter.plugins.api.BluePrinterExtension;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.velocity.VelocityContext;
 import org.pf4j.PluginWrapper;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Manager for the plugins.
+ * <p>The plugins of the plugin directory are loaded once, their extensions are initialized in a read only layer of velocity context shared by all the generations.
+ * The plugins are loaded again when the content of the plugin directory changes.</p>
+ */
 @Slf4j
 public class BpPluginManager {
 
     private final EnvironmentManager environmentManager;
 
-    public BpPluginManager(EnvironmentManager environmentManager) {
+    private final GenerationMetrics metrics;
+
+    private PluginLayer pluginLayer;
+
+    public BpPluginManager(EnvironmentManager environmentManager, GenerationMetrics metrics) {
         this.environmentManager = environmentManager;
+        this.metrics = metrics;
     }
 
     public org.pf4j.PluginManager initPlugins(VelocityContext velocityContext) {
@@ -40,4 +58,48 @@ public class BpPluginManager {
         pluginManager.unloadPlugins();
         log.info("Stopped plugins.");
     }
+
+    /**
+     * Get the read only layer of velocity context holding the extensions of the plugins.
+     * <p>The plugins are loaded on the first call, and again when a file of the plugin directory is added, removed or modified.</p>
+     *
+     * @return The read only layer of the plugins, the root of the generation contexts
+     * @see VelocityUtils#freeze(org.apache.velocity.context.Context, org.apache.velocity.context.Context)
+     */
+    public synchronized VelocityContext getPluginContext() {
+        List<String> stamp = pluginDirectoryStamp();
+
+        if (pluginLayer == null || !pluginLayer.stamp().equals(stamp)) {
+            if (pluginLayer != null)
+                unloadPlugins(pluginLayer.pluginManager());
+
+            pluginLayer = metrics.time(metrics.pluginLoad(), () -> {
+                VelocityContext velocityContext = new VelocityContext();
+                org.pf4j.PluginManager pluginManager = initPlugins(velocityContext);
+                return new PluginLayer(pluginManager, VelocityUtils.freeze(velocityContext, null), stamp);
+            });
+        }
+
+        return pluginLayer.context();
+    }
+
+    private List<String> pluginDirectoryStamp() {
+        return Optional.ofNullable(environmentManager.getPluginDirectory().listFiles()).map(Arrays::stream).orElseGet(Stream::empty)
+                .sorted(Comparator.comparing(File::getName))
+                .map(f -> f.getName() + ':' + f.lastModified() + ':' + f.length())
+                .toList();
+    }
+
+    /**
+     * Stop and unload the plugins of the shared layer.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (pluginLayer != null) {
+            unloadPlugins(pluginLayer.pluginManager());
+            pluginLayer = null;
+        }
+    }
+
+    private record PluginLayer(org.pf4j.PluginManager pluginManager, VelocityContext context, List<String> stamp) { }
 }
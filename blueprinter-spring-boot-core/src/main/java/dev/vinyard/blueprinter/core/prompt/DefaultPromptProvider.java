@@ -1,27 +1,44 @@
 package dev.vinyard.blueprinter.core.prompt;
 
 import dev.vinyard.blueprinter.core.model.entities.*;
-import dev.vinyard.blueprinter.core.utils.VelocityUtils;
+import dev.vinyard.blueprinter.core.template.ExpressionEvaluator;
 import org.apache.velocity.VelocityContext;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class DefaultPromptProvider implements PromptProvider {
 
-    private final PromptRepository promptRepository;
+    private final Function<String, Optional<Prompt>> promptFinder;
 
-    public DefaultPromptProvider(PromptRepository promptRepository) {
-        this.promptRepository = promptRepository;
+    private final ExpressionEvaluator expressionEvaluator;
+
+    public DefaultPromptProvider(PromptRepository promptRepository, ExpressionEvaluator expressionEvaluator) {
+        this.promptFinder = promptRepository::findById;
+        this.expressionEvaluator = expressionEvaluator;
+    }
+
+    /**
+     * Create a prompt provider answering with the given prompts instead of the prompt repository.
+     *
+     * @param prompts The prompt answers, for example one record of a bulk generation
+     * @param expressionEvaluator The evaluator used to evaluate the labels and default values of the prompts
+     */
+    public DefaultPromptProvider(Collection<Prompt> prompts, ExpressionEvaluator expressionEvaluator) {
+        Map<String, Prompt> answers = prompts.stream().collect(Collectors.toMap(Prompt::getValue, Function.identity(), (a, b) -> b));
+        this.promptFinder = value -> Optional.ofNullable(answers.get(value));
+        this.expressionEvaluator = expressionEvaluator;
     }
 
     @Override
     public Object prompt(PromptType promptType, VelocityContext velocityContext) {
-        Function<String, String> templated = s -> VelocityUtils.processTemplate(velocityContext, s);
+        Function<String, String> templated = expressionEvaluator.evaluator(velocityContext);
         return switch (promptType) {
             case MultiSelect e ->
                     this.multiSelector(e.getValueList().stream().map(v -> PromptSelectorItem.of(templated.apply(v.getKey()), templated.apply(v.getContent()), v.isEnabled(), v.isSelected())).toList(), e.getValue());
@@ -36,7 +53,7 @@ public class DefaultPromptProvider implements PromptProvider {
 
     @Override
     public <T> List<T> multiSelector(List<PromptSelectorItem<T>> items, String value) {
-        return this.promptRepository.findById(value)
+        return this.promptFinder.apply(value)
                 .map(Prompt::getSelectedValues)
                 .map(values -> values.stream().flatMap(v -> this.findItems(items, v)))
                 .orElseGet(() -> findDefaultItems(items))
@@ -53,7 +70,7 @@ public class DefaultPromptProvider implements PromptProvider {
 
     @Override
     public <T> T singleSelect(List<PromptSelectorItem<T>> items, String value) {
-        return this.promptRepository.findById(value)
+        return this.promptFinder.apply(value)
                 .map(Prompt::getSelectedValues)
                 .map(values -> values.stream().flatMap(v -> this.findItems(items, v)))
                 .orElseGet(() -> findDefaultItems(items))
@@ -62,7 +79,7 @@ public class DefaultPromptProvider implements PromptProvider {
 
     @Override
     public String stringInput(String value, String defaultValue, boolean mask) {
-        return this.promptRepository.findById(value)
+        return this.promptFinder.apply(value)
                 .map(Prompt::getSelectedValues)
                 .map(Collection::stream)
                 .orElseGet(() -> Stream.of(defaultValue))
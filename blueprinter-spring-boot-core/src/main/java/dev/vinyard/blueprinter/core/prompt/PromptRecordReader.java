@@ -0,0 +1,243 @@
+package dev.vinyard.blueprinter.core.prompt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reader of prompt answers records.
+ * <p>Each record is one set of prompt answers, used to generate one instance of a model.</p>
+ * <p>Supported formats are :</p>
+ * <ul>
+ *     <li>CSV ({@code .csv}) : the header row holds the prompt keys, a key may be repeated to give several values to a multi select.
+ *     An empty cell is not an answer, the prompt takes its default value.</li>
+ *     <li>JSON lines ({@code .jsonl}, {@code .ndjson}, {@code .json}) : one object per record, a value is a string or an array of strings.
+ *     A {@code .json} file may also hold an array of objects.</li>
+ * </ul>
+ * <p>Records are read lazily, the returned stream must be closed to release the file. A leading byte order mark is skipped.</p>
+ */
+public class PromptRecordReader {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Read the prompt answers records of the given file.
+     *
+     * @param file The CSV or JSON lines file
+     * @return A lazy stream of records, each record being the list of its prompt answers
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if the file format is not supported
+     */
+    public static Stream<List<Prompt>> read(File file) throws IOException {
+        String extension = FilenameUtils.getExtension(file.getName()).toLowerCase(Locale.ROOT);
+
+        return switch (extension) {
+            case "csv" -> readCsv(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8));
+            case "json", "jsonl", "ndjson" -> readJson(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8));
+            default -> throw new IllegalArgumentException(String.format("Unsupported records file %s, expected a csv or json lines file.", file.getName()));
+        };
+    }
+
+    /**
+     * Read the prompt answers records of the given CSV content.
+     *
+     * @param reader The CSV content, closed when the stream is closed, or when this method fails
+     * @return A lazy stream of records
+     * @throws IOException if the header row or the first record cannot be read
+     */
+    public static Stream<List<Prompt>> readCsv(Reader reader) throws IOException {
+        BufferedReader bufferedReader = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+
+        try {
+            skipByteOrderMark(bufferedReader);
+            List<String> header = readCsvRow(bufferedReader);
+
+            if (header == null) {
+                bufferedReader.close();
+                return Stream.empty();
+            }
+
+            return stream(csvRecords(header, bufferedReader), bufferedReader);
+        } catch (UncheckedIOException e) {
+            // the first record is read when the iterator is created
+            throw closeOnFailure(bufferedReader, e.getCause());
+        } catch (IOException e) {
+            throw closeOnFailure(bufferedReader, e);
+        }
+    }
+
+    private static Iterator<List<Prompt>> csvRecords(List<String> header, BufferedReader bufferedReader) {
+        return new Iterator<>() {
+
+            private List<String> next = readNextRow();
+
+            private List<String> readNextRow() {
+                try {
+                    List<String> row;
+                    do {
+                        row = readCsvRow(bufferedReader);
+                    } while (row != null && row.size() == 1 && row.getFirst().isEmpty());
+                    return row;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public List<Prompt> next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+
+                Map<String, List<String>> values = new LinkedHashMap<>();
+                for (int i = 0; i < header.size() && i < next.size(); i++) {
+                    if (!next.get(i).isEmpty())
+                        values.computeIfAbsent(header.get(i).trim(), k -> new ArrayList<>()).add(next.get(i));
+                }
+
+                next = readNextRow();
+                return toPrompts(values);
+            }
+        };
+    }
+
+    /**
+     * Read the prompt answers records of the given JSON lines content.
+     *
+     * @param reader The JSON content, closed when the stream is closed, or when this method fails
+     * @return A lazy stream of records
+     * @throws IOException if the content is not valid JSON
+     */
+    public static Stream<List<Prompt>> readJson(Reader reader) throws IOException {
+        BufferedReader bufferedReader = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+        MappingIterator<JsonNode> iterator;
+
+        try {
+            skipByteOrderMark(bufferedReader);
+            iterator = OBJECT_MAPPER.readerFor(JsonNode.class).readValues(bufferedReader);
+        } catch (IOException e) {
+            throw closeOnFailure(bufferedReader, e);
+        }
+
+        Iterator<List<Prompt>> records = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public List<Prompt> next() {
+                JsonNode node = iterator.next();
+
+                if (!node.isObject())
+                    throw new IllegalArgumentException("A record must be a JSON object, found " + node.getNodeType());
+
+                Map<String, List<String>> values = new LinkedHashMap<>();
+                node.fields().forEachRemaining(field -> {
+                    JsonNode value = field.getValue();
+                    if (value.isArray())
+                        value.forEach(v -> values.computeIfAbsent(field.getKey(), k -> new ArrayList<>()).add(v.asText()));
+                    else if (!value.isNull())
+                        values.computeIfAbsent(field.getKey(), k -> new ArrayList<>()).add(value.asText());
+                });
+
+                return toPrompts(values);
+            }
+        };
+
+        return stream(records, iterator);
+    }
+
+    /**
+     * Skip the byte order mark at the start of the content, kept by the decoder, it would otherwise be read as part of the first key.
+     */
+    private static void skipByteOrderMark(BufferedReader reader) throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF')
+            reader.reset();
+    }
+
+    private static IOException closeOnFailure(Closeable closeable, IOException e) {
+        try {
+            closeable.close();
+        } catch (IOException suppressed) {
+            e.addSuppressed(suppressed);
+        }
+        return e;
+    }
+
+    private static List<Prompt> toPrompts(Map<String, List<String>> values) {
+        return values.entrySet().stream().map(e -> new Prompt(e.getKey(), e.getValue())).toList();
+    }
+
+    private static Stream<List<Prompt>> stream(Iterator<List<Prompt>> iterator, Closeable closeable) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        closeable.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Read one CSV row, quoted cells may contain separators, line breaks and doubled quotes.
+     *
+     * @param reader The CSV content
+     * @return The cells of the row, or {@code null} at the end of the content
+     * @throws IOException if the content cannot be read
+     */
+    private static List<String> readCsvRow(BufferedReader reader) throws IOException {
+        int c = reader.read();
+
+        if (c == -1)
+            return null;
+
+        List<String> row = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int n = reader.read();
+                    if (n == '"') {
+                        cell.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    cell.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                row.add(cell.toString());
+                cell.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                cell.append((char) c);
+            }
+            c = reader.read();
+        }
+
+        row.add(cell.toString());
+        return row;
+    }
+}
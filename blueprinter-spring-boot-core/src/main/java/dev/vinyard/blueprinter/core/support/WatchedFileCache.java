@@ -0,0 +1,223 @@
+package dev.vinyard.blueprinter.core.support;
+
+import dev.vinyard.blueprinter.core.exception.BluePrinterException;
+import dev.vinyard.blueprinter.core.utils.CacheStatistics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of values loaded from files, like the parsed configuration files.
+ * <p>The directory of each cached file is watched with a {@link WatchService}, a cached value is dropped as soon as its file is created, modified or deleted.
+ * A value whose file is watched is served without touching the file system.</p>
+ * <p>When the directory cannot be watched, or when the platform only offers a polling watch service, the modification time and the size of the file are checked on each lookup instead.</p>
+ * <p>The cache is safe to use from several threads, it must be closed to stop watching.</p>
+ *
+ * @param <T> The type of the cached values
+ */
+@Slf4j
+public class WatchedFileCache<T> implements Closeable {
+
+    /**
+     * Loader of the value of a file.
+     *
+     * @param <T> The type of the loaded values
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load(File file) throws BluePrinterException;
+    }
+
+    private final String name;
+
+    private final Loader<T> loader;
+
+    private final WatchService watchService;
+
+    private final Map<Path, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    private final Map<Path, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final Map<Path, WatchKey> watchedDirectories = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private volatile Thread watcher;
+
+    /**
+     * @param name The name of the cache, used to name the watching thread and in the logs
+     * @param loader The loader of the value of a file
+     */
+    public WatchedFileCache(String name, Loader<T> loader) {
+        this.name = name;
+        this.loader = loader;
+        this.watchService = newWatchService();
+    }
+
+    private WatchService newWatchService() {
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+
+            if (service.getClass().getSimpleName().startsWith("Polling")) {
+                log.debug("Only a polling watch service is available, the {} cache checks the modification time of the files.", name);
+                service.close();
+                return null;
+            }
+
+            return service;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("Watch service is not available, the {} cache checks the modification time of the files : {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get the value of the given file, loaded on the first call or when the file changed since it was loaded.
+     *
+     * @param file The file
+     * @return The value of the file
+     * @throws BluePrinterException if the value cannot be loaded
+     */
+    public T get(File file) throws BluePrinterException {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        boolean watched = watch(path.getParent());
+        long version = versions.computeIfAbsent(path, k -> new AtomicLong()).get();
+
+        Entry<T> entry = entries.get(path);
+        if (entry != null && entry.version() == version && (watched || entry.stamp().equals(FileStamp.of(path)))) {
+            hits.increment();
+            return entry.value();
+        }
+
+        misses.increment();
+        FileStamp stamp = FileStamp.of(path);
+        T value = loader.load(file);
+        entries.put(path, new Entry<>(value, version, stamp));
+        log.debug("File {} loaded in the {} cache.", path, name);
+
+        return value;
+    }
+
+    /**
+     * Drop the cached value of the given file.
+     *
+     * @param file The file
+     */
+    public void invalidate(File file) {
+        invalidate(file.toPath().toAbsolutePath().normalize());
+    }
+
+    private void invalidate(Path path) {
+        versions.computeIfAbsent(path, k -> new AtomicLong()).incrementAndGet();
+        if (entries.remove(path) != null)
+            log.debug("File {} removed from the {} cache.", path, name);
+    }
+
+    private void invalidateDirectory(Path directory) {
+        entries.keySet().stream().filter(p -> directory.equals(p.getParent())).forEach(this::invalidate);
+    }
+
+    /**
+     * Drop all the cached values.
+     */
+    public void invalidateAll() {
+        entries.keySet().forEach(this::invalidate);
+    }
+
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), entries.size());
+    }
+
+    /**
+     * Watch the given directory, if it is not already watched.
+     *
+     * @param directory The directory to watch
+     * @return {@code true} if the directory is watched
+     */
+    private boolean watch(Path directory) {
+        if (watchService == null || directory == null)
+            return false;
+
+        WatchKey key = watchedDirectories.get(directory);
+        if (key != null && key.isValid())
+            return true;
+
+        try {
+            synchronized (watchedDirectories) {
+                key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirectories.put(directory, key);
+                startWatcher();
+            }
+            invalidateDirectory(directory);
+            return true;
+        } catch (IOException | ClosedWatchServiceException e) {
+            log.debug("Directory {} cannot be watched : {}", directory, e.getMessage());
+            return false;
+        }
+    }
+
+    private void startWatcher() {
+        if (watcher != null)
+            return;
+
+        watcher = Thread.ofPlatform().name("blueprinter-" + name + "-watcher").daemon().start(() -> {
+            while (true) {
+                WatchKey key;
+                try {
+                    key = watchService.take();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                }
+
+                Path directory = (Path) key.watchable();
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                        invalidateDirectory(directory);
+                    else
+                        invalidate(directory.resolve((Path) event.context()));
+                }
+
+                if (!key.reset()) {
+                    watchedDirectories.remove(directory, key);
+                    invalidateDirectory(directory);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop watching the files and drop all the cached values.
+     */
+    @Override
+    public void close() throws IOException {
+        if (watchService != null)
+            watchService.close();
+        watchedDirectories.clear();
+        entries.clear();
+    }
+
+    private record Entry<T>(T value, long version, FileStamp stamp) { }
+
+    private record FileStamp(long lastModified, long size) {
+
+        private static FileStamp of(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new FileStamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+            } catch (IOException e) {
+                return new FileStamp(-1, -1);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package dev.vinyard.blueprinter.core.template;
+
+import dev.vinyard.blueprinter.core.utils.CacheStatistics;
+import dev.vinyard.blueprinter.core.utils.VelocityUtils;
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.exception.ParseErrorException;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.parser.ParseException;
+import org.apache.velocity.runtime.parser.node.Node;
+
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Evaluator of the templated strings of the models, like property values, prompt labels or directive paths.
+ * <p>Each string is classified once, see {@link TemplateExpression}, and kept in its compiled form :</p>
+ * <ul>
+ *     <li>a literal string is returned as is, velocity is not involved,</li>
+ *     <li>a string of plain references is rendered by substitution of the context values,</li>
+ *     <li>any other string is parsed once by velocity, its AST is merged on each evaluation.</li>
+ * </ul>
+ * <p>The variables read by each string are found once when it is compiled, see {@link TemplateAnalyzer}.</p>
+ * <p>The cache is bounded, the least recently used expression is evicted first.</p>
+ */
+public class ExpressionEvaluator {
+
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private final RuntimeServices runtimeServices;
+
+    private final TemplateAnalyzer templateAnalyzer;
+
+    private final int maxSize;
+
+    private final Map<String, CompiledExpression> expressions;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public ExpressionEvaluator(TemplateResourceLoader templateResourceLoader) {
+        this(templateResourceLoader, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param templateResourceLoader The resource loader of an initialized velocity engine, used to parse the expressions with the runtime of the engine
+     * @param maxSize The maximum number of compiled expressions kept in memory
+     */
+    public ExpressionEvaluator(TemplateResourceLoader templateResourceLoader, int maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Expression cache size must be positive");
+
+        this.runtimeServices = templateResourceLoader.getRuntimeServices();
+        this.templateAnalyzer = new TemplateAnalyzer(runtimeServices);
+        this.maxSize = maxSize;
+        this.expressions = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+                return size() > ExpressionEvaluator.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Evaluate the given templated string with the given velocity context.
+     *
+     * @param velocityContext The velocity context to use
+     * @param source The templated string
+     * @return The rendered string, {@code null} if the templated string is {@code null}
+     */
+    public String evaluate(VelocityContext velocityContext, String source) {
+        if (source == null)
+            return null;
+
+        return compile(source).evaluate(velocityContext);
+    }
+
+    /**
+     * Get a function evaluating templated strings with the given velocity context.
+     *
+     * @param velocityContext The velocity context to use
+     * @return The evaluating function
+     */
+    public Function<String, String> evaluator(VelocityContext velocityContext) {
+        return source -> evaluate(velocityContext, source);
+    }
+
+    /**
+     * Get the compiled form of the given templated string, compiled on the first call.
+     *
+     * @param source The templated string
+     * @return The compiled expression
+     * @throws ParseErrorException if the string is not a valid velocity template
+     */
+    public CompiledExpression compile(String source) {
+        synchronized (expressions) {
+            CompiledExpression expression = expressions.get(source);
+            if (expression != null) {
+                hits.increment();
+                return expression;
+            }
+        }
+
+        misses.increment();
+        CompiledExpression expression = doCompile(source);
+
+        synchronized (expressions) {
+            expressions.put(source, expression);
+        }
+
+        return expression;
+    }
+
+    private CompiledExpression doCompile(String source) {
+        TemplateExpression expression = TemplateExpression.of(source);
+
+        if (expression.kind() != TemplateExpression.Kind.VELOCITY)
+            return new CompiledExpression(expression, null, expression.references(), false);
+
+        Template template = new Template();
+        template.setName("expression");
+        template.setRuntimeServices(runtimeServices);
+
+        try {
+            template.setData(runtimeServices.parse(new StringReader(source), template));
+            template.initDocument();
+        } catch (ParseException e) {
+            throw new ParseErrorException(e, null);
+        }
+
+        Node data = (Node) template.getData();
+
+        // the templates parsed by a string are not followed, the variables they read are not known
+        List<String> references = TemplateAnalyzer.references(data);
+        Set<String> variables = references != null && references.isEmpty() ? templateAnalyzer.variables(data) : null;
+
+        return new CompiledExpression(expression, template, variables == null ? null : Set.copyOf(variables), TemplateAnalyzer.assigns(data));
+    }
+
+    public CacheStatistics getStatistics() {
+        synchronized (expressions) {
+            return new CacheStatistics(hits.sum(), misses.sum(), expressions.size());
+        }
+    }
+
+    /**
+     * Compiled form of a templated string.
+     *
+     * @param expression The classification of the string
+     * @param template The parsed velocity template, {@code null} unless the kind of the string is {@link TemplateExpression.Kind#VELOCITY}
+     * @param variables The root names of the variables read by the string, {@code null} if they cannot be known before rendering
+     * @param assigns {@code true} if rendering the string may set variables of the context, see {@link TemplateAnalyzer#assigns(Node)}
+     */
+    public record CompiledExpression(TemplateExpression expression, Template template, Set<String> variables, boolean assigns) {
+
+        /**
+         * Render the string with the given velocity context.
+         *
+         * @param velocityContext The velocity context to use
+         * @return The rendered string
+         */
+        public String evaluate(VelocityContext velocityContext) {
+            return switch (expression.kind()) {
+                case LITERAL -> expression.source();
+                case REFERENCES -> expression.substitute(velocityContext::get);
+                case VELOCITY -> VelocityUtils.processTemplate(velocityContext, template);
+            };
+        }
+    }
+}
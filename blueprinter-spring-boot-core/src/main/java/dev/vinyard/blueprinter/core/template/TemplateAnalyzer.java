@@ -0,0 +1,207 @@
+package dev.vinyard.blueprinter.core.template;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.exception.TemplateInitException;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.parser.ParseException;
+import org.apache.velocity.runtime.parser.node.ASTDirective;
+import org.apache.velocity.runtime.parser.node.ASTReference;
+import org.apache.velocity.runtime.parser.node.ASTSetDirective;
+import org.apache.velocity.runtime.parser.node.ASTStringLiteral;
+import org.apache.velocity.runtime.parser.node.Node;
+
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * Static analysis of the parsed velocity templates, to know what a template reads without rendering it.
+ * <ul>
+ *     <li>The referenced templates are the ones of the {@code #parse} and {@code #include} directives with a literal argument.</li>
+ *     <li>The variables are the root names of the references, like {@code name} for {@code $name.toUpperCase()}, including the references interpolated in string literals.</li>
+ * </ul>
+ * <p>The analysis is conservative : when the read variables cannot be known before rendering, as with {@code #evaluate}, a template referenced by an expression
+ * or a call to a macro which is not defined by the analysed templates, no variable set is returned.
+ * A variable read by a tool of the context, by its name, is not seen.</p>
+ */
+public class TemplateAnalyzer {
+
+    private static final Set<String> REFERENCING_DIRECTIVES = Set.of("parse", "include");
+
+    private static final Set<String> ASSIGNING_DIRECTIVES = Set.of("define", "macro", "evaluate");
+
+    private final RuntimeServices runtimeServices;
+
+    /**
+     * @param runtimeServices The runtime of the velocity engine, used to parse the interpolated string literals
+     */
+    public TemplateAnalyzer(RuntimeServices runtimeServices) {
+        this.runtimeServices = runtimeServices;
+    }
+
+    /**
+     * Find the templates referenced by the {@code #parse} and {@code #include} directives of the given node.
+     *
+     * @param node The root node of the template
+     * @return The names of the referenced templates, or {@code null} if a template is referenced by an expression
+     */
+    public static List<String> references(Node node) {
+        List<String> references = new ArrayList<>();
+        Deque<Node> nodes = new ArrayDeque<>(List.of(node));
+
+        while (!nodes.isEmpty()) {
+            Node current = nodes.pop();
+
+            if (current instanceof ASTDirective directive && REFERENCING_DIRECTIVES.contains(directive.getDirectiveName())) {
+                for (int i = 0; i < directive.jjtGetNumChildren(); i++) {
+                    if (directive.jjtGetChild(i) instanceof ASTStringLiteral literal && literal.isConstant())
+                        references.add((String) literal.value(null));
+                    else
+                        return null;
+                }
+            }
+
+            for (int i = 0; i < current.jjtGetNumChildren(); i++)
+                nodes.push(current.jjtGetChild(i));
+        }
+
+        return references;
+    }
+
+    /**
+     * Find the variables referenced by the given node.
+     * <p>The variables of the templates it references are not included, see {@link #references(Node)}.
+     * The node must define all the macros it calls, the variables read by the body of a macro defined elsewhere are not known.</p>
+     *
+     * @param node The root node of an initialized template
+     * @return The root names of the referenced variables, or {@code null} if they cannot be known before rendering
+     */
+    public Set<String> variables(Node node) {
+        Analysis analysis = this.analyze(node);
+        return analysis.variables() != null && analysis.macros().containsAll(analysis.macroCalls()) ? analysis.variables() : null;
+    }
+
+    /**
+     * Analyse the given node, without checking the macros it calls.
+     * <p>A template may call the macros defined by the templates it references or is referenced by, the caller checks the macros of all of them,
+     * see {@link Analysis#macroCalls()}.</p>
+     *
+     * @param node The root node of an initialized template
+     * @return The analysis of the node
+     */
+    public Analysis analyze(Node node) {
+        Set<String> variables = new HashSet<>();
+        Set<String> macroCalls = new HashSet<>();
+        boolean known = this.collect(node, variables, macroCalls);
+        return new Analysis(known ? Set.copyOf(variables) : null, macros(node), Set.copyOf(macroCalls));
+    }
+
+    /**
+     * Find the macros defined by the {@code #macro} directives of the given node.
+     *
+     * @param node The root node of an initialized template
+     * @return The names of the defined macros
+     */
+    public static Set<String> macros(Node node) {
+        Set<String> macros = new HashSet<>();
+        Deque<Node> nodes = new ArrayDeque<>(List.of(node));
+
+        while (!nodes.isEmpty()) {
+            Node current = nodes.pop();
+
+            if (current instanceof ASTDirective directive && "macro".equals(directive.getDirectiveName()) && directive.jjtGetNumChildren() > 0)
+                Optional.ofNullable(directive.jjtGetChild(0).getFirstTokenImage()).ifPresent(macros::add);
+
+            for (int i = 0; i < current.jjtGetNumChildren(); i++)
+                nodes.push(current.jjtGetChild(i));
+        }
+
+        return Set.copyOf(macros);
+    }
+
+    /**
+     * Check if the given node may set variables of the context it is rendered in, with a {@code #set}, {@code #define}, {@code #macro} or {@code #evaluate} directive.
+     *
+     * @param node The root node of the template
+     * @return {@code true} if the node may set variables
+     */
+    public static boolean assigns(Node node) {
+        Deque<Node> nodes = new ArrayDeque<>(List.of(node));
+
+        while (!nodes.isEmpty()) {
+            Node current = nodes.pop();
+
+            if (current instanceof ASTSetDirective || (current instanceof ASTDirective directive && ASSIGNING_DIRECTIVES.contains(directive.getDirectiveName())))
+                return true;
+
+            for (int i = 0; i < current.jjtGetNumChildren(); i++)
+                nodes.push(current.jjtGetChild(i));
+        }
+
+        return false;
+    }
+
+    private boolean collect(Node node, Set<String> variables, Set<String> macroCalls) {
+        Deque<Node> nodes = new ArrayDeque<>(List.of(node));
+
+        while (!nodes.isEmpty()) {
+            Node current = nodes.pop();
+
+            switch (current) {
+                case ASTReference reference -> Optional.ofNullable(reference.getRootString()).ifPresent(variables::add);
+                case ASTStringLiteral literal -> {
+                    if (!this.collectInterpolated(literal, variables, macroCalls))
+                        return false;
+                }
+                case ASTDirective directive when "evaluate".equals(directive.getDirectiveName()) -> {
+                    return false;
+                }
+                case ASTDirective directive when REFERENCING_DIRECTIVES.contains(directive.getDirectiveName()) -> {
+                    for (int i = 0; i < directive.jjtGetNumChildren(); i++)
+                        if (!(directive.jjtGetChild(i) instanceof ASTStringLiteral literal && literal.isConstant()))
+                            return false;
+                }
+                // a directive unknown to the engine is a call to a macro
+                case ASTDirective directive when runtimeServices.getDirective(directive.getDirectiveName()) == null -> macroCalls.add(directive.getDirectiveName());
+                default -> { }
+            }
+
+            for (int i = 0; i < current.jjtGetNumChildren(); i++)
+                nodes.push(current.jjtGetChild(i));
+        }
+
+        return true;
+    }
+
+    /**
+     * Collect the variables interpolated in the given string literal, velocity keeps the parsed content of the literal out of the tree.
+     */
+    private boolean collectInterpolated(ASTStringLiteral literal, Set<String> variables, Set<String> macroCalls) {
+        // the tokens are released once the template is initialized, the literal keeps its quoted source
+        String image = Optional.ofNullable(literal.literal()).orElse("");
+
+        if (!image.startsWith("\"") || (image.indexOf('$') < 0 && image.indexOf('#') < 0))
+            return true;
+
+        Template template = new Template();
+        template.setName("literal");
+        template.setRuntimeServices(runtimeServices);
+
+        try {
+            template.setData(runtimeServices.parse(new StringReader(image.substring(1, Math.max(1, image.length() - 1))), template));
+            template.initDocument();
+        } catch (ParseException | TemplateInitException e) {
+            return false;
+        }
+
+        return this.collect((Node) template.getData(), variables, macroCalls);
+    }
+
+    /**
+     * Static analysis of a template.
+     *
+     * @param variables The root names of the referenced variables, {@code null} if they cannot be known before rendering
+     * @param macros The names of the macros defined by the template
+     * @param macroCalls The names of the macros called by the template, the variables read by their body are only known if they are defined by an analysed template
+     */
+    public record Analysis(Set<String> variables, Set<String> macros, Set<String> macroCalls) { }
+}
@@ -0,0 +1,256 @@
+package dev.vinyard.blueprinter.core.template;
+
+import dev.vinyard.blueprinter.core.utils.HashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.velocity.Template;
+import org.apache.velocity.exception.ParseErrorException;
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.parser.ParseException;
+import org.apache.velocity.runtime.parser.node.Node;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of compiled velocity templates.
+ * <p>Keep the parsed AST of each template file so a template used by several directives is only parsed once.</p>
+ * <p>Entries are keyed by the canonical path of the template and are reloaded when its modification time or size changes.</p>
+ * <p>The cache is bounded, the least recently used template is evicted first.</p>
+ * <p>The content hash of each template is kept with its AST, along with the templates it references with a literal {@code #parse} or {@code #include}
+ * and the variables it reads and the macros it defines and calls, see {@link TemplateAnalyzer}.</p>
+ */
+@Slf4j
+public class TemplateCache {
+
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private final TemplateResourceLoader templateResourceLoader;
+
+    private final RuntimeServices runtimeServices;
+
+    private final TemplateAnalyzer templateAnalyzer;
+
+    private final Charset charset;
+
+    private final int maxSize;
+
+    private final Map<String, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public TemplateCache(TemplateResourceLoader templateResourceLoader) {
+        this(templateResourceLoader, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param templateResourceLoader The resource loader of an initialized velocity engine, used to parse the templates and resolve their references
+     * @param maxSize The maximum number of compiled templates kept in memory
+     */
+    public TemplateCache(TemplateResourceLoader templateResourceLoader, int maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Template cache size must be positive");
+
+        this.templateResourceLoader = templateResourceLoader;
+        this.runtimeServices = templateResourceLoader.getRuntimeServices();
+        this.templateAnalyzer = new TemplateAnalyzer(runtimeServices);
+        this.charset = Charset.forName(runtimeServices.getString(RuntimeConstants.INPUT_ENCODING, RuntimeConstants.ENCODING_DEFAULT));
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > TemplateCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the compiled template of the given file.
+     * <p>The template is parsed on the first call, or when the file changed since it was parsed.</p>
+     *
+     * @param file The template file
+     * @return The compiled template
+     * @throws IOException if the template file cannot be read
+     * @throws ParseErrorException if the template is not a valid velocity template
+     */
+    public Template getTemplate(File file) throws IOException {
+        return getEntry(file).template();
+    }
+
+    /**
+     * Get the hash of the given template and of all the templates it references, directly or not.
+     * <p>The hash changes whenever one of these templates changes, so it identifies the output of the template for a given context.</p>
+     *
+     * @param file The template file
+     * @return The hexadecimal hash, or {@code null} if the template references a template by an expression, which cannot be known before rendering
+     * @throws IOException if the template file cannot be read
+     * @throws ParseErrorException if the template is not a valid velocity template
+     */
+    public String getHash(File file) throws IOException {
+        MessageDigest digest = HashUtils.newDigest();
+        return hash(file, digest, new HashSet<>()) ? HashUtils.toHex(digest.digest()) : null;
+    }
+
+    /**
+     * Get the variables read by the given template and by all the templates it references, directly or not.
+     * <p>The macros called by these templates must be defined by one of them, the variables read by the body of a macro defined elsewhere,
+     * as by a macro library of the engine, are not known.</p>
+     *
+     * @param file The template file
+     * @return The root names of the read variables, or {@code null} if they cannot be known before rendering, see {@link TemplateAnalyzer#variables(Node)}
+     * @throws IOException if the template file cannot be read
+     * @throws ParseErrorException if the template is not a valid velocity template
+     */
+    public Set<String> getVariables(File file) throws IOException {
+        Set<String> variables = new HashSet<>();
+        Set<String> macros = new HashSet<>();
+        Set<String> macroCalls = new HashSet<>();
+        return variables(file, variables, macros, macroCalls, new HashSet<>()) && macros.containsAll(macroCalls) ? variables : null;
+    }
+
+    private boolean variables(File file, Set<String> variables, Set<String> macros, Set<String> macroCalls, Set<String> visited) throws IOException {
+        Entry entry = getEntry(file);
+
+        if (!visited.add(entry.key()))
+            return true;
+
+        if (entry.analysis().variables() == null || entry.references() == null)
+            return false;
+
+        variables.addAll(entry.analysis().variables());
+        macros.addAll(entry.analysis().macros());
+        macroCalls.addAll(entry.analysis().macroCalls());
+
+        for (String reference : entry.references()) {
+            try {
+                if (!variables(templateResourceLoader.getFile(reference), variables, macros, macroCalls, visited))
+                    return false;
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean hash(File file, MessageDigest digest, Set<String> visited) throws IOException {
+        Entry entry = getEntry(file);
+
+        if (!visited.add(entry.key()))
+            return true;
+
+        digest.update(entry.hash().getBytes(StandardCharsets.UTF_8));
+
+        if (entry.references() == null)
+            return false;
+
+        for (String reference : entry.references()) {
+            try {
+                if (!hash(templateResourceLoader.getFile(reference), digest, visited))
+                    return false;
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private Entry getEntry(File file) throws IOException {
+        Path path = file.toPath().toRealPath();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        String key = path.toString();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.lastModified() == lastModified && entry.size() == size) {
+                hits.increment();
+                return entry;
+            }
+        }
+
+        misses.increment();
+        Entry entry = compile(path, key, lastModified, size);
+        log.debug("Template {} compiled.", key);
+
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+
+        return entry;
+    }
+
+    private Entry compile(Path path, String key, long lastModified, long size) throws IOException {
+        byte[] content = Files.readAllBytes(path);
+
+        Template template = new Template();
+        template.setName(key);
+        template.setRuntimeServices(runtimeServices);
+
+        try {
+            template.setData(runtimeServices.parse(new StringReader(new String(content, charset)), template));
+            template.initDocument();
+        } catch (ParseException e) {
+            throw new ParseErrorException(e, key);
+        }
+
+        Node data = (Node) template.getData();
+
+        return new Entry(key, template, lastModified, size, HashUtils.hash(content), TemplateAnalyzer.references(data), templateAnalyzer.analyze(data));
+    }
+
+    /**
+     * Get the charset the templates are read with, the input encoding of the velocity engine.
+     * <p>The rendered templates are written with the same charset.</p>
+     *
+     * @return The charset of the templates
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Remove all the compiled templates and reset the counters.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private record Entry(String key, Template template, long lastModified, long size, String hash, List<String> references, TemplateAnalyzer.Analysis analysis) { }
+}
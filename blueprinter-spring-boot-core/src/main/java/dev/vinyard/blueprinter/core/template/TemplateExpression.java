@@ -0,0 +1,125 @@
+package dev.vinyard.blueprinter.core.template;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classification of a templated string, like a property value or a directive path.
+ * <ul>
+ *     <li>{@link Kind#LITERAL} : the string holds no velocity markup, it renders as itself.</li>
+ *     <li>{@link Kind#REFERENCES} : the string only holds plain variable references, like {@code $name}, {@code ${name}} or {@code $!{name}}, it renders by substitution.</li>
+ *     <li>{@link Kind#VELOCITY} : the string holds directives, method calls, property accesses or escapes, it must be rendered by velocity.</li>
+ * </ul>
+ * <p>The classification is conservative : a string that may not render by substitution exactly as velocity would render it is classified as {@link Kind#VELOCITY}.</p>
+ *
+ * @param source The templated string
+ * @param kind The kind of the string
+ * @param segments The text and reference segments of the string, empty unless the kind is {@link Kind#REFERENCES}
+ */
+public record TemplateExpression(String source, Kind kind, List<Segment> segments) {
+
+    private static final Pattern REFERENCE = Pattern.compile("\\$(!?)(?:\\{([a-zA-Z][a-zA-Z0-9_]*)}|([a-zA-Z][a-zA-Z0-9_]*))");
+
+    public enum Kind {
+        LITERAL, REFERENCES, VELOCITY
+    }
+
+    /**
+     * Segment of a string made of plain references.
+     *
+     * @param text The text of the segment, as written in the string
+     * @param reference The name of the referenced variable, {@code null} for a text segment
+     * @param quiet {@code true} if the reference renders as an empty string when the variable is not set
+     */
+    public record Segment(String text, String reference, boolean quiet) { }
+
+    public TemplateExpression {
+        segments = List.copyOf(segments);
+    }
+
+    /**
+     * Classify the given templated string.
+     *
+     * @param source The templated string
+     * @return The classified expression
+     */
+    public static TemplateExpression of(String source) {
+        if (source == null || (source.indexOf('$') < 0 && source.indexOf('#') < 0))
+            return new TemplateExpression(source, Kind.LITERAL, List.of());
+
+        if (source.indexOf('#') >= 0 || source.indexOf('\\') >= 0)
+            return velocity(source);
+
+        List<Segment> segments = new ArrayList<>();
+        Matcher matcher = REFERENCE.matcher(source);
+        int end = 0;
+
+        while (matcher.find()) {
+            String text = source.substring(end, matcher.start());
+            if (text.indexOf('$') >= 0)
+                return velocity(source);
+
+            boolean braced = matcher.group(2) != null;
+            if (!braced && matcher.end() < source.length() && ".([".indexOf(source.charAt(matcher.end())) >= 0)
+                return velocity(source);
+
+            if (!text.isEmpty())
+                segments.add(new Segment(text, null, false));
+
+            segments.add(new Segment(matcher.group(), braced ? matcher.group(2) : matcher.group(3), !matcher.group(1).isEmpty()));
+            end = matcher.end();
+        }
+
+        if (source.indexOf('$', end) >= 0)
+            return velocity(source);
+
+        if (end < source.length())
+            segments.add(new Segment(source.substring(end), null, false));
+
+        return new TemplateExpression(source, Kind.REFERENCES, segments);
+    }
+
+    private static TemplateExpression velocity(String source) {
+        return new TemplateExpression(source, Kind.VELOCITY, List.of());
+    }
+
+    /**
+     * Get the names of the variables referenced by the string.
+     *
+     * @return The referenced variables, empty unless the kind is {@link Kind#REFERENCES}
+     */
+    public Set<String> references() {
+        Set<String> references = new LinkedHashSet<>();
+        segments.stream().map(Segment::reference).filter(Objects::nonNull).forEach(references::add);
+        return references;
+    }
+
+    /**
+     * Render a string that does not need velocity.
+     * <p>As velocity does, a reference to a variable that is not set renders as written, or as an empty string when it is quiet.</p>
+     *
+     * @param values The values of the variables
+     * @return The rendered string
+     * @throws IllegalStateException if the kind is {@link Kind#VELOCITY}
+     */
+    public String substitute(Function<String, Object> values) {
+        return switch (kind) {
+            case LITERAL -> source;
+            case REFERENCES -> {
+                StringBuilder builder = new StringBuilder();
+                for (Segment segment : segments) {
+                    if (segment.reference() == null) {
+                        builder.append(segment.text());
+                        continue;
+                    }
+                    Object value = values.apply(segment.reference());
+                    builder.append(value != null ? value : segment.quiet() ? "" : segment.text());
+                }
+                yield builder.toString();
+            }
+            case VELOCITY -> throw new IllegalStateException("Expression must be rendered by velocity : " + source);
+        };
+    }
+}
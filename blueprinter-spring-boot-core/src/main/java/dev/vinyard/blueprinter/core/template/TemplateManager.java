@@ -2,6 +2,7 @@ package dev.vinyard.blueprinter.core.template;
 
 import dev.vinyard.blueprinter.core.environment.EnvironmentManager;
 import dev.vinyard.blueprinter.core.utils.FileUtils;
+import dev.vinyard.blueprinter.core.workspace.WorkspaceIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
@@ -17,17 +18,32 @@ public class TemplateManager {
 
     private final EnvironmentManager environmentManager;
 
-    public TemplateManager(EnvironmentManager environmentManager) {
+    private final WorkspaceIndex workspaceIndex;
+
+    public TemplateManager(EnvironmentManager environmentManager, WorkspaceIndex workspaceIndex) {
         this.environmentManager = environmentManager;
+        this.workspaceIndex = workspaceIndex;
     }
 
     /**
      * Find all templates in the template directory.
+     * <p>The templates are listed from the {@link WorkspaceIndex}, the template directory is not walked.</p>
      *
      * @return List of templates
      */
     public List<File> findAllTemplates() {
-        return FileUtils.listFiles(environmentManager.getTemplateDirectory(), "vm");
+        File templateDirectory = environmentManager.getTemplateDirectory();
+        return workspaceIndex.getTemplates().stream().map(t -> new File(templateDirectory, t)).toList();
+    }
+
+    /**
+     * Take a snapshot of the templates of the template directory, from the {@link WorkspaceIndex}.
+     * <p>Use it to check many templates at once, a template recorded by the index is then checked without accessing the file system.</p>
+     *
+     * @return The snapshot of the templates
+     */
+    public TemplateSnapshot snapshot() {
+        return TemplateSnapshot.of(environmentManager.getTemplateDirectory(), workspaceIndex.getTemplates());
     }
 
     /**
@@ -68,7 +84,8 @@ public class TemplateManager {
      * @param name The name of the template to create
      */
     public void createTemplate(String name) {
-        FileUtils.copyFile(FILE_LOCATION + TEMPLATE_FILE, new File(environmentManager.getTemplateDirectory(), name + ".vm"));
+        File templateFile = FileUtils.copyFile(FILE_LOCATION + TEMPLATE_FILE, new File(environmentManager.getTemplateDirectory(), name + ".vm"));
+        workspaceIndex.refresh(templateFile);
         log.info("Template {} created.", name + ".vm");
     }
 
@@ -86,5 +103,7 @@ public class TemplateManager {
             log.info("Template {} deleted.", name);
         else
             log.warn("Template {} not deleted.", name);
+
+        workspaceIndex.refresh(templateFile);
     }
 }
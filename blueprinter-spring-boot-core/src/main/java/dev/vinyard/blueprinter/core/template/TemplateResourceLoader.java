@@ -0,0 +1,96 @@
+package dev.vinyard.blueprinter.core.template;
+
+import dev.vinyard.blueprinter.core.environment.EnvironmentManager;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.velocity.exception.ResourceNotFoundException;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.resource.Resource;
+import org.apache.velocity.runtime.resource.loader.ResourceLoader;
+import org.apache.velocity.util.ExtProperties;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Velocity resource loader rooted at the template directory of the workspace.
+ * <p>The template directory is resolved on each lookup, so the loader follows the home directory when it is changed.</p>
+ * <p>It allows {@code #parse} and {@code #include} to reference the other templates of the workspace.</p>
+ */
+public class TemplateResourceLoader extends ResourceLoader {
+
+    private final EnvironmentManager environmentManager;
+
+    public TemplateResourceLoader(EnvironmentManager environmentManager) {
+        this.environmentManager = environmentManager;
+    }
+
+    @Override
+    public void init(ExtProperties configuration) {
+        log.trace("TemplateResourceLoader: initialization complete.");
+    }
+
+    /**
+     * Get the velocity runtime this loader has been registered in.
+     *
+     * @return The runtime services of the velocity engine
+     * @throws IllegalStateException if the loader is not registered in an initialized velocity engine
+     */
+    public RuntimeServices getRuntimeServices() {
+        if (rsvc == null)
+            throw new IllegalStateException("Template resource loader is not registered in an initialized velocity engine.");
+
+        return rsvc;
+    }
+
+    /**
+     * Resolve the template with the given name in the template directory.
+     *
+     * @param name The name of the template, relative to the template directory
+     * @return The template file
+     * @throws ResourceNotFoundException if the name is empty or tries to leave the template directory
+     */
+    public File getFile(String name) {
+        String normalized = FilenameUtils.normalize(StringUtils.removeStart(name, "/"), true);
+
+        if (StringUtils.isEmpty(normalized))
+            throw new ResourceNotFoundException(String.format("Template %s is not in the template directory.", name));
+
+        return new File(environmentManager.getTemplateDirectory(), normalized);
+    }
+
+    @Override
+    public Reader getResourceReader(String source, String encoding) throws ResourceNotFoundException {
+        File file = getFile(source);
+
+        if (!file.isFile())
+            throw new ResourceNotFoundException(String.format("Template %s does not exist.", source));
+
+        try {
+            return buildReader(new FileInputStream(file), encoding);
+        } catch (IOException e) {
+            throw new ResourceNotFoundException(String.format("Cannot read template %s.", source), e, null);
+        }
+    }
+
+    @Override
+    public boolean resourceExists(String resourceName) {
+        try {
+            return getFile(resourceName).isFile();
+        } catch (ResourceNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isSourceModified(Resource resource) {
+        return getLastModified(resource) != resource.getLastModified();
+    }
+
+    @Override
+    public long getLastModified(Resource resource) {
+        return getFile(resource.getName()).lastModified();
+    }
+}
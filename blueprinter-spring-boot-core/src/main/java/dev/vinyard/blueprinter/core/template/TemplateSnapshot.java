@@ -0,0 +1,68 @@
+package dev.vinyard.blueprinter.core.template;
+
+import dev.vinyard.blueprinter.core.workspace.WorkspaceIndex;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Snapshot of the templates of the template directory, to check that many templates exist without a file system access per template.
+ * <p>The snapshot is taken from the {@link WorkspaceIndex}, see {@link TemplateManager#snapshot()}. The templates it does not record,
+ * like the files which are not {@code .vm} templates, the files outside the template directory or the templates created since the index was last updated,
+ * are checked on the file system.</p>
+ * <p>The snapshot is not updated, it reflects the index when it was taken.</p>
+ */
+public final class TemplateSnapshot {
+
+    private final Path templateDirectory;
+
+    private final Set<String> files;
+
+    private TemplateSnapshot(Path templateDirectory, Set<String> files) {
+        this.templateDirectory = templateDirectory;
+        this.files = files;
+    }
+
+    /**
+     * Take a snapshot of the given templates.
+     *
+     * @param templateDirectory The template directory
+     * @param templates The paths of the templates, relative to the template directory
+     * @return The snapshot
+     */
+    static TemplateSnapshot of(File templateDirectory, Collection<String> templates) {
+        return new TemplateSnapshot(templateDirectory.toPath().toAbsolutePath().normalize(), Set.copyOf(templates));
+    }
+
+    /**
+     * Check if the template with the given name exists.
+     *
+     * @param name The name of the template, relative to the template directory
+     * @return {@code true} if the template exists
+     */
+    public boolean exists(String name) {
+        if (name == null)
+            return false;
+
+        Path template = templateDirectory.resolve(name).normalize();
+
+        if (template.startsWith(templateDirectory) && files.contains(FilenameUtils.separatorsToUnix(templateDirectory.relativize(template).toString())))
+            return true;
+
+        return Files.exists(template);
+    }
+
+    /**
+     * Resolve the template file with the given name, without checking that it exists.
+     *
+     * @param name The name of the template, relative to the template directory
+     * @return The template file
+     */
+    public File resolve(String name) {
+        return new File(templateDirectory.toFile(), name);
+    }
+}
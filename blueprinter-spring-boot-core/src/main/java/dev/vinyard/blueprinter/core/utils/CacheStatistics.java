@@ -0,0 +1,21 @@
+package dev.vinyard.blueprinter.core.utils;
+
+/**
+ * Statistics of a cache.
+ *
+ * @param hitCount Number of lookups served from the cache
+ * @param missCount Number of lookups that had to create the cached value
+ * @param size Number of values in the cache
+ */
+public record CacheStatistics(long hitCount, long missCount, int size) {
+
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses, %d entries", hitCount, missCount, size);
+    }
+}
@@ -17,15 +17,34 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * File utilities
+ * <p>The JAXB contexts and the compiled schemas used to load the configuration files are cached, they are thread safe and expensive to create.</p>
  */
 @Slf4j
 public class FileUtils {
 
+    private static final Map<Class<?>, JAXBContext> JAXB_CONTEXTS = new ConcurrentHashMap<>();
+
+    private static final Map<String, Schema> SCHEMAS = new ConcurrentHashMap<>();
+
+    private static final LongAdder JAXB_CONTEXT_HITS = new LongAdder();
+
+    private static final LongAdder JAXB_CONTEXT_MISSES = new LongAdder();
+
+    private static final LongAdder SCHEMA_HITS = new LongAdder();
+
+    private static final LongAdder SCHEMA_MISSES = new LongAdder();
+
     /**
      * Create a file in the specified directory
      *
@@ -45,6 +64,57 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Check if the file has the given content
+     * <p>The sizes are compared first, then the file is streamed and compared with the content, so a different file is usually detected without reading it.</p>
+     *
+     * @param file    The file
+     * @param content The expected content
+     * @return {@code true} if the file exists and has exactly the given content
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean contentEquals(File file, byte[] content) throws IOException {
+        try {
+            if (Files.readAttributes(file.toPath(), BasicFileAttributes.class).size() != content.length)
+                return false;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+
+        byte[] buffer = new byte[Math.min(content.length, 8192) + 1];
+        int offset = 0;
+
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = inputStream.readNBytes(buffer, 0, buffer.length)) > 0) {
+                if (offset + read > content.length || !Arrays.equals(buffer, 0, read, content, offset, offset + read))
+                    return false;
+                offset += read;
+            }
+        }
+
+        return offset == content.length;
+    }
+
+    /**
+     * Write the content in the file, only if the file does not already have this content
+     * <p>An unchanged file is not touched, so its modification time is kept and the tools watching it do not see a change.</p>
+     * <p>Parent directories are created if needed.</p>
+     *
+     * @param file    The file to write
+     * @param content The content to write
+     * @return {@code true} if the file has been written, {@code false} if it already had the content
+     * @throws IOException if the file cannot be read or written
+     */
+    public static boolean writeIfChanged(File file, byte[] content) throws IOException {
+        if (contentEquals(file, content))
+            return false;
+
+        org.apache.commons.io.FileUtils.forceMkdirParent(file);
+        Files.write(file.toPath(), content);
+        return true;
+    }
+
     /**
      * List all files in the directory with the specified extensions
      *
@@ -62,22 +132,18 @@ public class FileUtils {
      *
      * @param source           The XML source (File or String)
      * @param environmentClass The environment class
-     * @param schemaLocation   The schema location
+     * @param schemaLocation   The schema location, {@code null} to load the content without checking it
      * @param <T>              The environment class
      * @return The environment
      * @throws BluePrinterException if an error occurs during loading
      */
     private static <T> T loadConfiguration(Source source, Class<T> environmentClass, String schemaLocation) throws BluePrinterException {
         try {
-            JAXBContext context = JAXBContext.newInstance(environmentClass);
-            SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            schemaFactory.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "true");
-
-            Source schemaFile = new StreamSource(FileUtils.class.getClassLoader().getResourceAsStream(schemaLocation));
-            Schema schema = schemaFactory.newSchema(schemaFile);
+            JAXBContext context = getJaxbContext(environmentClass);
 
             Unmarshaller unmarshaller = context.createUnmarshaller();
-            unmarshaller.setSchema(schema);
+            if (schemaLocation != null)
+                unmarshaller.setSchema(getSchema(schemaLocation));
 
             return Optional.of(unmarshaller.unmarshal(source)).filter(environmentClass::isInstance).map(environmentClass::cast).orElseThrow(() -> new BluePrinterException("Invalid configuration file"));
         } catch (JAXBException | SAXException e) {
@@ -85,6 +151,84 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Get the JAXB context of the given class, created on the first call then cached
+     *
+     * @param type The class bound by the context
+     * @return The JAXB context
+     * @throws JAXBException if the context cannot be created
+     */
+    private static JAXBContext getJaxbContext(Class<?> type) throws JAXBException {
+        JAXBContext context = JAXB_CONTEXTS.get(type);
+
+        if (context != null) {
+            JAXB_CONTEXT_HITS.increment();
+            return context;
+        }
+
+        JAXB_CONTEXT_MISSES.increment();
+        context = JAXBContext.newInstance(type);
+        log.debug("JAXB context of {} created.", type.getName());
+
+        return Optional.ofNullable(JAXB_CONTEXTS.putIfAbsent(type, context)).orElse(context);
+    }
+
+    /**
+     * Get the compiled schema at the given classpath location, compiled on the first call then cached
+     *
+     * @param schemaLocation The classpath location of the schema
+     * @return The compiled schema
+     * @throws SAXException if the schema cannot be compiled
+     */
+    public static Schema getSchema(String schemaLocation) throws SAXException {
+        Schema schema = SCHEMAS.get(schemaLocation);
+
+        if (schema != null) {
+            SCHEMA_HITS.increment();
+            return schema;
+        }
+
+        SCHEMA_MISSES.increment();
+        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        schemaFactory.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "true");
+
+        Source schemaFile = new StreamSource(FileUtils.class.getClassLoader().getResourceAsStream(schemaLocation));
+        schema = schemaFactory.newSchema(schemaFile);
+        log.debug("Schema {} compiled.", schemaLocation);
+
+        return Optional.ofNullable(SCHEMAS.putIfAbsent(schemaLocation, schema)).orElse(schema);
+    }
+
+    /**
+     * Get the statistics of the JAXB context cache
+     *
+     * @return The number of hits, misses and cached contexts
+     */
+    public static CacheStatistics getJaxbContextCacheStatistics() {
+        return new CacheStatistics(JAXB_CONTEXT_HITS.sum(), JAXB_CONTEXT_MISSES.sum(), JAXB_CONTEXTS.size());
+    }
+
+    /**
+     * Get the statistics of the schema cache
+     *
+     * @return The number of hits, misses and cached schemas
+     */
+    public static CacheStatistics getSchemaCacheStatistics() {
+        return new CacheStatistics(SCHEMA_HITS.sum(), SCHEMA_MISSES.sum(), SCHEMAS.size());
+    }
+
+    /**
+     * Remove the cached JAXB contexts and schemas and reset the statistics
+     */
+    public static void clearCaches() {
+        JAXB_CONTEXTS.clear();
+        SCHEMAS.clear();
+        JAXB_CONTEXT_HITS.reset();
+        JAXB_CONTEXT_MISSES.reset();
+        SCHEMA_HITS.reset();
+        SCHEMA_MISSES.reset();
+    }
+
     /**
      * Load a configuration file
      * <p>Load the XML file with the given environment class and schema location and check if the file is a valid XML file given the schema.</p>
@@ -100,6 +244,20 @@ public class FileUtils {
         return loadConfiguration(new StreamSource(xmlFile), environmentClass, schemaLocation);
     }
 
+    /**
+     * Load a configuration file without checking it against its schema
+     * <p>Used to inspect a configuration file which is not valid given its schema, the file must still be well-formed XML.</p>
+     *
+     * @param xmlFile          The XML file
+     * @param environmentClass The environment class
+     * @param <T>              The environment class
+     * @return The environment
+     * @throws BluePrinterException if the file is not well-formed XML
+     */
+    public static <T> T loadUnvalidatedConfigurationFile(File xmlFile, Class<T> environmentClass) throws BluePrinterException {
+        return loadConfiguration(new StreamSource(xmlFile), environmentClass, null);
+    }
+
     /**
      * Load a configuration file
      * <p>Load the XML string with the given environment class and schema location and check if the file is a valid XML file given the schema.</p>
@@ -0,0 +1,74 @@
+package dev.vinyard.blueprinter.core.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class HashUtils {
+
+    public static final String ALGORITHM = "SHA-256";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Create a new message digest of the {@link #ALGORITHM} algorithm.
+     *
+     * @return A new message digest, a message digest is not thread safe
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not supported.", e);
+        }
+    }
+
+    /**
+     * Hash the given content.
+     *
+     * @param content The content to hash
+     * @return The hexadecimal hash of the content
+     */
+    public static String hash(byte[] content) {
+        return toHex(newDigest().digest(content));
+    }
+
+    /**
+     * Hash the given text, encoded in UTF-8.
+     *
+     * @param text The text to hash
+     * @return The hexadecimal hash of the text
+     */
+    public static String hash(String text) {
+        return hash(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hash the content of the given file, the file is streamed so it is never fully loaded in memory.
+     *
+     * @param path The file to hash
+     * @return The hexadecimal hash of the file content
+     * @throws IOException if the file cannot be read
+     */
+    public static String hash(Path path) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1)
+                digest.update(buffer, 0, read);
+        }
+
+        return toHex(digest.digest());
+    }
+
+    public static String toHex(byte[] hash) {
+        return HexFormat.of().formatHex(hash);
+    }
+}
@@ -1,18 +1,68 @@
 package dev.vinyard.blueprinter.core.utils;
 
-import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
+import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.Velocity;
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.context.Context;
 
 import java.io.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 
-@Slf4j
 public class VelocityUtils {
 
-    public static String processTemplate(VelocityContext velocityContext, File template) throws IOException {
+    /**
+     * Process the compiled template with the given velocity context.
+     *
+     * @param velocityContext The velocity context to use. The context is a map of key value pairs that can be used in the templates.
+     * @param template The compiled template to process
+     * @return The result of the template processing
+     */
+    public static String processTemplate(VelocityContext velocityContext, Template template) {
         StringWriter stringWriter = new StringWriter();
-        Velocity.evaluate(velocityContext, stringWriter, "LOG", new FileReader(template));
+        template.merge(velocityContext, stringWriter);
+        return stringWriter.toString();
+    }
+
+    /**
+     * Process the compiled template with the given velocity context, stopping as soon as the given condition is met.
+     * <p>The condition is checked each time the template writes some output, so a long render can be stopped before its end.</p>
+     *
+     * @param velocityContext The velocity context to use. The context is a map of key value pairs that can be used in the templates.
+     * @param template The compiled template to process
+     * @param cancelled The condition stopping the processing
+     * @return The result of the template processing
+     * @throws CancellationException if the processing has been stopped
+     */
+    public static String processTemplate(VelocityContext velocityContext, Template template, BooleanSupplier cancelled) {
+        StringWriter stringWriter = new StringWriter() {
+            @Override
+            public void write(int c) {
+                checkCancelled();
+                super.write(c);
+            }
+
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                checkCancelled();
+                super.write(cbuf, off, len);
+            }
+
+            @Override
+            public void write(String str, int off, int len) {
+                checkCancelled();
+                super.write(str, off, len);
+            }
+
+            private void checkCancelled() {
+                if (cancelled.getAsBoolean())
+                    throw new CancellationException("Template " + template.getName() + " processing cancelled");
+            }
+        };
+        template.merge(velocityContext, stringWriter);
         return stringWriter.toString();
     }
 
@@ -20,31 +70,42 @@ public class VelocityUtils {
      * Process the template with the given velocity context.
      * A template is a string that can contain velocity code.
      *
+     * @param velocityEngine The velocity engine used to evaluate the template
      * @param velocityContext The velocity context to use. The context is a map of key value pairs that can be used in the templates.
      * @param template The template to process
      * @return The result of the template processing
      */
-    public static String processTemplate(VelocityContext velocityContext, String template) {
+    public static String processTemplate(VelocityEngine velocityEngine, VelocityContext velocityContext, String template) {
         StringWriter stringWriter = new StringWriter();
-        Velocity.evaluate(velocityContext, stringWriter, "LOG", new StringReader(template));
+        velocityEngine.evaluate(velocityContext, stringWriter, "LOG", template);
         return stringWriter.toString();
     }
 
-    public static void processTemplate(VelocityContext velocityContext, File template, File file) {
-        Velocity.init();
-
-        try {
-            FileUtils.forceMkdirParent(file);
-        } catch (IOException e) {
-            throw new RuntimeException("Cannot create parent directory.", e);
-        }
-
-        try (FileWriter fileWriter = new FileWriter(file)) {
-            Velocity.evaluate(velocityContext, fileWriter, "LOG", new FileReader(template));
-            log.info("File {} generated.", file.getAbsolutePath());
-            fileWriter.flush();
-        } catch (IOException e) {
-            throw new RuntimeException("Cannot process template.", e);
-        }
+    /**
+     * Create a read only layer of velocity context, chained to the given inner context.
+     * <p>Values of the layer are read as usual, but any attempt to put or remove a value in the layer itself fails.
+     * Contexts chained on top of the layer are writable, so a read only layer can be shared by several generations, even concurrently.</p>
+     *
+     * @param values The values of the layer, copied
+     * @param innerContext The context the layer is chained to, {@code null} for a root layer
+     * @return The read only layer
+     */
+    public static VelocityContext freeze(Map<String, Object> values, Context innerContext) {
+        return new VelocityContext(Collections.unmodifiableMap(new HashMap<>(values)), innerContext);
+    }
+
+    /**
+     * Create a read only layer of velocity context holding the values of the given context, its chained contexts excluded.
+     *
+     * @param context The context whose values are copied
+     * @param innerContext The context the layer is chained to, {@code null} for a root layer
+     * @return The read only layer
+     * @see #freeze(Map, Context)
+     */
+    public static VelocityContext freeze(Context context, Context innerContext) {
+        Map<String, Object> values = new HashMap<>();
+        for (String key : context.getKeys())
+            values.put(key, context.get(key));
+        return freeze(values, innerContext);
     }
 }
@@ -0,0 +1,624 @@
+package dev.vinyard.blueprinter.core.workspace;
+
+import dev.vinyard.blueprinter.core.environment.EnvironmentManager;
+import dev.vinyard.blueprinter.core.model.ModelManager;
+import dev.vinyard.blueprinter.core.utils.HashUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Index of the models and templates of the workspace.
+ * <p>The index records the names of the models, the paths of the templates, the templates used by the directives of each model, and the hash of each file.
+ * It is stored in a compact binary file of the workspace, see {@link #INDEX_FILE}, so the models and templates are listed without walking the workspace.</p>
+ * <ul>
+ *     <li>When the index is opened, the stored entries are checked against the workspace before the first lookup, so the changes made while the application was down are seen.
+ *     Only the files whose size or modification time changed are hashed and read again.</li>
+ *     <li>The model and template directories are then watched with a {@link WatchService}, the index is updated as soon as a file is created, modified or deleted.</li>
+ *     <li>When the platform only offers a polling watch service, the workspace is checked again on each lookup instead.</li>
+ * </ul>
+ * <p>The index follows the home directory of the {@link EnvironmentManager}, it is opened again when the home directory changes. It is safe to use from several threads.</p>
+ */
+@Slf4j
+public class WorkspaceIndex implements Closeable {
+
+    public static final String INDEX_FILE = "workspace.index";
+
+    private static final int MAGIC = 0x42504958;
+
+    private static final int VERSION = 1;
+
+    private static final String TEMPLATE_EXTENSION = ".vm";
+
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+
+    private final EnvironmentManager environmentManager;
+
+    private Workspace workspace;
+
+    public WorkspaceIndex(EnvironmentManager environmentManager) {
+        this.environmentManager = environmentManager;
+    }
+
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Link between a directive of a model and its template.
+     *
+     * @param model The name of the model
+     * @param directive The name of the directive
+     * @param template The template of the directive, relative to the template directory, as written in the model
+     */
+    public record DirectiveLink(String model, String directive, String template) { }
+
+    /**
+     * Get the names of the models of the workspace.
+     *
+     * @return The sorted names of the models
+     */
+    public List<String> getModels() {
+        return List.copyOf(this.workspace().lookup().models.keySet());
+    }
+
+    /**
+     * Get the templates of the workspace.
+     *
+     * @return The sorted paths of the templates, relative to the template directory, with {@code /} separators
+     */
+    public List<String> getTemplates() {
+        return List.copyOf(this.workspace().lookup().templates.keySet());
+    }
+
+    /**
+     * Get the links between the directives of the given model and their templates.
+     *
+     * @param model The name of the model
+     * @return The links of the directives of the model, empty if the model does not exist or cannot be read
+     */
+    public List<DirectiveLink> getDirectives(String model) {
+        return Optional.ofNullable(this.workspace().lookup().models.get(model)).map(IndexedModel::directives).orElseGet(List::of);
+    }
+
+    /**
+     * Find the directives using the given template, in all the models.
+     *
+     * @param template The path of the template, relative to the template directory
+     * @return The links of the directives using the template
+     */
+    public List<DirectiveLink> findDirectives(String template) {
+        String path = FilenameUtils.separatorsToUnix(template);
+        return this.workspace().lookup().models.values().stream()
+                .flatMap(m -> m.directives().stream())
+                .filter(l -> path.equals(FilenameUtils.separatorsToUnix(l.template())))
+                .toList();
+    }
+
+    /**
+     * Get the hash of the given template or model configuration file, as recorded in the index.
+     *
+     * @param file The template or model configuration file
+     * @return The hexadecimal hash of the file, empty if the file is not indexed
+     */
+    public Optional<String> getHash(File file) {
+        return this.workspace().lookup().getHash(file.toPath().toAbsolutePath().normalize());
+    }
+
+    /**
+     * Index the given file or directory of the workspace again, without waiting for the events of the file system.
+     * <p>The managers call it when they create or delete a model or a template, so the change is listed right away.</p>
+     *
+     * @param file The template, the model directory, or one of their parent directories
+     */
+    public void refresh(File file) {
+        this.workspace().refresh(file.toPath().toAbsolutePath().normalize());
+    }
+
+    /**
+     * Save the index in its file, if it changed since it was loaded.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    public void save() throws IOException {
+        this.workspace().save();
+    }
+
+    /**
+     * Save the index and stop watching the workspace.
+     */
+    @Override
+    @PreDestroy
+    public synchronized void close() {
+        if (workspace != null)
+            workspace.close();
+        workspace = null;
+    }
+
+    private synchronized Workspace workspace() {
+        Path workspaceDirectory = environmentManager.getWorkspaceDirectory().toPath().toAbsolutePath().normalize();
+
+        if (workspace != null && workspace.workspaceDirectory.equals(workspaceDirectory))
+            return workspace;
+
+        if (workspace != null)
+            workspace.close();
+
+        workspace = new Workspace(workspaceDirectory, environmentManager.getModelDirectory().toPath().toAbsolutePath().normalize(),
+                environmentManager.getTemplateDirectory().toPath().toAbsolutePath().normalize(), environmentManager.getWorkspaceIndexFile().toPath().toAbsolutePath().normalize());
+        workspace.open();
+
+        return workspace;
+    }
+
+    /**
+     * Size, modification time and hash of an indexed file.
+     */
+    private record IndexedFile(long lastModified, long size, String hash) {
+
+        private static IndexedFile of(Path path, BasicFileAttributes attributes) throws IOException {
+            return new IndexedFile(attributes.lastModifiedTime().toMillis(), attributes.size(), HashUtils.hash(path));
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return lastModified == attributes.lastModifiedTime().toMillis() && size == attributes.size();
+        }
+    }
+
+    /**
+     * Indexed model.
+     *
+     * @param configuration The configuration file of the model, {@code null} if the model directory has none
+     * @param directives The links of the directives of the model
+     */
+    private record IndexedModel(IndexedFile configuration, List<DirectiveLink> directives) { }
+
+    /**
+     * Index of one workspace directory.
+     * <p>The index is only modified by one thread at a time, the lookups read the concurrent maps without locking.</p>
+     */
+    private static class Workspace {
+
+        private final Path workspaceDirectory;
+
+        private final Path modelDirectory;
+
+        private final Path templateDirectory;
+
+        private final Path indexFile;
+
+        private final ConcurrentSkipListMap<String, IndexedFile> templates = new ConcurrentSkipListMap<>();
+
+        private final ConcurrentSkipListMap<String, IndexedModel> models = new ConcurrentSkipListMap<>();
+
+        private final Map<Path, WatchKey> watchedDirectories = new ConcurrentHashMap<>();
+
+        private final WatchService watchService;
+
+        private volatile boolean modified;
+
+        private Workspace(Path workspaceDirectory, Path modelDirectory, Path templateDirectory, Path indexFile) {
+            this.workspaceDirectory = workspaceDirectory;
+            this.modelDirectory = modelDirectory;
+            this.templateDirectory = templateDirectory;
+            this.indexFile = indexFile;
+            this.watchService = newWatchService();
+        }
+
+        private static WatchService newWatchService() {
+            try {
+                WatchService service = FileSystems.getDefault().newWatchService();
+
+                if (service.getClass().getSimpleName().startsWith("Polling")) {
+                    log.debug("Only a polling watch service is available, the workspace index checks the workspace on each lookup.");
+                    service.close();
+                    return null;
+                }
+
+                return service;
+            } catch (IOException | UnsupportedOperationException e) {
+                log.debug("Watch service is not available, the workspace index checks the workspace on each lookup : {}", e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * Load the stored index and check it against the workspace, then watch the workspace in the background.
+         * <p>Without stored index, the whole workspace is indexed.</p>
+         */
+        private void open() {
+            this.load();
+            this.reconcile();
+
+            if (watchService == null)
+                return;
+
+            Thread.ofPlatform().name("blueprinter-workspace-index").daemon().start(this::watch);
+        }
+
+        /**
+         * Get the workspace to look up, checked again first when the workspace is not watched.
+         */
+        private Workspace lookup() {
+            if (watchService == null)
+                this.reconcile();
+
+            return this;
+        }
+
+        private Optional<String> getHash(Path path) {
+            if (path.startsWith(templateDirectory))
+                return Optional.ofNullable(templates.get(relativeTemplate(path))).map(IndexedFile::hash);
+
+            if (path.startsWith(modelDirectory) && path.getNameCount() == modelDirectory.getNameCount() + 2 && path.endsWith(ModelManager.CONFIGURATION_FILE))
+                return Optional.ofNullable(models.get(path.getName(modelDirectory.getNameCount()).toString())).map(IndexedModel::configuration).map(IndexedFile::hash);
+
+            return Optional.empty();
+        }
+
+        private synchronized void refresh(Path path) {
+            // a directory created after the index was opened, like the workspace initialized by the shell, is not watched yet
+            if (watchService != null && (!watchedDirectories.containsKey(modelDirectory) || !watchedDirectories.containsKey(templateDirectory))) {
+                this.reconcile();
+            } else if (path.startsWith(templateDirectory)) {
+                this.refreshTemplates(path);
+            } else if (path.startsWith(modelDirectory) && !path.equals(modelDirectory)) {
+                String model = path.getName(modelDirectory.getNameCount()).toString();
+                this.watchDirectory(modelDirectory.resolve(model));
+                this.refreshModel(model);
+            } else {
+                this.reconcile();
+            }
+
+            this.saveQuietly();
+        }
+
+        /**
+         * Check the whole index against the workspace.
+         */
+        private synchronized void reconcile() {
+            this.watchTree(templateDirectory);
+            this.watchDirectory(modelDirectory);
+
+            this.refreshTemplates(templateDirectory);
+
+            Set<String> found = new HashSet<>();
+            if (Files.isDirectory(modelDirectory)) {
+                try (Stream<Path> paths = Files.list(modelDirectory)) {
+                    paths.filter(Files::isDirectory).forEach(folder -> {
+                        String model = folder.getFileName().toString();
+                        found.add(model);
+                        this.watchDirectory(folder);
+                        this.refreshModel(model);
+                    });
+                } catch (IOException | UncheckedIOException e) {
+                    log.warn("Model directory {} cannot be listed : {}", modelDirectory, e.getMessage());
+                    return;
+                }
+            }
+
+            if (models.keySet().removeIf(model -> !found.contains(model)))
+                modified = true;
+
+            this.saveQuietly();
+        }
+
+        /**
+         * Index the templates of the given template or directory again, the templates of the directory that no longer exist are removed.
+         */
+        private void refreshTemplates(Path path) {
+            if (!Files.isDirectory(path)) {
+                if (isTemplate(path))
+                    this.refreshTemplate(path);
+                else
+                    this.removeTemplates(relativeTemplate(path) + "/");
+                return;
+            }
+
+            Set<String> found = new HashSet<>();
+            try (Stream<Path> paths = Files.walk(path)) {
+                paths.filter(WorkspaceIndex::isTemplate).filter(Files::isRegularFile).forEach(template -> {
+                    found.add(relativeTemplate(template));
+                    this.refreshTemplate(template);
+                });
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Template directory {} cannot be walked : {}", path, e.getMessage());
+                return;
+            }
+
+            String prefix = path.equals(templateDirectory) ? "" : relativeTemplate(path) + "/";
+            if (templates.keySet().removeIf(template -> template.startsWith(prefix) && !found.contains(template)))
+                modified = true;
+        }
+
+        private void refreshTemplate(Path template) {
+            String key = relativeTemplate(template);
+
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(template, BasicFileAttributes.class);
+                IndexedFile indexed = templates.get(key);
+
+                if (indexed != null && indexed.matches(attributes))
+                    return;
+
+                templates.put(key, IndexedFile.of(template, attributes));
+                modified = true;
+            } catch (IOException e) {
+                if (templates.remove(key) != null)
+                    modified = true;
+            }
+        }
+
+        private void removeTemplates(String prefix) {
+            if (templates.keySet().removeIf(template -> template.startsWith(prefix)))
+                modified = true;
+        }
+
+        private void refreshModel(String model) {
+            Path folder = modelDirectory.resolve(model);
+
+            if (!Files.isDirectory(folder)) {
+                if (models.remove(model) != null)
+                    modified = true;
+                return;
+            }
+
+            Path configurationFile = folder.resolve(ModelManager.CONFIGURATION_FILE);
+            IndexedModel indexed = models.get(model);
+
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(configurationFile, BasicFileAttributes.class);
+
+                if (indexed != null && indexed.configuration() != null && indexed.configuration().matches(attributes))
+                    return;
+
+                models.put(model, new IndexedModel(IndexedFile.of(configurationFile, attributes), readDirectives(model, configurationFile)));
+            } catch (IOException e) {
+                if (indexed != null && indexed.configuration() == null)
+                    return;
+
+                models.put(model, new IndexedModel(null, List.of()));
+            }
+
+            modified = true;
+        }
+
+        /**
+         * Read the links of the directives of the given model configuration file, without validating it.
+         */
+        private static List<DirectiveLink> readDirectives(String model, Path configurationFile) throws IOException {
+            List<DirectiveLink> links = new ArrayList<>();
+
+            try (InputStream inputStream = Files.newInputStream(configurationFile)) {
+                XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(inputStream);
+                try {
+                    while (reader.hasNext()) {
+                        if (reader.next() == XMLStreamConstants.START_ELEMENT && "directive".equals(reader.getLocalName()))
+                            links.add(new DirectiveLink(model, Objects.toString(reader.getAttributeValue(null, "name"), ""), Objects.toString(reader.getAttributeValue(null, "template"), "")));
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (XMLStreamException e) {
+                log.debug("Directives of model {} cannot be indexed : {}", model, e.getMessage());
+            }
+
+            return List.copyOf(links);
+        }
+
+        private String relativeTemplate(Path template) {
+            return FilenameUtils.separatorsToUnix(templateDirectory.relativize(template).toString());
+        }
+
+        /**
+         * Watch the given directory and its sub directories.
+         */
+        private void watchTree(Path directory) {
+            if (watchService == null || !Files.isDirectory(directory))
+                return;
+
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.filter(Files::isDirectory).forEach(this::watchDirectory);
+            } catch (IOException | UncheckedIOException e) {
+                log.debug("Directory {} cannot be watched : {}", directory, e.getMessage());
+            }
+        }
+
+        private void watchDirectory(Path directory) {
+            if (watchService == null || !Files.isDirectory(directory))
+                return;
+
+            WatchKey key = watchedDirectories.get(directory);
+            if (key != null && key.isValid())
+                return;
+
+            try {
+                watchedDirectories.put(directory, directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY));
+            } catch (IOException | ClosedWatchServiceException e) {
+                log.debug("Directory {} cannot be watched : {}", directory, e.getMessage());
+            }
+        }
+
+        /**
+         * Update the index from the events of the watched directories, until the index is closed.
+         */
+        private void watch() {
+            while (true) {
+                WatchKey key;
+                try {
+                    key = watchService.take();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                }
+
+                Path directory = (Path) key.watchable();
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                        this.reconcile();
+                    else
+                        this.onEvent(directory, directory.resolve((Path) event.context()), event.kind());
+                }
+
+                if (!key.reset())
+                    watchedDirectories.remove(directory, key);
+
+                this.saveQuietly();
+            }
+        }
+
+        private synchronized void onEvent(Path directory, Path path, WatchEvent.Kind<?> kind) {
+            if (path.startsWith(templateDirectory)) {
+                if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path))
+                    this.watchTree(path);
+                this.refreshTemplates(path);
+            } else if (directory.equals(modelDirectory)) {
+                this.watchDirectory(path);
+                this.refreshModel(path.getFileName().toString());
+            } else if (modelDirectory.equals(directory.getParent())) {
+                this.refreshModel(directory.getFileName().toString());
+            }
+        }
+
+        /**
+         * Load the index stored in the index file, if any.
+         */
+        private void load() {
+            if (!Files.isRegularFile(indexFile))
+                return;
+
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+                if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                    log.debug("Workspace index {} has another format, the workspace is indexed again.", indexFile);
+                    return;
+                }
+
+                for (int i = input.readInt(); i > 0; i--)
+                    templates.put(input.readUTF(), readFile(input));
+
+                for (int i = input.readInt(); i > 0; i--) {
+                    String model = input.readUTF();
+                    IndexedFile configuration = input.readBoolean() ? readFile(input) : null;
+                    DirectiveLink[] links = new DirectiveLink[input.readInt()];
+                    for (int j = 0; j < links.length; j++)
+                        links[j] = new DirectiveLink(model, input.readUTF(), input.readUTF());
+                    models.put(model, new IndexedModel(configuration, List.of(links)));
+                }
+
+                log.debug("Workspace index {} loaded : {} models, {} templates.", indexFile, models.size(), templates.size());
+            } catch (IOException e) {
+                log.warn("Workspace index {} cannot be read, the workspace is indexed again : {}", indexFile, e.getMessage());
+                templates.clear();
+                models.clear();
+            }
+        }
+
+        private static IndexedFile readFile(DataInput input) throws IOException {
+            long lastModified = input.readLong();
+            long size = input.readLong();
+            byte[] hash = new byte[HashUtils.newDigest().getDigestLength()];
+            input.readFully(hash);
+            return new IndexedFile(lastModified, size, HashUtils.toHex(hash));
+        }
+
+        private static void writeFile(DataOutput output, IndexedFile file) throws IOException {
+            output.writeLong(file.lastModified());
+            output.writeLong(file.size());
+            output.write(HexFormat.of().parseHex(file.hash()));
+        }
+
+        /**
+         * Save the index in the index file, if it was modified since it was loaded.
+         * <p>The index is written in a temporary file then moved over the previous one, so a failed save never leaves a truncated index.
+         * Nothing is saved while the workspace is not initialized.</p>
+         */
+        private synchronized void save() throws IOException {
+            if (!modified || !Files.isDirectory(workspaceDirectory))
+                return;
+
+            modified = false;
+            Path temporary = Files.createTempFile(workspaceDirectory, INDEX_FILE, ".tmp");
+
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    output.writeInt(MAGIC);
+                    output.writeInt(VERSION);
+
+                    Map<String, IndexedFile> templateEntries = Map.copyOf(templates);
+                    output.writeInt(templateEntries.size());
+                    for (Map.Entry<String, IndexedFile> entry : templateEntries.entrySet()) {
+                        output.writeUTF(entry.getKey());
+                        writeFile(output, entry.getValue());
+                    }
+
+                    Map<String, IndexedModel> modelEntries = Map.copyOf(models);
+                    output.writeInt(modelEntries.size());
+                    for (Map.Entry<String, IndexedModel> entry : modelEntries.entrySet()) {
+                        output.writeUTF(entry.getKey());
+                        output.writeBoolean(entry.getValue().configuration() != null);
+                        if (entry.getValue().configuration() != null)
+                            writeFile(output, entry.getValue().configuration());
+                        output.writeInt(entry.getValue().directives().size());
+                        for (DirectiveLink link : entry.getValue().directives()) {
+                            output.writeUTF(link.directive());
+                            output.writeUTF(link.template());
+                        }
+                    }
+                }
+
+                try {
+                    Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                modified = true;
+                throw e;
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+
+            log.debug("Workspace index {} saved : {} models, {} templates.", indexFile, models.size(), templates.size());
+        }
+
+        private void saveQuietly() {
+            try {
+                this.save();
+            } catch (IOException e) {
+                log.warn("Workspace index {} cannot be saved, the workspace will be indexed again : {}", indexFile, e.getMessage());
+            }
+        }
+
+        private void close() {
+            this.saveQuietly();
+
+            try {
+                if (watchService != null)
+                    watchService.close();
+            } catch (IOException e) {
+                log.debug("Workspace index watch service cannot be closed : {}", e.getMessage());
+            }
+
+            watchedDirectories.clear();
+        }
+    }
+
+    private static boolean isTemplate(Path path) {
+        return path.getFileName() != null && path.getFileName().toString().endsWith(TEMPLATE_EXTENSION);
+    }
+}
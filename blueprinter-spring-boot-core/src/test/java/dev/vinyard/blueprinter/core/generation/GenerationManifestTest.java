@@ -0,0 +1,149 @@
+package dev.vinyard.blueprinter.core.generation;
+
+import org.apache.velocity.VelocityContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationManifestTest {
+
+    @TempDir
+    Path directory;
+
+    private File manifestFile() {
+        return directory.resolve(GenerationManifest.MANIFEST_FILE).toFile();
+    }
+
+    private File file(String path, String content) throws Exception {
+        return Files.writeString(directory.resolve(path), content).toFile();
+    }
+
+    private static VelocityContext context(Map<String, Object> values) {
+        VelocityContext context = new VelocityContext();
+        values.forEach(context::put);
+        return context;
+    }
+
+    @Test
+    void savedManifestIsLoaded() throws Exception {
+        File output = file("out.txt", "content");
+        GenerationManifest manifest = GenerationManifest.load(manifestFile());
+        manifest.record("out.txt", output, "template", "inputs");
+        manifest.save();
+
+        GenerationManifest loaded = GenerationManifest.load(manifestFile());
+
+        assertEquals(1, loaded.size());
+        assertTrue(loaded.isUpToDate("out.txt", output, "template", "inputs"));
+    }
+
+    @Test
+    void missingManifestIsEmpty() {
+        GenerationManifest manifest = GenerationManifest.load(manifestFile());
+
+        assertEquals(0, manifest.size());
+        assertDoesNotThrow(manifest::save);
+        assertFalse(manifestFile().exists());
+    }
+
+    @Test
+    void fileIsUpToDateUntilItsTemplateItsInputsOrItsContentChange() throws Exception {
+        File output = file("out.txt", "content");
+        GenerationManifest manifest = GenerationManifest.load(manifestFile());
+        manifest.record("out.txt", output, "template", "inputs");
+
+        assertTrue(manifest.isUpToDate("out.txt", output, "template", "inputs"));
+        assertFalse(manifest.isUpToDate("out.txt", output, "other", "inputs"));
+        assertFalse(manifest.isUpToDate("out.txt", output, "template", "other"));
+        assertFalse(manifest.isUpToDate("other.txt", output, "template", "inputs"));
+
+        Files.writeString(output.toPath(), "modified");
+        assertFalse(manifest.isUpToDate("out.txt", output, "template", "inputs"));
+    }
+
+    @Test
+    void touchedFileWithTheSameContentIsUpToDate() throws Exception {
+        File output = file("out.txt", "content");
+        GenerationManifest manifest = GenerationManifest.load(manifestFile());
+        manifest.record("out.txt", output, "template", "inputs");
+
+        Files.setLastModifiedTime(output.toPath(), FileTime.fromMillis(output.lastModified() + 10_000));
+
+        assertTrue(manifest.isUpToDate("out.txt", output, "template", "inputs"));
+    }
+
+    @Test
+    void fileWithUnknownTemplateOrInputsIsNeverUpToDate() throws Exception {
+        File output = file("out.txt", "content");
+        GenerationManifest manifest = GenerationManifest.load(manifestFile());
+        manifest.record("out.txt", output, "template", "inputs");
+
+        assertFalse(manifest.isUpToDate("out.txt", output, null, "inputs"));
+        assertFalse(manifest.isUpToDate("out.txt", output, "template", null));
+
+        manifest.record("out.txt", output, "template", null);
+        assertEquals(0, manifest.size());
+    }
+
+    @Test
+    void inputsHashOnlyDependsOnTheReadVariables() {
+        VelocityContext parent = context(Map.of("name", "Foo", "unrelated", "a"));
+        String hash = GenerationManifest.hashInputs(new VelocityContext(parent), Set.of("name"), "directive");
+
+        assertEquals(hash, GenerationManifest.hashInputs(context(Map.of("name", "Foo", "unrelated", "b")), Set.of("name"), "directive"));
+        assertNotEquals(hash, GenerationManifest.hashInputs(context(Map.of("name", "Bar")), Set.of("name"), "directive"));
+        assertNotEquals(hash, GenerationManifest.hashInputs(parent, Set.of("name"), "other"));
+    }
+
+    @Test
+    void inputsHashChangesWhenAMissingVariableIsSet() {
+        String hash = GenerationManifest.hashInputs(context(Map.of()), Set.of("name"));
+
+        assertNotNull(hash);
+        assertNotEquals(hash, GenerationManifest.hashInputs(context(Map.of("name", "")), Set.of("name")));
+    }
+
+    @Test
+    void inputsHashIsUnknownForUnknownVariablesOrValuesWhichAreNotData() {
+        assertNull(GenerationManifest.hashInputs(context(Map.of("name", "Foo")), null));
+        assertNull(GenerationManifest.hashInputs(context(Map.of("tool", new Object())), Set.of("tool")));
+        assertNull(GenerationManifest.hashInputs(context(Map.of("list", List.of("a", new Object()))), Set.of("list")));
+        assertNotNull(GenerationManifest.hashInputs(context(Map.of("list", List.of("a", 1, true), "map", Map.of("k", "v"))), Set.of("list", "map")));
+    }
+
+    @Test
+    void concurrentManifestsAreMergedWhenSaved() throws Exception {
+        File first = file("first.txt", "first");
+        File second = file("second.txt", "second");
+        File removed = file("removed.txt", "removed");
+
+        GenerationManifest initial = GenerationManifest.load(manifestFile());
+        initial.record("removed.txt", removed, "template", "inputs");
+        initial.save();
+
+        GenerationManifest one = GenerationManifest.load(manifestFile());
+        GenerationManifest other = GenerationManifest.load(manifestFile());
+        one.record("first.txt", first, "template", "inputs");
+        other.record("second.txt", second, "template", "inputs");
+        other.forget("removed.txt");
+        one.save();
+        other.save();
+
+        GenerationManifest loaded = GenerationManifest.load(manifestFile());
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.isUpToDate("first.txt", first, "template", "inputs"));
+        assertTrue(loaded.isUpToDate("second.txt", second, "template", "inputs"));
+
+        // the files saved by the other manifest are adopted once saved
+        assertTrue(other.isUpToDate("first.txt", first, "template", "inputs"));
+    }
+}
@@ -0,0 +1,142 @@
+package dev.vinyard.blueprinter.core.generation;
+
+import dev.vinyard.blueprinter.core.model.ValidatedModel;
+import dev.vinyard.blueprinter.core.model.entities.*;
+import dev.vinyard.blueprinter.core.model.entities.Properties;
+import dev.vinyard.blueprinter.core.template.ExpressionEvaluator;
+import dev.vinyard.blueprinter.core.template.TemplateCache;
+import dev.vinyard.blueprinter.core.template.TemplateFixture;
+import dev.vinyard.blueprinter.core.template.TemplateResourceLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelDependenciesTest {
+
+    @TempDir
+    Path templateDirectory;
+
+    private TemplateCache templateCache;
+
+    private ExpressionEvaluator expressionEvaluator;
+
+    @BeforeEach
+    void setUp() {
+        TemplateResourceLoader templateResourceLoader = TemplateFixture.templateResourceLoader(templateDirectory);
+
+        templateCache = new TemplateCache(templateResourceLoader);
+        expressionEvaluator = new ExpressionEvaluator(templateResourceLoader);
+    }
+
+    private File template(String content) throws Exception {
+        return Files.writeString(templateDirectory.resolve("main.vm"), content).toFile();
+    }
+
+    private static Property property(String key, String value) {
+        Property property = new Property();
+        property.setKey(key);
+        property.setValue(value);
+        return property;
+    }
+
+    private static StringInput stringInput(String key, String defaultValue) {
+        StringInput stringInput = new StringInput();
+        stringInput.setValue(key);
+        DefaultValue value = new DefaultValue();
+        value.setContent(defaultValue);
+        stringInput.setDefaultValue(value);
+        return stringInput;
+    }
+
+    private static SetupInput setupInput(String key, String content) {
+        SetupInput setupInput = new SetupInput();
+        setupInput.setValue(key);
+        Setup setup = new Setup();
+        setup.setContent(content);
+        setupInput.setSetup(setup);
+        return setupInput;
+    }
+
+    private static Model model(List<Property> propertyList, List<StringInput> stringInputList, List<SetupInput> setupInputList) {
+        Properties properties = new Properties();
+        properties.setPropertyList(propertyList);
+
+        Prompts prompts = new Prompts();
+        prompts.setStringInputList(stringInputList);
+        prompts.setSetupInputList(setupInputList);
+
+        Model model = new Model();
+        model.setName("test");
+        model.setProperties(properties);
+        model.setPrompts(prompts);
+        return model;
+    }
+
+    private Set<String> usedKeys(Model model, File template, Set<String> directiveVariables) {
+        ValidatedModel validatedModel = new ValidatedModel(model.getName(), model, List.of(), Set.of(template), directiveVariables);
+        return ModelDependencies.of(validatedModel, expressionEvaluator).getUsedKeys(templateCache);
+    }
+
+    @Test
+    void usedKeysAreTheTransitiveClosureOfTheTemplatesAndTheOutputPaths() throws Exception {
+        Model model = model(
+                List.of(property("A", "${B}-a"), property("B", "b"), property("C", "$D"), property("D", "d"), property("F", "f"), property("P", "$Q.toLowerCase()"), property("Q", "q")),
+                List.of(stringInput("E", "${F}"), stringInput("G", "$D")),
+                List.of(setupInput("S", "#set($setup = 'value')")));
+
+        Set<String> usedKeys = usedKeys(model, template("$A $E"), Set.of("P"));
+
+        assertEquals(Set.of("A", "B", "E", "F", "P", "Q", "S"), usedKeys);
+    }
+
+    @Test
+    void keyDeclaredByAPropertyAndAPromptDependsOnBoth() throws Exception {
+        Model model = model(List.of(property("A", "$B"), property("B", "b"), property("C", "c")), List.of(stringInput("A", "$C")), List.of());
+
+        assertEquals(Set.of("A", "B", "C"), usedKeys(model, template("$A"), Set.of()));
+    }
+
+    @Test
+    void allKeysAreUsedWhenAUsedPropertyCannotBeAnalysed() throws Exception {
+        Model model = model(List.of(property("A", "#parse($B)"), property("B", "b"), property("C", "c")), List.of(), List.of());
+
+        assertNull(usedKeys(model, template("$A"), Set.of()));
+    }
+
+    @Test
+    void unusedPropertyWhichCannotBeAnalysedIsIgnored() throws Exception {
+        Model model = model(List.of(property("A", "a"), property("B", "#parse($C)")), List.of(), List.of());
+
+        assertEquals(Set.of("A"), usedKeys(model, template("$A"), Set.of()));
+    }
+
+    @Test
+    void propertyWhichMaySetVariablesIsAlwaysUsed() throws Exception {
+        Model model = model(List.of(property("A", "a"), property("B", "#evaluate($C)"), property("C", "c")), List.of(), List.of());
+
+        assertNull(usedKeys(model, template("$A"), Set.of()));
+        assertEquals(Set.of("A", "B"), usedKeys(model(List.of(property("A", "a"), property("B", "#set($b = $b)")), List.of(), List.of()), template("$A"), Set.of()));
+    }
+
+    @Test
+    void allKeysAreUsedWhenATemplateCannotBeAnalysed() throws Exception {
+        Model model = model(List.of(property("A", "a")), List.of(), List.of());
+
+        assertNull(usedKeys(model, template("#parse($A)"), Set.of()));
+        assertNull(usedKeys(model, template("#library($A)"), Set.of()));
+    }
+
+    @Test
+    void allKeysAreUsedWhenTheOutputPathsCannotBeAnalysed() throws Exception {
+        Model model = model(List.of(property("A", "a")), List.of(), List.of());
+
+        assertNull(usedKeys(model, template("$A"), null));
+    }
+}
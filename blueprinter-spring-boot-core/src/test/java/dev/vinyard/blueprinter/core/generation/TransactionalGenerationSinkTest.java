@@ -0,0 +1,109 @@
+package dev.vinyard.blueprinter.core.generation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionalGenerationSinkTest {
+
+    @TempDir
+    Path directory;
+
+    private void file(String path, String content) throws IOException {
+        Path file = directory.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The files and the directories of the sink directory, with the content of the files.
+     */
+    private Map<String, String> snapshot() throws IOException {
+        Map<String, String> snapshot = new TreeMap<>();
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.filter(p -> !p.equals(directory))::iterator)
+                snapshot.put(directory.relativize(path).toString(), Files.isDirectory(path) ? "/" : Files.readString(path));
+        }
+
+        return snapshot;
+    }
+
+    @Test
+    void writtenFilesAreOnlyVisibleOnceCommitted() throws Exception {
+        file("existing.txt", "previous");
+        TransactionalGenerationSink sink = new TransactionalGenerationSink(directory.toFile(), false);
+
+        assertTrue(sink.write("existing.txt", bytes("next")));
+        assertTrue(sink.write("nested/deep/new.txt", bytes("new")));
+
+        assertTrue(sink.exists("nested/deep/new.txt"));
+        assertEquals("previous", Files.readString(directory.resolve("existing.txt")));
+        assertFalse(Files.exists(directory.resolve("nested/deep/new.txt")));
+
+        sink.commit();
+
+        assertEquals(Map.of("existing.txt", "next", "nested", "/", "nested/deep", "/", "nested/deep/new.txt", "new"), snapshot());
+    }
+
+    @Test
+    void rollbackLeavesTheDirectoryUntouched() throws Exception {
+        file("existing.txt", "previous");
+        file("kept/other.txt", "other");
+        Map<String, String> before = snapshot();
+        TransactionalGenerationSink sink = new TransactionalGenerationSink(directory.toFile(), false);
+
+        sink.write("existing.txt", bytes("next"));
+        sink.write("nested/deep/new.txt", bytes("new"));
+        sink.write("kept/new.txt", bytes("new"));
+        sink.rollback();
+
+        assertEquals(before, snapshot());
+    }
+
+    @Test
+    void unchangedFileIsNotStaged() throws Exception {
+        file("existing.txt", "same");
+        Map<String, String> before = snapshot();
+        TransactionalGenerationSink sink = new TransactionalGenerationSink(directory.toFile(), true);
+
+        assertFalse(sink.write("existing.txt", bytes("same")));
+        sink.commit();
+
+        assertEquals(before, snapshot());
+    }
+
+    @Test
+    void failedCommitRestoresThePublishedFiles() throws Exception {
+        file("existing.txt", "previous");
+        // a file cannot replace a directory which is not empty, the publication of this file fails
+        file("conflict/inside.txt", "inside");
+        Path link = Files.createLink(directory.resolve("link.txt"), directory.resolve("existing.txt"));
+        Map<String, String> before = snapshot();
+        TransactionalGenerationSink sink = new TransactionalGenerationSink(directory.toFile(), false);
+
+        // the files are published in this order, the failing file is published last
+        sink.write("existing.txt", bytes("next"));
+        sink.write("nested/new.txt", bytes("new"));
+        sink.write("conflict", bytes("conflict"));
+
+        assertThrows(IOException.class, sink::commit);
+
+        assertEquals(before, snapshot());
+        // the replaced file is restored from its hard link backup, not from a copy
+        assertTrue(Files.isSameFile(link, directory.resolve("existing.txt")));
+    }
+}
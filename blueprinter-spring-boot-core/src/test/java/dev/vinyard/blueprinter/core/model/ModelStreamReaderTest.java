@@ -0,0 +1,114 @@
+package dev.vinyard.blueprinter.core.model;
+
+import dev.vinyard.blueprinter.core.exception.BluePrinterException;
+import dev.vinyard.blueprinter.core.model.entities.*;
+import dev.vinyard.blueprinter.core.utils.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelStreamReaderTest {
+
+    private static final String SCHEMA = ModelManager.FILE_LOCATION + ModelManager.SCHEMA_FILE;
+
+    private static final String LENIENT_SCHEMA = ModelManager.FILE_LOCATION + "lenient-model.xsd";
+
+    @TempDir
+    Path directory;
+
+    private static File resource(String name) throws Exception {
+        return new File(ModelStreamReaderTest.class.getClassLoader().getResource(name).toURI());
+    }
+
+    private File file(String content) throws Exception {
+        return Files.writeString(directory.resolve("model.xml"), content).toFile();
+    }
+
+    private static <T> List<T> list(List<T> list) {
+        return list == null ? null : new ArrayList<>(list);
+    }
+
+    private static <P, T> List<T> prompts(Model model, Function<Prompts, List<P>> getter, Function<P, T> mapper) {
+        return Optional.ofNullable(model.getPrompts()).map(getter).map(l -> l.stream().map(mapper).toList()).orElse(null);
+    }
+
+    private static void assertEquivalent(Model expected, Model actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getDependsOn(), actual.getDependsOn());
+        assertEquals(expected.getSetup(), actual.getSetup());
+        assertEquals(expected.getProperties(), actual.getProperties());
+
+        assertEquals(expected.getDirectives() == null, actual.getDirectives() == null);
+        if (expected.getDirectives() != null)
+            assertEquals(list(expected.getDirectives().getDirectiveList()), list(actual.getDirectives().getDirectiveList()));
+
+        assertEquals(expected.getPrompts() == null, actual.getPrompts() == null);
+        assertEquals(prompts(expected, Prompts::getStringInputList, Function.identity()), prompts(actual, Prompts::getStringInputList, Function.identity()));
+        assertEquals(prompts(expected, Prompts::getSetupInputList, Function.identity()), prompts(actual, Prompts::getSetupInputList, Function.identity()));
+        // the select values of a streamed model are read from the file, they are compared by content
+        assertEquals(prompts(expected, Prompts::getMonoSelectList, p -> Arrays.asList(p.getValue(), p.getOrder(), list(p.getValueList()))),
+                prompts(actual, Prompts::getMonoSelectList, p -> Arrays.asList(p.getValue(), p.getOrder(), list(p.getValueList()))));
+        assertEquals(prompts(expected, Prompts::getMultiSelectList, p -> Arrays.asList(p.getValue(), p.getOrder(), list(p.getValueList()))),
+                prompts(actual, Prompts::getMultiSelectList, p -> Arrays.asList(p.getValue(), p.getOrder(), list(p.getValueList()))));
+    }
+
+    @Test
+    void streamedModelIsTheLoadedModel() throws Exception {
+        File file = resource(ModelManager.FILE_LOCATION + "model.xml");
+
+        Model loaded = FileUtils.loadConfigurationFile(file, Model.class, SCHEMA);
+        Model streamed = ModelStreamReader.read(file, SCHEMA);
+
+        assertEquals(3, streamed.getDirectives().getDirectiveList().size());
+        assertEquals(2, streamed.getPrompts().getStringInputList().size());
+        assertEquivalent(loaded, streamed);
+    }
+
+    @Test
+    void streamedModelIsSummarized() throws Exception {
+        File file = resource(ModelManager.FILE_LOCATION + "model.xml");
+
+        DirectiveSummary summary = ModelStreamReader.read(file, SCHEMA, value -> value.contains("${PACKAGE") ? Set.of("PACKAGE") : Set.of()).directiveSummary();
+
+        assertEquals(List.of("entity.vm", "repository.vm", "escaped.vm"), List.copyOf(summary.templates()));
+        assertEquals(Set.of("PACKAGE"), summary.variables());
+        assertNull(ModelStreamReader.read(file, SCHEMA, value -> null).directiveSummary().variables());
+    }
+
+    @Test
+    void emptyElementsAreTheLoadedOnes() throws Exception {
+        File file = file("<model name=\"empty\"><properties/><directives/><prompts><monoSelect value=\"A\"/></prompts></model>");
+
+        Model loaded = FileUtils.loadConfigurationFile(file, Model.class, LENIENT_SCHEMA);
+        Model streamed = ModelStreamReader.read(file, LENIENT_SCHEMA);
+
+        assertNotNull(streamed.getDirectives());
+        assertEquivalent(loaded, streamed);
+    }
+
+    @Test
+    void missingElementsAreTheLoadedOnes() throws Exception {
+        File file = file("<model name=\"missing\"/>");
+
+        assertEquivalent(FileUtils.loadConfigurationFile(file, Model.class, LENIENT_SCHEMA), ModelStreamReader.read(file, LENIENT_SCHEMA));
+    }
+
+    @Test
+    void invalidModelIsRejected() throws Exception {
+        File file = file("<model name=\"invalid\"><directives/></model>");
+
+        assertThrows(BluePrinterException.class, () -> FileUtils.loadConfigurationFile(file, Model.class, SCHEMA));
+        assertThrows(BluePrinterException.class, () -> ModelStreamReader.read(file, SCHEMA));
+    }
+}
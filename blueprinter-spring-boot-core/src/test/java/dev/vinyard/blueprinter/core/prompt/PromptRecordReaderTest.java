@@ -0,0 +1,82 @@
+package dev.vinyard.blueprinter.core.prompt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptRecordReaderTest {
+
+    private static List<List<Prompt>> records(Stream<List<Prompt>> stream) {
+        try (stream) {
+            return stream.toList();
+        }
+    }
+
+    @Test
+    void csvHeaderKeysAreThePromptKeys() throws Exception {
+        List<List<Prompt>> records = records(PromptRecordReader.readCsv(new StringReader("A,B,B\r\n1,\"x,y\",z\n\n2,,\n")));
+
+        assertEquals(List.of(
+                List.of(new Prompt("A", List.of("1")), new Prompt("B", List.of("x,y", "z"))),
+                List.of(new Prompt("A", List.of("2")))), records);
+    }
+
+    @Test
+    void csvByteOrderMarkIsSkipped() throws Exception {
+        assertEquals(List.of(List.of(new Prompt("A", List.of("1")))), records(PromptRecordReader.readCsv(new StringReader("\uFEFF\"A\"\n1\n"))));
+    }
+
+    @Test
+    void jsonByteOrderMarkIsSkipped() throws Exception {
+        assertEquals(List.of(List.of(new Prompt("A", List.of("1", "2")))), records(PromptRecordReader.readJson(new StringReader("\uFEFF{\"A\":[\"1\",\"2\"]}\n"))));
+    }
+
+    @Test
+    void csvReaderIsClosedWhenTheFirstRecordCannotBeRead() {
+        FailingReader reader = new FailingReader("A,B\n");
+
+        assertThrows(IOException.class, () -> PromptRecordReader.readCsv(reader));
+        assertTrue(reader.closed);
+    }
+
+    @Test
+    void jsonReaderIsClosedWhenTheContentIsNotJson() {
+        FailingReader reader = new FailingReader("}");
+
+        assertThrows(IOException.class, () -> PromptRecordReader.readJson(reader));
+        assertTrue(reader.closed);
+    }
+
+    /**
+     * Reader failing once its content has been read.
+     */
+    private static class FailingReader extends Reader {
+
+        private final StringReader content;
+
+        private boolean closed;
+
+        private FailingReader(String content) {
+            this.content = new StringReader(content);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = content.read(buffer, offset, length);
+            if (read == -1)
+                throw new IOException("Content cannot be read");
+            return read;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package dev.vinyard.blueprinter.core.template;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.runtime.RuntimeInstance;
+import org.apache.velocity.runtime.parser.node.Node;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateAnalyzerTest {
+
+    private RuntimeInstance runtimeInstance;
+
+    private TemplateAnalyzer templateAnalyzer;
+
+    @BeforeEach
+    void setUp() {
+        runtimeInstance = new RuntimeInstance();
+        runtimeInstance.init();
+        templateAnalyzer = new TemplateAnalyzer(runtimeInstance);
+    }
+
+    private Node parse(String source) throws Exception {
+        Template template = new Template();
+        template.setName("test");
+        template.setRuntimeServices(runtimeInstance);
+        template.setData(runtimeInstance.parse(new StringReader(source), template));
+        template.initDocument();
+        return (Node) template.getData();
+    }
+
+    @Test
+    void variablesAreTheRootNamesOfTheReferences() throws Exception {
+        assertEquals(Set.of("name", "package", "list", "item"), templateAnalyzer.variables(parse("$name.toUpperCase() ${package}.x $!list.get(0) #foreach($item in $list)$item#end")));
+    }
+
+    @Test
+    void variablesIncludeTheReferencesInterpolatedInDoubleQuotedLiterals() throws Exception {
+        assertEquals(Set.of("name", "prefix", "suffix"), templateAnalyzer.variables(parse("$name.concat(\"${prefix}-$suffix.trim()\")")));
+    }
+
+    @Test
+    void variablesExcludeTheReferencesOfSingleQuotedLiterals() throws Exception {
+        assertEquals(Set.of("name"), templateAnalyzer.variables(parse("$name.concat('$prefix')")));
+    }
+
+    @Test
+    void variablesOfSetIncludeBothSides() throws Exception {
+        assertEquals(Set.of("target", "source"), templateAnalyzer.variables(parse("#set($target = $source)")));
+    }
+
+    @Test
+    void parseOfALiteralIsAReference() throws Exception {
+        Node node = parse("#parse(\"header.vm\")#include('footer.vm')$name");
+
+        assertEquals(Set.of("header.vm", "footer.vm"), Set.copyOf(TemplateAnalyzer.references(node)));
+        assertEquals(Set.of("name"), templateAnalyzer.variables(node));
+    }
+
+    @Test
+    void parseOfAnExpressionIsUnknown() throws Exception {
+        Node node = parse("#parse($header)$name");
+
+        assertNull(TemplateAnalyzer.references(node));
+        assertNull(templateAnalyzer.variables(node));
+    }
+
+    @Test
+    void parseOfAnInterpolatedLiteralIsUnknown() throws Exception {
+        Node node = parse("#parse(\"${header}.vm\")");
+
+        assertNull(TemplateAnalyzer.references(node));
+        assertNull(templateAnalyzer.variables(node));
+    }
+
+    @Test
+    void evaluateIsUnknown() throws Exception {
+        Node node = parse("#evaluate('$name')");
+
+        assertNull(templateAnalyzer.variables(node));
+        assertTrue(TemplateAnalyzer.assigns(node));
+    }
+
+    @Test
+    void evaluateInAnInterpolatedLiteralIsUnknown() throws Exception {
+        assertNull(templateAnalyzer.variables(parse("$name.concat(\"#evaluate('$other')\")")));
+    }
+
+    @Test
+    void assignsWithSetDefineMacroOrEvaluate() throws Exception {
+        assertTrue(TemplateAnalyzer.assigns(parse("#set($name = 'value')")));
+        assertTrue(TemplateAnalyzer.assigns(parse("#define($block)content#end")));
+        assertTrue(TemplateAnalyzer.assigns(parse("#macro(local)content#end")));
+        assertTrue(TemplateAnalyzer.assigns(parse("#evaluate('content')")));
+        assertFalse(TemplateAnalyzer.assigns(parse("#if($name)$name.trim()#end#parse('header.vm')")));
+    }
+
+    @Test
+    void callOfAMacroDefinedByTheTemplateIsKnown() throws Exception {
+        Node node = parse("#macro(local $argument)$argument $global#end#local($name)");
+
+        assertEquals(Set.of("argument", "global", "name"), templateAnalyzer.variables(node));
+        assertEquals(Set.of("local"), TemplateAnalyzer.macros(node));
+    }
+
+    @Test
+    void callOfAMacroDefinedElsewhereIsUnknown() throws Exception {
+        Node node = parse("#library($name)");
+
+        assertNull(templateAnalyzer.variables(node));
+
+        TemplateAnalyzer.Analysis analysis = templateAnalyzer.analyze(node);
+        assertEquals(Set.of("name"), analysis.variables());
+        assertEquals(Set.of(), analysis.macros());
+        assertEquals(Set.of("library"), analysis.macroCalls());
+    }
+}
@@ -0,0 +1,115 @@
+package dev.vinyard.blueprinter.core.template;
+
+import dev.vinyard.blueprinter.core.utils.VelocityUtils;
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateCacheTest {
+
+    @TempDir
+    Path templateDirectory;
+
+    private TemplateCache templateCache;
+
+    @BeforeEach
+    void setUp() {
+        templateCache = new TemplateCache(TemplateFixture.templateResourceLoader(templateDirectory));
+    }
+
+    private File template(String name, String content) throws Exception {
+        return Files.writeString(templateDirectory.resolve(name), content).toFile();
+    }
+
+    @Test
+    void variablesIncludeTheReferencedTemplates() throws Exception {
+        template("header.vm", "$header #parse('footer.vm')");
+        template("footer.vm", "$footer #parse('header.vm')");
+
+        assertEquals(Set.of("name", "header", "footer"), templateCache.getVariables(template("main.vm", "$name #parse('header.vm')")));
+    }
+
+    @Test
+    void variablesOfAMissingReferencedTemplateAreUnknown() throws Exception {
+        assertNull(templateCache.getVariables(template("main.vm", "$name #parse('missing.vm')")));
+    }
+
+    @Test
+    void callOfAMacroDefinedByAReferencedTemplateIsKnown() throws Exception {
+        template("library.vm", "#macro(local $argument)$argument $global#end");
+
+        assertEquals(Set.of("argument", "global", "name"), templateCache.getVariables(template("main.vm", "#parse('library.vm')#local($name)")));
+    }
+
+    @Test
+    void callOfAMacroDefinedOutsideTheReferencedTemplatesIsUnknown() throws Exception {
+        template("library.vm", "#macro(local $argument)$argument#end");
+
+        assertNull(templateCache.getVariables(template("main.vm", "#parse('library.vm')#other($name)")));
+    }
+
+    @Test
+    void templateIsParsedOnce() throws Exception {
+        File main = template("main.vm", "$name");
+
+        Template template = templateCache.getTemplate(main);
+
+        assertSame(template, templateCache.getTemplate(main));
+        assertEquals(1, templateCache.getMissCount());
+        assertEquals(1, templateCache.getHitCount());
+    }
+
+    @Test
+    void leastRecentlyUsedTemplateIsEvicted() throws Exception {
+        templateCache = new TemplateCache(TemplateFixture.templateResourceLoader(templateDirectory), 2);
+        File first = template("first.vm", "first");
+        File second = template("second.vm", "second");
+        File third = template("third.vm", "third");
+
+        templateCache.getTemplate(first);
+        templateCache.getTemplate(second);
+        templateCache.getTemplate(first);
+        // the second template is the least recently used one
+        templateCache.getTemplate(third);
+        assertEquals(2, templateCache.size());
+
+        templateCache.getTemplate(first);
+        assertEquals(2, templateCache.getHitCount());
+        templateCache.getTemplate(second);
+        assertEquals(4, templateCache.getMissCount());
+    }
+
+    @Test
+    void templateIsReadAndRenderedWithTheInputEncodingOfTheEngine() throws Exception {
+        templateCache = new TemplateCache(TemplateFixture.templateResourceLoader(templateDirectory, Map.of(RuntimeConstants.INPUT_ENCODING, "ISO-8859-1")));
+        File main = Files.write(templateDirectory.resolve("main.vm"), "Généré pour $name".getBytes(StandardCharsets.ISO_8859_1)).toFile();
+        VelocityContext velocityContext = new VelocityContext();
+        velocityContext.put("name", "Zoé");
+
+        byte[] rendered = VelocityUtils.processTemplate(velocityContext, templateCache.getTemplate(main)).getBytes(templateCache.getCharset());
+
+        assertEquals(StandardCharsets.ISO_8859_1, templateCache.getCharset());
+        assertArrayEquals("Généré pour Zoé".getBytes(StandardCharsets.ISO_8859_1), rendered);
+    }
+
+    @Test
+    void templateIsReloadedWhenItChanges() throws Exception {
+        File main = template("main.vm", "$name");
+        assertEquals(Set.of("name"), templateCache.getVariables(main));
+
+        template("main.vm", "$name $other");
+        assertEquals(Set.of("name", "other"), templateCache.getVariables(main));
+    }
+}
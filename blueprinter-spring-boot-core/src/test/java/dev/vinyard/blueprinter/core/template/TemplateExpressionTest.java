@@ -0,0 +1,74 @@
+package dev.vinyard.blueprinter.core.template;
+
+import dev.vinyard.blueprinter.core.utils.VelocityUtils;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.app.VelocityEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateExpressionTest {
+
+    private static final List<String> SOURCES = List.of(
+            "", "plain text", "$name", "${name}", "$!name", "$!{name}", "${name}Suffix", "$name-$other", "$name_2 ${other}",
+            "prefix/${name}/$!{other}.txt", "$!other.txt", "$name.toUpperCase()", "${name}.toUpperCase()", "$name.length", "$list[0]", "$name(x)",
+            "\\$name", "\\${name}", "$$name", "$1", "price: $", "cost $ 5", "${name", "$!!name", "#if($name)x#end", "## comment",
+            "${name|'default'}", "$name}", "{$name}", "mail $name@host");
+
+    private static final List<Map<String, Object>> VALUES = List.of(
+            Map.of(),
+            Map.of("name", "Foo", "other", 42, "name_2", "Bar", "list", List.of("a")),
+            Map.of("name", ""));
+
+    private VelocityEngine velocityEngine;
+
+    @BeforeEach
+    void setUp() {
+        velocityEngine = new VelocityEngine();
+        velocityEngine.init();
+    }
+
+    private static VelocityContext context(Map<String, Object> values) {
+        VelocityContext context = new VelocityContext();
+        values.forEach(context::put);
+        return context;
+    }
+
+    @Test
+    void substitutionRendersAsVelocity() {
+        for (String source : SOURCES) {
+            TemplateExpression expression = TemplateExpression.of(source);
+
+            if (expression.kind() == TemplateExpression.Kind.VELOCITY)
+                continue;
+
+            for (Map<String, Object> values : VALUES)
+                assertEquals(VelocityUtils.processTemplate(velocityEngine, context(values), source), expression.substitute(values::get), () -> source + " with " + values);
+        }
+    }
+
+    @Test
+    void plainReferencesAreSubstituted() {
+        for (String source : List.of("$name", "${name}", "$!name", "$!{name}", "${name}Suffix", "$name-$other", "prefix/${name}/$!{other}.txt", "mail $name@host"))
+            assertEquals(TemplateExpression.Kind.REFERENCES, TemplateExpression.of(source).kind(), source);
+
+        assertEquals(TemplateExpression.Kind.LITERAL, TemplateExpression.of("plain text").kind());
+    }
+
+    @Test
+    void methodCallsPropertiesEscapesAndDirectivesAreRenderedByVelocity() {
+        for (String source : List.of("$name.toUpperCase()", "$!other.txt", "$name.length", "$list[0]", "$name(x)", "\\$name", "\\${name}", "$$name", "$1", "price: $",
+                "${name", "$!!name", "#if($name)x#end", "## comment", "${name|'default'}"))
+            assertEquals(TemplateExpression.Kind.VELOCITY, TemplateExpression.of(source).kind(), source);
+    }
+
+    @Test
+    void referencesAreTheSubstitutedVariables() {
+        assertEquals(List.of("name", "other"), List.copyOf(TemplateExpression.of("prefix/${name}/$!{other}.txt").references()));
+        assertTrue(TemplateExpression.of("$name.toUpperCase()").references().isEmpty());
+    }
+}
@@ -0,0 +1,51 @@
+package dev.vinyard.blueprinter.core.template;
+
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.runtime.RuntimeConstants;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Velocity engine of the tests, loading its templates from a template directory as the engine of the application does.
+ */
+public final class TemplateFixture {
+
+    private TemplateFixture() {
+    }
+
+    /**
+     * Initialize a velocity engine loading its templates from the given directory.
+     *
+     * @param templateDirectory The template directory
+     * @return The resource loader registered in the initialized engine, which gives access to its runtime
+     */
+    public static TemplateResourceLoader templateResourceLoader(Path templateDirectory) {
+        return templateResourceLoader(templateDirectory, Map.of());
+    }
+
+    /**
+     * Initialize a velocity engine loading its templates from the given directory, with the given engine properties.
+     *
+     * @param templateDirectory The template directory
+     * @param properties The properties of the engine, like its input encoding
+     * @return The resource loader registered in the initialized engine, which gives access to its runtime
+     */
+    public static TemplateResourceLoader templateResourceLoader(Path templateDirectory, Map<String, Object> properties) {
+        TemplateResourceLoader templateResourceLoader = new TemplateResourceLoader(null) {
+            @Override
+            public File getFile(String name) {
+                return templateDirectory.resolve(name).toFile();
+            }
+        };
+
+        VelocityEngine velocityEngine = new VelocityEngine();
+        velocityEngine.setProperty(RuntimeConstants.RESOURCE_LOADERS, "template");
+        velocityEngine.setProperty("resource.loader.template." + RuntimeConstants.RESOURCE_LOADER_INSTANCE, templateResourceLoader);
+        properties.forEach(velocityEngine::setProperty);
+        velocityEngine.init();
+
+        return templateResourceLoader;
+    }
+}